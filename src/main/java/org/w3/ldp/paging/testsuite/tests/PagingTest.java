@@ -1,13 +1,7 @@
 package org.w3.ldp.paging.testsuite.tests;
 
-import static com.jayway.restassured.config.LogConfig.logConfig;
-
 import java.io.IOException;
-import java.io.PrintStream;
-import java.util.Map;
 
-import org.apache.commons.io.output.WriterOutputStream;
-import org.apache.commons.lang3.StringUtils;
 import org.testng.annotations.Optional;
 import org.testng.annotations.Parameters;
 import org.testng.annotations.Test;
@@ -16,10 +10,6 @@ import org.w3.ldp.testsuite.annotations.SpecTest.METHOD;
 import org.w3.ldp.testsuite.annotations.SpecTest.STATUS;
 import org.w3.ldp.testsuite.test.LdpTest;
 
-import com.google.common.collect.ImmutableMap;
-import com.jayway.restassured.RestAssured;
-import com.jayway.restassured.specification.RequestSpecification;
-
 public class PagingTest extends LdpTest{
 	
 	public static final String PAGING = "PAGING";
@@ -468,36 +458,9 @@ public class PagingTest extends LdpTest{
 		// requirement. testSortCollation covers the rest."
 	}
 	
-	protected Map<String,String> auth;
-
 	@Parameters("auth")
 	public PagingTest(@Optional String auth) throws IOException {
-		if (StringUtils.isNotBlank(auth) && auth.contains(":")) {
-			String[] split = auth.split(":");
-			if (split.length == 2 && StringUtils.isNotBlank(split[0]) && StringUtils.isNotBlank(split[1])) {
-				this.auth = ImmutableMap.of("username", split[0], "password", split[1]);
-			}
-		} else {
-			this.auth = null;
-		}
-	}
-	
-	@Override
-	protected RequestSpecification buildBaseRequestSpecification() {
-		RequestSpecification spec = RestAssured.given();
-		if (auth != null) {
-			spec.auth().preemptive().basic(auth.get("username"), auth.get("password"));
-		}
-
-		if (httpLog != null) {
-			spec.config(RestAssured
-					.config()
-					.logConfig(logConfig()
-							.enableLoggingOfRequestAndResponseIfValidationFails()
-							.defaultStream(new PrintStream(new WriterOutputStream(httpLog)))
-							.enablePrettyPrinting(true)));
-		}
-		return spec;
+		this.auth = parseAuth(auth);
 	}
 	
 }
@@ -1,9 +1,15 @@
 package org.w3.ldp.testsuite;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.cli.BasicParser;
@@ -15,6 +21,7 @@ import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.cli.OptionGroup;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.testng.IMethodInstance;
@@ -24,9 +31,21 @@ import org.testng.TestNG;
 import org.testng.xml.XmlClass;
 import org.testng.xml.XmlSuite;
 import org.testng.xml.XmlTest;
+import org.w3.ldp.testsuite.crawler.CrawlIndex;
+import org.w3.ldp.testsuite.crawler.CrawlReport;
+import org.w3.ldp.testsuite.crawler.LdpCrawler;
+import org.w3.ldp.testsuite.crawler.ResourceSampler;
+import org.w3.ldp.testsuite.filter.RequestLimiter;
+import org.w3.ldp.testsuite.filter.ResourceTrackingFilter;
+import org.w3.ldp.testsuite.http.RequestWatchdog;
+import org.w3.ldp.testsuite.http.RetryPolicy;
+import org.w3.ldp.testsuite.http.UnixSocketTransport;
+import org.w3.ldp.testsuite.reporter.ComparisonReport;
+import org.w3.ldp.testsuite.reporter.IterationStatistics;
 import org.w3.ldp.testsuite.reporter.LdpEarlReporter;
 import org.w3.ldp.testsuite.reporter.LdpHtmlReporter;
 import org.w3.ldp.testsuite.reporter.LdpTestListener;
+import org.w3.ldp.testsuite.reporter.SoakReport;
 import org.w3.ldp.testsuite.test.LdpTest;
 import org.w3.ldp.testsuite.transformer.MethodEnabler;
 import org.w3.ldp.testsuite.util.OptionsHandler;
@@ -48,6 +67,10 @@ public class LdpTestSuite {
 
 	static final String[] EARLDEPEDENTARGS = {"software", "developer", "language", "homepage", "assertor", "shortname"};
 
+	static final String[] PERFORMANCEARGS = {"churnDuration", "churnThreads", "churnInterval", "binarySize", "rangeSegments", "preferIterations",
+			"hierarchyDepth", "hierarchyFanOut", "hierarchyThreads", "loadStartRate", "loadStepRate", "loadMaxRate",
+			"loadStepDuration", "loadConnections", "scenario"};
+
 	private final TestNG testng;
 
 	private final List<XmlClass> classList; // for test types to add in
@@ -56,6 +79,12 @@ public class LdpTestSuite {
 
 	private String outputDir;
 
+	private SoakReport soak;
+
+	private long soakMillis;
+
+	private int suiteRuns = 1;
+
 	enum ContainerType {
 		BASIC, DIRECT, INDIRECT
 	}
@@ -108,6 +137,90 @@ public class LdpTestSuite {
 		}
 	}
 
+	/**
+	 * Sends the requests for a {@code unix:} server over its socket.
+	 *
+	 * @return the http URI of the server
+	 * @see UnixSocketTransport#install(String)
+	 */
+	private static String installUnixSocket(String server) {
+		try {
+			return UnixSocketTransport.install(server);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("ERROR: invalid server uri, " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * Connects to the server given with {@code --server} of one of the
+	 * suites of {@link #compare}, before its turn: over the socket of a
+	 * {@code unix:} server and over TCP otherwise, with a request limiter of
+	 * its own so that the limits learned from one server do not apply to the
+	 * other.
+	 */
+	private static void connect(OptionsHandler options) {
+		String server = options.getOptionValue("server");
+		if (UnixSocketTransport.isUnixServer(server)) {
+			installUnixSocket(server);
+		} else {
+			UnixSocketTransport.uninstall();
+		}
+		installRequestLimiter(options);
+	}
+
+	/**
+	 * Applies the timeouts given with {@code --connectTimeout},
+	 * {@code --readTimeout}, {@code --requestTimeout} and
+	 * {@code --testTimeout}.
+	 *
+	 * @see RequestWatchdog#install(int, int, long, long)
+	 */
+	private static void installRequestWatchdog(OptionsHandler options) {
+		int connectTimeout, readTimeout;
+		long requestTimeout, testTimeout;
+		try {
+			connectTimeout = options.hasOptionWithValue("connectTimeout") ? Integer.parseInt(options.getOptionValue("connectTimeout")) : 30;
+			readTimeout = options.hasOptionWithValue("readTimeout") ? Integer.parseInt(options.getOptionValue("readTimeout")) : 120;
+			requestTimeout = options.hasOptionWithValue("requestTimeout") ? Long.parseLong(options.getOptionValue("requestTimeout")) : 0;
+			testTimeout = options.hasOptionWithValue("testTimeout") ? Long.parseLong(options.getOptionValue("testTimeout")) : 0;
+		} catch (NumberFormatException e) {
+			connectTimeout = readTimeout = -1;
+			requestTimeout = testTimeout = -1;
+		}
+		if (connectTimeout < 0 || readTimeout < 0 || requestTimeout < 0 || testTimeout < 0) {
+			throw new IllegalArgumentException("ERROR: invalid connectTimeout, readTimeout, requestTimeout or testTimeout, expected a number of seconds of at least 0");
+		}
+		RequestWatchdog.install((int) TimeUnit.SECONDS.toMillis(connectTimeout), (int) TimeUnit.SECONDS.toMillis(readTimeout),
+				TimeUnit.SECONDS.toMillis(requestTimeout), TimeUnit.SECONDS.toMillis(testTimeout));
+	}
+
+	/**
+	 * Limits the request rate and concurrency if asked for with
+	 * {@code --maxRate} or {@code --maxConcurrency}.
+	 *
+	 * @see RequestLimiter#install(double, int)
+	 */
+	private static void installRequestLimiter(OptionsHandler options) {
+		if (options.hasOptionWithValue("maxRate") || options.hasOptionWithValue("maxConcurrency")) {
+			double maxRate = 0;
+			int maxConcurrency = 0;
+			try {
+				if (options.hasOptionWithValue("maxRate")) {
+					maxRate = Double.parseDouble(options.getOptionValue("maxRate"));
+				}
+				if (options.hasOptionWithValue("maxConcurrency")) {
+					maxConcurrency = Integer.parseInt(options.getOptionValue("maxConcurrency"));
+				}
+			} catch (NumberFormatException e) {
+				maxRate = maxConcurrency = -1;
+			}
+			if (maxRate < 0 || maxConcurrency < 0) {
+				throw new IllegalArgumentException("ERROR: invalid maxRate or maxConcurrency, expected a number of at least 0");
+			}
+			RequestLimiter.install(maxRate, maxConcurrency);
+		}
+	}
+
 	private void setupSuite(OptionsHandler options) {
 
 		testng.setDefaultSuiteName(NAME);
@@ -153,9 +266,17 @@ public class LdpTestSuite {
 		}
 		parameters.put("output", outputDir);
 
-		final String server;
+		String server;
 		if (options.hasOption("server")) {
 			server = options.getOptionValue("server");
+			if (UnixSocketTransport.isUnixServer(server)) {
+				if (options.hasOption("checkHttp2")) {
+					throw new IllegalArgumentException("ERROR: --checkHttp2 cannot be used with a unix socket server");
+				}
+				server = installUnixSocket(server);
+			} else {
+				UnixSocketTransport.uninstall();
+			}
 			if (StringUtils.startsWith(server, "https:")) { // allow self-signed certificates for development servers
 				RestAssured.useRelaxedHTTPSValidation();
 			}
@@ -168,6 +289,29 @@ public class LdpTestSuite {
 			throw new IllegalArgumentException("ERROR: missing server uri");
 		}
 
+		installRequestWatchdog(options);
+
+		// before any other filter, so the time held back is not counted as latency
+		installRequestLimiter(options);
+
+		if (options.hasOptionWithValue("retries")) {
+			int retries, breakerThreshold;
+			long backoffMillis, cooldownSeconds;
+			try {
+				retries = Integer.parseInt(options.getOptionValue("retries"));
+				backoffMillis = options.hasOptionWithValue("retryBackoff") ? Long.parseLong(options.getOptionValue("retryBackoff")) : 200;
+				breakerThreshold = options.hasOptionWithValue("circuitBreaker") ? Integer.parseInt(options.getOptionValue("circuitBreaker")) : 5;
+				cooldownSeconds = options.hasOptionWithValue("circuitBreakerCooldown") ? Long.parseLong(options.getOptionValue("circuitBreakerCooldown")) : 30;
+			} catch (NumberFormatException e) {
+				retries = breakerThreshold = -1;
+				backoffMillis = cooldownSeconds = -1;
+			}
+			if (retries < 0 || backoffMillis < 0 || breakerThreshold < 0 || cooldownSeconds < 0) {
+				throw new IllegalArgumentException("ERROR: invalid retries, retryBackoff, circuitBreaker or circuitBreakerCooldown, expected a number of at least 0");
+			}
+			RetryPolicy.install(retries, backoffMillis, breakerThreshold, TimeUnit.SECONDS.toMillis(cooldownSeconds));
+		}
+
 		// Listener injection from options
 		final String[] listeners;
 		if (options.hasOption("listeners")) {
@@ -239,13 +383,8 @@ public class LdpTestSuite {
 
 		if (options.hasOptionWithValue("auth")) {
 			final String auth = options.getOptionValue("auth");
-			if (auth.contains(":")) {
-					String[] split = auth.split(":");
-					if (split.length == 2 && StringUtils.isNotBlank(split[0]) && StringUtils.isNotBlank(split[1])) {
-						parameters.put("auth", auth);
-				} else {
-					throw new IllegalArgumentException("ERROR: invalid basic authentication credentials");
-				}
+			if (LdpTest.parseAuth(auth) != null) {
+				parameters.put("auth", auth);
 			} else {
 				throw new IllegalArgumentException("ERROR: invalid basic authentication credentials");
 			}
@@ -292,10 +431,53 @@ public class LdpTestSuite {
 			classList.add(new XmlClass("org.w3.ldp.testsuite.test.NonRDFSourceTest"));
 		}
 
+		classList.add(new XmlClass("org.w3.ldp.testsuite.test.ContentEncodingTest"));
+
+		// the other tests stay on HTTP/1.1
+		if (options.hasOption("checkHttp2")) {
+			classList.add(new XmlClass("org.w3.ldp.testsuite.test.Http2Test"));
+		}
+
+		// revisits the resources retrieved above, so it has to be last
+		classList.add(new XmlClass("org.w3.ldp.testsuite.test.ConditionalGetTest"));
+
+		// optional performance test settings, passed through as test parameters
+		for (String arg : PERFORMANCEARGS) {
+			if (options.hasOptionWithValue(arg)) {
+				parameters.put(arg, options.getOptionValue(arg));
+			}
+		}
+
 		if (options.hasOption("httpLogging")) {
 			parameters.put("httpLogging", "true");
 		}
 
+		int iterations = 1;
+		if (options.hasOptionWithValue("iterations")) {
+			try {
+				iterations = Integer.parseInt(options.getOptionValue("iterations"));
+			} catch (NumberFormatException e) {
+				iterations = 0;
+			}
+			if (iterations < 1) {
+				throw new IllegalArgumentException("ERROR: iterations must be a positive number");
+			}
+			testng.addListener(new IterationStatistics());
+		}
+		if (options.hasOption("interleave")) {
+			// run the whole suite again rather than each test again in a row
+			suiteRuns = iterations;
+			MethodEnabler.setInvocationCount(1);
+		} else {
+			MethodEnabler.setInvocationCount(iterations);
+		}
+
+		if (options.hasOptionWithValue("soak")) {
+			soakMillis = parseDuration(options.getOptionValue("soak"));
+			soak = new SoakReport(server, parameters.get("auth"), outputDir);
+			testng.addListener(soak);
+		}
+
 		if (options.hasOption("skipLogging")) {
 			parameters.put("skipLogging", "true");
 		}
@@ -375,14 +557,55 @@ public class LdpTestSuite {
 		return builder.toString();
 	}
 
+	/**
+	 * Runs the suite once, {@code --iterations} times with
+	 * {@code --interleave}, or with {@code --soak} again and again in the
+	 * same JVM until the soak duration is over.
+	 */
 	public void run() {
-		testng.run();
+		long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(soakMillis);
+		int runs = 0;
+		do {
+			if (runs > 0) {
+				// only the resources of this run are revisited
+				ResourceTrackingFilter.getInstance().clear();
+			}
+			testng.run();
+			runs++;
+		} while (runs < suiteRuns || (soak != null && System.nanoTime() < end));
 	}
 
 	public int getStatus() {
+		if (soak != null && !soak.getDegradations().isEmpty()) {
+			return testng.getStatus() | 1; // TestNG.HAS_FAILURE
+		}
 		return testng.getStatus();
 	}
 
+	/**
+	 * Parses a duration such as {@code 90s}, {@code 30m} or {@code 8h}. A
+	 * number without a unit is in seconds.
+	 *
+	 * @return the duration in milliseconds
+	 */
+	static long parseDuration(String duration) {
+		Matcher matcher = Pattern.compile("(\\d+)([smhd]?)").matcher(duration.trim().toLowerCase());
+		if (!matcher.matches()) {
+			throw new IllegalArgumentException("ERROR: invalid duration " + duration + ", expected a number followed by s, m, h or d");
+		}
+		long amount = Long.parseLong(matcher.group(1));
+		switch (matcher.group(2)) {
+			case "m":
+				return TimeUnit.MINUTES.toMillis(amount);
+			case "h":
+				return TimeUnit.HOURS.toMillis(amount);
+			case "d":
+				return TimeUnit.DAYS.toMillis(amount);
+			default:
+				return TimeUnit.SECONDS.toMillis(amount);
+		}
+	}
+
 	public String getOutputDir() {
 		return outputDir;
 	}
@@ -403,6 +626,199 @@ public class LdpTestSuite {
 		return cmd;
 	}
 
+	/**
+	 * Crawls every resource reachable from the server URI instead of running
+	 * the test suite, writing findings of the read-only checks as JSON lines
+	 * to the file given with {@code --crawl}. With {@code --crawlIndex}, only
+	 * resources that changed since the previous crawl are checked again. With
+	 * {@code --sample}, only a random sample of the resources is checked
+	 * within a time budget and pass rates per check are estimated. With
+	 * {@code --maxRate}, at most that many resources are fetched per second.
+	 * The connect and read timeouts apply to each fetch.
+	 *
+	 * @param options
+	 *            the command line options
+	 * @return 1 if any MUST level check failed or any resource could not be
+	 *         checked, 0 otherwise
+	 * @see LdpCrawler
+	 */
+	public static int crawl(OptionsHandler options) throws IOException, InterruptedException {
+		String server = options.getOptionValue("server");
+		if (server == null) {
+			throw new IllegalArgumentException("ERROR: missing server uri");
+		}
+		if (UnixSocketTransport.isUnixServer(server)) {
+			server = installUnixSocket(server);
+		} else {
+			UnixSocketTransport.uninstall();
+		}
+		final String scheme = URI.create(server).getScheme();
+		if (!"http".equals(scheme) && !"https".equals(scheme)) {
+			throw new IllegalArgumentException("ERROR: invalid server uri, non-http uri");
+		}
+
+		String authorization = null;
+		if (options.hasOptionWithValue("auth")) {
+			Map<String, String> auth = LdpTest.parseAuth(options.getOptionValue("auth"));
+			if (auth == null) {
+				throw new IllegalArgumentException("ERROR: invalid basic authentication credentials");
+			}
+			String credentials = auth.get("username") + ":" + auth.get("password");
+			authorization = "Basic " + Base64.encodeBase64String(credentials.getBytes(StandardCharsets.UTF_8));
+		}
+		int threads;
+		long limit;
+		try {
+			threads = options.hasOptionWithValue("crawlThreads") ? Integer.parseInt(options.getOptionValue("crawlThreads")) : 8;
+			limit = options.hasOptionWithValue("crawlLimit") ? Long.parseLong(options.getOptionValue("crawlLimit")) : 0;
+		} catch (NumberFormatException e) {
+			threads = -1;
+			limit = -1;
+		}
+		if (threads < 1 || limit < 0) {
+			throw new IllegalArgumentException("ERROR: invalid crawlThreads or crawlLimit, expected a positive number of threads and a limit of at least 0");
+		}
+		installRequestWatchdog(options);
+		installRequestLimiter(options);
+
+		File indexFile = null;
+		CrawlIndex index = null;
+		if (options.hasOptionWithValue("crawlIndex")) {
+			indexFile = new File(options.getOptionValue("crawlIndex"));
+			index = CrawlIndex.load(indexFile);
+		}
+
+		final String file = options.getOptionValue("crawl");
+		if (options.hasOptionWithValue("sample")) {
+			return sample(options, server, threads, authorization, file);
+		}
+		try (CrawlReport report = new CrawlReport(new BufferedOutputStream(new FileOutputStream(file)))) {
+			long millis = new LdpCrawler(server, threads, limit, authorization, report, index).crawl();
+			if (index != null) {
+				index.save(indexFile);
+			}
+			System.out.println(String.format("Crawled %d resources (%d unchanged) in %.1f s: %d MUST and %d SHOULD findings, %d errors. Report: %s",
+					report.getResources() + report.getUnchanged(), report.getUnchanged(), millis / 1000.0,
+					report.getMustFindings(), report.getShouldFindings(), report.getErrors(), file));
+			return report.getMustFindings() > 0 || report.getErrors() > 0 ? 1 : 0;
+		}
+	}
+
+	private static int sample(OptionsHandler options, String server, int threads, String authorization, String file)
+			throws IOException, InterruptedException {
+		int size;
+		long budget;
+		try {
+			size = Integer.parseInt(options.getOptionValue("sample"));
+			budget = options.hasOptionWithValue("sampleBudget") ? Long.parseLong(options.getOptionValue("sampleBudget")) : 60;
+		} catch (NumberFormatException e) {
+			size = -1;
+			budget = -1;
+		}
+		if (size < 1 || budget < 1) {
+			throw new IllegalArgumentException("ERROR: invalid sample or sampleBudget, expected a positive number");
+		}
+		long seed;
+		try {
+			seed = options.hasOptionWithValue("sampleSeed") ? Long.parseLong(options.getOptionValue("sampleSeed")) : System.nanoTime();
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("ERROR: invalid sampleSeed, expected a number");
+		}
+
+		try (CrawlReport report = new CrawlReport(new BufferedOutputStream(new FileOutputStream(file)))) {
+			ResourceSampler sampler = new ResourceSampler(server, threads, size, TimeUnit.SECONDS.toMillis(budget), seed, authorization, report);
+			long millis = sampler.sample();
+			System.out.println(String.format("Sampled %d of %d resources in %.1f s (seed %d): %d MUST and %d SHOULD findings, %d errors. Report: %s",
+					report.getResources(), size, millis / 1000.0, seed,
+					report.getMustFindings(), report.getShouldFindings(), report.getErrors(), file));
+			for (Map.Entry<String, long[]> entry : sampler.getCounts().entrySet()) {
+				long applicable = entry.getValue()[0];
+				long passed = entry.getValue()[1];
+				double[] interval = ResourceSampler.wilson(passed, applicable);
+				System.out.println(String.format("  %-18s %5d/%-5d passed, 95%% CI [%5.1f%%, %5.1f%%]  %s",
+						entry.getKey(), passed, applicable, interval[0] * 100, interval[1] * 100,
+						StringUtils.defaultString(ResourceSampler.getSpecRef(entry.getKey()))));
+			}
+			return report.getMustFindings() > 0 || report.getErrors() > 0 ? 1 : 0;
+		}
+	}
+
+	/**
+	 * Runs the suite against the two servers given with {@code --compare}
+	 * in turns, {@code --compareRounds} times each, alternating which one
+	 * goes first so drift in the environment affects both alike. Each server
+	 * gets its own reports in a subdirectory of the output directory, and
+	 * {@link ComparisonReport#FILE_NAME} sets them side by side. Before each
+	 * run, the transport and the request limiter are set up for the server
+	 * of that run. The timeouts and retries are the same for both servers.
+	 *
+	 * @param options
+	 *            the command line options
+	 * @param reportTitle
+	 *            the title of the reports, or null
+	 * @param classes
+	 *            additional test classes
+	 * @return 1 if a test passes on the first server but fails on the
+	 *         second, or the second is significantly slower, 0 otherwise
+	 */
+	public static int compare(OptionsHandler options, String reportTitle, List<XmlClass> classes) throws IOException {
+		final String[] servers = options.getOptionValues("compare");
+		if (servers == null || servers.length != 2) {
+			throw new IllegalArgumentException("ERROR: --compare needs two server uris");
+		}
+		if (options.hasOption("soak") || options.hasOption("iterations")) {
+			throw new IllegalArgumentException("ERROR: --compare cannot be combined with --soak or --iterations, use --compareRounds");
+		}
+		int rounds;
+		try {
+			rounds = options.hasOptionWithValue("compareRounds") ? Integer.parseInt(options.getOptionValue("compareRounds")) : 5;
+		} catch (NumberFormatException e) {
+			rounds = 0;
+		}
+		if (rounds < 1) {
+			throw new IllegalArgumentException("ERROR: compareRounds must be a positive number");
+		}
+		final String output = options.hasOptionWithValue("output") ? options.getOptionValue("output") : ".";
+
+		final String[] labels = {"A", "B"};
+		OptionsHandler[] suiteOptions = new OptionsHandler[2];
+		LdpTestSuite[] suites = new LdpTestSuite[2];
+		ComparisonReport[] reports = new ComparisonReport[2];
+		for (int i = 0; i < 2; i++) {
+			Map<String, String> overrides = new HashMap<>();
+			overrides.put("server", servers[i]);
+			overrides.put("output", output + File.separator + labels[i]);
+			suiteOptions[i] = options.withOverrides(overrides);
+			suites[i] = new LdpTestSuite(suiteOptions[i], reportTitle);
+			suites[i].addTestClasses(classes);
+			reports[i] = new ComparisonReport(labels[i], servers[i]);
+			suites[i].testng.addListener(reports[i]);
+		}
+
+		try {
+			for (int round = 0; round < rounds; round++) {
+				for (int turn = 0; turn < 2; turn++) {
+					// A then B, then B then A, and so on
+					int i = (round + turn) % 2;
+					connect(suiteOptions[i]);
+					ResourceTrackingFilter.getInstance().clear();
+					suites[i].testng.run();
+				}
+			}
+		} finally {
+			UnixSocketTransport.uninstall();
+		}
+
+		File file = ComparisonReport.write(reports[0], reports[1], rounds, output);
+		List<String> regressions = reports[0].getRegressions(reports[1]);
+		System.out.println(String.format("Compared A <%s> and B <%s> over %d rounds: %d regressions from A to B. Report: %s",
+				servers[0], servers[1], rounds, regressions.size(), file));
+		for (String regression : regressions) {
+			System.out.println("  " + regression);
+		}
+		return regressions.isEmpty() ? 0 : 1;
+	}
+
 	public static void executeTestSuite(String[] args, Options options, String reportTitle) {
 		executeTestSuite(args, options, reportTitle, Collections.<XmlClass>emptyList());
 	}
@@ -410,6 +826,12 @@ public class LdpTestSuite {
 		// actual test suite execution
 		try {
 			CommandLine cmd = LdpTestSuite.getCommandLine(options, args);
+			if (cmd.hasOption("crawl")) {
+				System.exit(crawl(new OptionsHandler(cmd)));
+			}
+			if (cmd.hasOption("compare")) {
+				System.exit(compare(new OptionsHandler(cmd), reportTitle, classes));
+			}
 			LdpTestSuite ldpTestSuite = new LdpTestSuite(cmd, reportTitle);
 			ldpTestSuite.addTestClasses(classes);
 			ldpTestSuite.run();
@@ -456,7 +878,8 @@ public class LdpTestSuite {
 	public static OptionGroup addCommonOptions() {
 		OptionGroup common = new OptionGroup();
 		common.addOption(OptionBuilder.withLongOpt("server")
-				.withDescription("server url to run the test suite").hasArg()
+				.withDescription("server url to run the test suite, or unix:<socket>[:<url>] to send the requests "
+						+ "over a unix domain socket, with url http://localhost:8080/ by default").hasArg()
 				.withArgName("server").isRequired().create());
 
 		common.addOption(OptionBuilder.withLongOpt("auth")
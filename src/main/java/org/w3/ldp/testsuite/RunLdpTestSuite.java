@@ -22,6 +22,13 @@ public class RunLdpTestSuite {
 		addContResOption();
 		addReadOnlyOption();
 		addRelativeUriOption();
+		addPerformanceOptions();
+		addCrawlOptions();
+		addCompareOptions();
+		addLimiterOptions();
+		addRetryOptions();
+		addTimeoutOptions();
+		addHttp2Option();
 
 		LdpTestSuite.executeTestSuite(args, options, "ldp-testsuite");
 	}
@@ -58,6 +65,184 @@ public class RunLdpTestSuite {
 				.create());
 	}
 
+	@SuppressWarnings("static-access")
+	private static void addPerformanceOptions() {
+		options.addOption(OptionBuilder.withLongOpt("churnDuration")
+				.withDescription("seconds to create and delete members in the membership churn test (PERFORMANCE group, 30 by default)")
+				.hasArg().withArgName("seconds")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("churnThreads")
+				.withDescription("concurrent creators and deleters in the membership churn test (4 by default)")
+				.hasArg().withArgName("threads")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("churnInterval")
+				.withDescription("milliseconds between membership checks in the membership churn test (500 by default)")
+				.hasArg().withArgName("millis")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("binarySize")
+				.withDescription("size of the LDP-NR streamed in the binary throughput test, e.g. 512m or 2g (64m by default)")
+				.hasArg().withArgName("size")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("rangeSegments")
+				.withDescription("parallel byte ranges in the segmented LDP-NR download test (4 by default)")
+				.hasArg().withArgName("segments")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("preferIterations")
+				.withDescription("GETs per Prefer hint in the Prefer savings test (10 by default)")
+				.hasArg().withArgName("count")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("hierarchyDepth")
+				.withDescription("levels of nested containers in the container hierarchy test (5 by default)")
+				.hasArg().withArgName("levels")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("hierarchyFanOut")
+				.withDescription("child containers per container in the container hierarchy test (3 by default)")
+				.hasArg().withArgName("children")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("hierarchyThreads")
+				.withDescription("concurrent requests in the container hierarchy test (8 by default)")
+				.hasArg().withArgName("threads")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("loadStartRate")
+				.withDescription("requests per second of the first step in the open-loop saturation test (10 by default)")
+				.hasArg().withArgName("rate")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("loadStepRate")
+				.withDescription("requests per second added per step in the open-loop saturation test (10 by default)")
+				.hasArg().withArgName("rate")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("loadMaxRate")
+				.withDescription("requests per second of the last step in the open-loop saturation test (100 by default)")
+				.hasArg().withArgName("rate")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("loadStepDuration")
+				.withDescription("seconds per step in the open-loop saturation test (10 by default)")
+				.hasArg().withArgName("seconds")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("loadConnections")
+				.withDescription("maximum concurrent connections in the open-loop saturation test (256 by default)")
+				.hasArg().withArgName("connections")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("scenario")
+				.withDescription("Turtle load scenario run by the scenario test, a file or one of the bundled scenarios/browse.ttl, scenarios/ingest.ttl and scenarios/upload.ttl")
+				.hasArg().withArgName("file")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("iterations")
+				.withDescription("run each test this many times and report pass ratios and duration statistics per test")
+				.hasArg().withArgName("count")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("interleave")
+				.withDescription("with --iterations, run the whole suite again instead of repeating each test in a row")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("soak")
+				.withDescription("run the suite again and again for this long, e.g. 30m or 8h, and report latency drift, growing error rates and leaked resources (soak.jsonl)")
+				.hasArg().withArgName("duration")
+				.create());
+	}
+
+	@SuppressWarnings("static-access")
+	private static void addLimiterOptions() {
+		options.addOption(OptionBuilder.withLongOpt("maxRate")
+				.withDescription("send at most this many requests per second to the server")
+				.hasArg().withArgName("rate")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("maxConcurrency")
+				.withDescription("send at most this many requests at a time, fewer while the server answers 429 or 503 or slows down")
+				.hasArg().withArgName("requests")
+				.create());
+	}
+
+	@SuppressWarnings("static-access")
+	private static void addRetryOptions() {
+		options.addOption(OptionBuilder.withLongOpt("retries")
+				.withDescription("send a request up to this many more times after a 429, 502, 503 or 504 response or an I/O error; only idempotent requests are retried after errors the server may have acted on")
+				.hasArg().withArgName("retries")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("retryBackoff")
+				.withDescription("with --retries, the longest wait in milliseconds before the first retry, doubled for each further one (200 by default)")
+				.hasArg().withArgName("millis")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("circuitBreaker")
+				.withDescription("with --retries, skip tests while a host has given this many transient errors in a row (5 by default, 0 to never skip)")
+				.hasArg().withArgName("errors")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("circuitBreakerCooldown")
+				.withDescription("with --retries, seconds to skip tests before trying a failing host again (30 by default)")
+				.hasArg().withArgName("seconds")
+				.create());
+	}
+
+	@SuppressWarnings("static-access")
+	private static void addTimeoutOptions() {
+		options.addOption(OptionBuilder.withLongOpt("connectTimeout")
+				.withDescription("seconds to wait for a connection to the server (30 by default, 0 to wait for ever)")
+				.hasArg().withArgName("seconds")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("readTimeout")
+				.withDescription("seconds to wait for each read of a response (120 by default, 0 to wait for ever)")
+				.hasArg().withArgName("seconds")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("requestTimeout")
+				.withDescription("abort a request that takes longer than this many seconds in total, reading the body included, printing the requests in flight and thread stacks")
+				.hasArg().withArgName("seconds")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("testTimeout")
+				.withDescription("fail a test that runs longer than this many seconds, aborting its request in flight and printing the requests in flight and thread stacks")
+				.hasArg().withArgName("seconds")
+				.create());
+	}
+
+	@SuppressWarnings("static-access")
+	private static void addHttp2Option() {
+		options.addOption(OptionBuilder.withLongOpt("checkHttp2")
+				.withDescription("also check that LDP responses are the same over HTTP/2 (h2 for https, h2c with prior knowledge for http) as over HTTP/1.1, and measure multiplexing; the other tests still use HTTP/1.1")
+				.create());
+	}
+
+	@SuppressWarnings("static-access")
+	private static void addCompareOptions() {
+		options.addOption(OptionBuilder.withLongOpt("compare")
+				.withDescription("run the suite against two servers in turns and report conformance differences and significant latency and throughput changes from the first to the second (comparison.html)")
+				.hasArgs(2).withArgName("serverA serverB")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("compareRounds")
+				.withDescription("with --compare, times to run the suite against each server (5 by default)")
+				.hasArg().withArgName("rounds")
+				.create());
+	}
+
+	@SuppressWarnings("static-access")
+	private static void addCrawlOptions() {
+		options.addOption(OptionBuilder.withLongOpt("crawl")
+				.withDescription("instead of running the tests, check every resource reachable from the server url and write findings to a JSON lines file")
+				.hasArg().withArgName("file")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("crawlThreads")
+				.withDescription("concurrent requests when crawling (8 by default)")
+				.hasArg().withArgName("threads")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("crawlLimit")
+				.withDescription("maximum number of resources to check when crawling (no limit by default)")
+				.hasArg().withArgName("count")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("crawlIndex")
+				.withDescription("file remembering ETags and findings between crawls, so only changed resources are checked again")
+				.hasArg().withArgName("file")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("sample")
+				.withDescription("with --crawl, check only a random sample of this many resources and estimate pass rates per check")
+				.hasArg().withArgName("count")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("sampleBudget")
+				.withDescription("time after which sampling stops, complete or not (60 by default)")
+				.hasArg().withArgName("seconds")
+				.create());
+		options.addOption(OptionBuilder.withLongOpt("sampleSeed")
+				.withDescription("seed for choosing the sample, to repeat a sampled crawl")
+				.hasArg().withArgName("seed")
+				.create());
+	}
+
 	@SuppressWarnings("static-access")
 	private static void addContResOption() {
 		options.addOption(OptionBuilder.withLongOpt("cont-res")
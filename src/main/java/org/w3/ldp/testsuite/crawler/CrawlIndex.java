@@ -0,0 +1,183 @@
+package org.w3.ldp.testsuite.crawler;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonArray;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.atlas.json.JsonValue;
+
+/**
+ * What an earlier crawl learned about each resource: its ETag, the findings
+ * of the checks and the resources it contained. Stored on disk as JSON
+ * lines, one resource per line, so the next crawl can revisit resources
+ * with If-None-Match and reuse the findings of those that did not change.
+ *
+ * <pre>
+ * { "uri" : "http://example.org/c/" , "etag" : "\"1\"" , "findings" : [ ] , "children" : [ "http://example.org/c/r1" ] }
+ * </pre>
+ */
+public class CrawlIndex {
+
+	/** What is known about one resource. */
+	public static class Entry {
+
+		private final String etag;
+		private final List<JsonObject> findings;
+		private final List<String> children;
+
+		public Entry(String etag, List<JsonObject> findings, List<String> children) {
+			this.etag = etag;
+			this.findings = findings;
+			this.children = children;
+		}
+
+		/**
+		 * @return the ETag of the resource, or null if it had none
+		 */
+		public String getEtag() {
+			return etag;
+		}
+
+		public List<JsonObject> getFindings() {
+			return findings;
+		}
+
+		/**
+		 * @return the resources the container contained, empty for other
+		 *         resources
+		 */
+		public List<String> getChildren() {
+			return children;
+		}
+	}
+
+	private final Map<String, Entry> previous;
+	private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+	private CrawlIndex(Map<String, Entry> previous) {
+		this.previous = previous;
+	}
+
+	/**
+	 * Loads the index written by the previous crawl.
+	 *
+	 * @param file
+	 *            the index file; an empty index is returned if it does not
+	 *            exist yet
+	 * @return the index
+	 */
+	public static CrawlIndex load(File file) throws IOException {
+		Map<String, Entry> entries = new HashMap<>();
+		if (file.exists()) {
+			try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+				for (String line; (line = in.readLine()) != null; ) {
+					if (!line.trim().isEmpty()) {
+						JsonObject json = JSON.parse(line);
+						entries.put(json.get("uri").getAsString().value(), toEntry(json));
+					}
+				}
+			}
+		}
+		return new CrawlIndex(entries);
+	}
+
+	/**
+	 * @return the number of resources known from the previous crawl
+	 */
+	public int getPreviousSize() {
+		return previous.size();
+	}
+
+	/**
+	 * @param uri
+	 *            the resource
+	 * @return what the previous crawl found, or null if it did not visit the
+	 *         resource
+	 */
+	public Entry getPrevious(String uri) {
+		return previous.get(uri);
+	}
+
+	/**
+	 * Remembers a resource for the next crawl.
+	 *
+	 * @param uri
+	 *            the resource
+	 * @param entry
+	 *            what was found
+	 */
+	public void put(String uri, Entry entry) {
+		current.put(uri, entry);
+	}
+
+	/**
+	 * Writes the resources visited by this crawl, replacing the file
+	 * atomically so an interrupted write keeps the previous index.
+	 *
+	 * @param file
+	 *            the index file
+	 */
+	public void save(File file) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+			for (Map.Entry<String, Entry> entry : current.entrySet()) {
+				CrawlReport.writeLine(out, toJson(entry.getKey(), entry.getValue()));
+			}
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static Entry toEntry(JsonObject json) {
+		String etag = json.hasKey("etag") ? json.get("etag").getAsString().value() : null;
+
+		List<JsonObject> findings = new ArrayList<>();
+		for (JsonValue finding : json.get("findings").getAsArray()) {
+			findings.add(finding.getAsObject());
+		}
+
+		JsonArray array = json.get("children").getAsArray();
+		if (array.isEmpty()) {
+			return new Entry(etag, findings, Collections.<String>emptyList());
+		}
+		List<String> children = new ArrayList<>(array.size());
+		for (JsonValue child : array) {
+			children.add(child.getAsString().value());
+		}
+		return new Entry(etag, findings, children);
+	}
+
+	private static JsonObject toJson(String uri, Entry entry) {
+		JsonObject json = new JsonObject();
+		json.put("uri", uri);
+		if (entry.getEtag() != null) {
+			json.put("etag", entry.getEtag());
+		}
+		JsonArray findings = new JsonArray();
+		findings.addAll(entry.getFindings());
+		json.put("findings", findings);
+		JsonArray children = new JsonArray();
+		for (String child : entry.getChildren()) {
+			children.add(child);
+		}
+		json.put("children", children);
+		return json;
+	}
+
+}
@@ -0,0 +1,211 @@
+package org.w3.ldp.testsuite.crawler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonNumber;
+import org.apache.jena.atlas.json.JsonObject;
+
+/**
+ * Writes crawl findings as JSON lines, one object per finding, as soon as
+ * they are found. A report for millions of resources is never held in
+ * memory and can be inspected while the crawl is still running.
+ *
+ * <pre>
+ * { "uri" : "http://example.org/c/r1" , "check" : "etag" , "level" : "MUST" , "message" : "..." }
+ * </pre>
+ *
+ * <p>
+ * Findings carried forward from an earlier crawl because the resource did
+ * not change have {@code "carried" : true}.
+ * </p>
+ *
+ * <p>
+ * A sampled crawl ends with one line per check giving its estimated pass
+ * rate, marked with {@code "summary" : true}.
+ * </p>
+ */
+public class CrawlReport implements Closeable {
+
+	private final OutputStream out;
+
+	private long resources;
+	private long unchanged;
+	private long errors;
+	private long mustFindings;
+	private long shouldFindings;
+
+	public CrawlReport(OutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Creates a finding for {@link #finding(String, JsonObject, boolean)}.
+	 *
+	 * @param check
+	 *            the name of the check
+	 * @param level
+	 *            the requirement level, {@code MUST} or {@code SHOULD}
+	 * @param message
+	 *            what was wrong
+	 * @return the finding
+	 */
+	public static JsonObject newFinding(String check, String level, String message) {
+		JsonObject finding = new JsonObject();
+		finding.put("check", check);
+		finding.put("level", level);
+		finding.put("message", message);
+		return finding;
+	}
+
+	/**
+	 * Counts a resource as fetched and checked.
+	 */
+	public synchronized void resourceChecked() {
+		resources++;
+	}
+
+	/**
+	 * Counts a resource as not modified since the last crawl.
+	 */
+	public synchronized void resourceUnchanged() {
+		unchanged++;
+	}
+
+	/**
+	 * Records a failed check for a resource.
+	 *
+	 * @param uri
+	 *            the resource
+	 * @param finding
+	 *            the finding from {@link #newFinding(String, String, String)}
+	 * @param carried
+	 *            true if the finding is from an earlier crawl
+	 */
+	public void finding(String uri, JsonObject finding, boolean carried) {
+		JsonObject line = new JsonObject();
+		line.put("uri", uri);
+		for (String key : finding.keys()) {
+			line.put(key, finding.get(key));
+		}
+		if (carried) {
+			line.put("carried", true);
+		}
+		write(line);
+
+		synchronized (this) {
+			if ("MUST".equals(finding.get("level").getAsString().value())) {
+				mustFindings++;
+			} else {
+				shouldFindings++;
+			}
+		}
+	}
+
+	/**
+	 * Records a resource that could not be checked at all, for instance
+	 * because the connection failed.
+	 *
+	 * @param uri
+	 *            the resource
+	 * @param message
+	 *            what went wrong
+	 */
+	public void error(String uri, String message) {
+		JsonObject error = new JsonObject();
+		error.put("uri", uri);
+		error.put("check", "error");
+		error.put("message", message);
+		write(error);
+
+		synchronized (this) {
+			errors++;
+		}
+	}
+
+	/**
+	 * Records the estimated pass rate of a check over a sample.
+	 *
+	 * @param check
+	 *            the name of the check
+	 * @param specRef
+	 *            the specification requirement the check tests
+	 * @param passed
+	 *            sampled resources that passed
+	 * @param applicable
+	 *            sampled resources the check applied to
+	 * @param lower
+	 *            the lower bound of the confidence interval
+	 * @param upper
+	 *            the upper bound of the confidence interval
+	 */
+	public void passRate(String check, String specRef, long passed, long applicable, double lower, double upper) {
+		JsonObject summary = new JsonObject();
+		summary.put("summary", true);
+		summary.put("check", check);
+		if (specRef != null) {
+			summary.put("specRef", specRef);
+		}
+		summary.put("passed", passed);
+		summary.put("applicable", applicable);
+		summary.put("lower", JsonNumber.value(lower));
+		summary.put("upper", JsonNumber.value(upper));
+		write(summary);
+	}
+
+	public synchronized long getResources() {
+		return resources;
+	}
+
+	public synchronized long getUnchanged() {
+		return unchanged;
+	}
+
+	public synchronized long getErrors() {
+		return errors;
+	}
+
+	public synchronized long getMustFindings() {
+		return mustFindings;
+	}
+
+	public synchronized long getShouldFindings() {
+		return shouldFindings;
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (out) {
+			out.close();
+		}
+	}
+
+	private void write(JsonObject json) {
+		synchronized (out) {
+			try {
+				writeLine(out, json);
+				out.flush();
+			} catch (IOException e) {
+				throw new IllegalStateException("Unable to write crawl report", e);
+			}
+		}
+	}
+
+	/**
+	 * Writes a JSON object on a single line.
+	 */
+	static void writeLine(OutputStream out, JsonObject json) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		IndentedWriter line = new IndentedWriter(buffer);
+		line.setFlatMode(true);
+		JSON.write(line, json);
+		line.flush();
+		buffer.write('\n');
+		buffer.writeTo(out);
+	}
+
+}
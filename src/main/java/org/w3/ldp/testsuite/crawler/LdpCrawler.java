@@ -0,0 +1,227 @@
+package org.w3.ldp.testsuite.crawler;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.atlas.json.JsonObject;
+import org.w3.ldp.testsuite.util.LongHashSet;
+
+/**
+ * Walks every resource reachable from a root container by following
+ * ldp:contains and applies the read-only checks of the test suite to each
+ * one: a successful GET, a valid ETag, the ldp:Resource Link type header,
+ * an explicit rdf:type and no rdf:Bag, rdf:Seq or rdf:List in containers.
+ * Failed checks are streamed to a {@link CrawlReport}.
+ *
+ * <p>
+ * With a {@link CrawlIndex} from an earlier crawl, resources are revisited
+ * with If-None-Match. Resources that are not modified keep their previous
+ * findings, and the subtree below an unchanged container is not fetched at
+ * all, so a recrawl costs roughly what changed since. This relies on the
+ * server changing a container's ETag whenever its containment changes;
+ * changes to a member that leave its container's ETag alone are only seen
+ * after deleting the index.
+ * </p>
+ *
+ * <p>
+ * Resources are fetched by a fixed number of worker threads from a shared
+ * queue. Visited resources are remembered as 64-bit hashes, so only the
+ * queue of resources still to fetch grows with the size of the server.
+ * Resources on other hosts are not followed.
+ * </p>
+ */
+public class LdpCrawler {
+
+	public static final String MUST = "MUST";
+	public static final String SHOULD = "SHOULD";
+
+	private final String root;
+	private final int threads;
+	private final long limit;
+	private final String authorization;
+	private final CrawlReport report;
+	private final CrawlIndex index;
+
+	private final Deque<String> queue = new ArrayDeque<>();
+	private final LongHashSet visited = new LongHashSet();
+	private long dequeued;
+	private int active;
+
+	private ResourceValidator validator;
+
+	/**
+	 * @param root
+	 *            the container to start from
+	 * @param threads
+	 *            the number of concurrent requests
+	 * @param limit
+	 *            the maximum number of resources to check, or 0 for no limit
+	 * @param authorization
+	 *            the Authorization header to send, or null
+	 * @param report
+	 *            the report to write findings to
+	 * @param index
+	 *            the index of an earlier crawl to revisit incrementally and
+	 *            to update, or null to check everything
+	 */
+	public LdpCrawler(String root, int threads, long limit, String authorization, CrawlReport report, CrawlIndex index) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("ERROR: crawl threads must be at least 1");
+		}
+		this.root = root;
+		this.threads = threads;
+		this.limit = limit;
+		this.authorization = authorization;
+		this.report = report;
+		this.index = index;
+	}
+
+	/**
+	 * Crawls until every reachable resource has been checked or the limit
+	 * is reached.
+	 *
+	 * @return the time taken in milliseconds
+	 */
+	public long crawl() throws InterruptedException, IOException {
+		long start = System.nanoTime();
+		enqueue(root);
+
+		validator = new ResourceValidator(root, threads, authorization);
+		try {
+			List<Thread> workers = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				Thread worker = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						for (String uri; (uri = next()) != null; ) {
+							try {
+								check(uri);
+							} catch (Exception e) {
+								report.error(uri, e.toString());
+							} finally {
+								done();
+							}
+						}
+					}
+				}, "ldp-crawler-" + i);
+				worker.start();
+				workers.add(worker);
+			}
+			for (Thread worker : workers) {
+				worker.join();
+			}
+		} finally {
+			validator.close();
+		}
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	/**
+	 * Takes the next resource from the queue, waiting while other workers
+	 * may still discover more.
+	 *
+	 * @return the resource, or null when the crawl is finished
+	 */
+	private synchronized String next() {
+		while (true) {
+			if (limit > 0 && dequeued >= limit) {
+				return null;
+			}
+			if (!queue.isEmpty()) {
+				dequeued++;
+				active++;
+				return queue.poll();
+			}
+			if (active == 0) {
+				return null;
+			}
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+	}
+
+	private synchronized void done() {
+		active--;
+		notifyAll();
+	}
+
+	private synchronized void enqueue(String uri) {
+		if (visited.add(LongHashSet.hash(uri))) {
+			queue.add(uri);
+			notifyAll();
+		}
+	}
+
+	private synchronized boolean markVisited(String uri) {
+		return visited.add(LongHashSet.hash(uri));
+	}
+
+	private void check(String uri) throws IOException {
+		CrawlIndex.Entry previous = index != null ? index.getPrevious(uri) : null;
+		ResourceValidator.Result result = validator.validate(uri, previous != null ? previous.getEtag() : null, 0);
+		if (result.notModified) {
+			carryForward(uri, previous);
+			return;
+		}
+
+		report.resourceChecked();
+		for (JsonObject finding : result.findings) {
+			report.finding(uri, finding, false);
+		}
+		if (index != null) {
+			index.put(uri, new CrawlIndex.Entry(result.etag, result.findings, result.children));
+		}
+		for (String child : result.children) {
+			enqueue(child);
+		}
+	}
+
+	/**
+	 * Reuses the previous findings for a resource that has not changed. For
+	 * an unchanged container the whole subtree known from the previous crawl
+	 * is reused without fetching it; only contained resources missing from
+	 * the index are queued.
+	 */
+	private void carryForward(String uri, CrawlIndex.Entry entry) {
+		Deque<String> pending = new ArrayDeque<>();
+		Deque<CrawlIndex.Entry> entries = new ArrayDeque<>();
+		pending.push(uri);
+		entries.push(entry);
+		while (!pending.isEmpty()) {
+			String next = pending.pop();
+			CrawlIndex.Entry known = entries.pop();
+			report.resourceUnchanged();
+			for (JsonObject finding : known.getFindings()) {
+				report.finding(next, finding, true);
+			}
+			index.put(next, known);
+
+			for (String child : known.getChildren()) {
+				if (!markVisited(child)) {
+					continue;
+				}
+				CrawlIndex.Entry childEntry = index.getPrevious(child);
+				if (childEntry == null) {
+					scheduleVisited(child);
+				} else {
+					pending.push(child);
+					entries.push(childEntry);
+				}
+			}
+		}
+	}
+
+	private synchronized void scheduleVisited(String uri) {
+		queue.add(uri);
+		notifyAll();
+	}
+
+}
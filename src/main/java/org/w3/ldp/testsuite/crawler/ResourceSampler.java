@@ -0,0 +1,311 @@
+package org.w3.ldp.testsuite.crawler;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.atlas.json.JsonObject;
+import org.w3.ldp.testsuite.annotations.SpecTest;
+import org.w3.ldp.testsuite.test.CommonContainerTest;
+import org.w3.ldp.testsuite.test.CommonResourceTest;
+import org.w3.ldp.testsuite.test.RdfSourceTest;
+
+import static org.w3.ldp.testsuite.crawler.ResourceValidator.ETAG_CHECK;
+import static org.w3.ldp.testsuite.crawler.ResourceValidator.GET;
+import static org.w3.ldp.testsuite.crawler.ResourceValidator.LINK_TYPE;
+import static org.w3.ldp.testsuite.crawler.ResourceValidator.NO_BAG_SEQ_LIST;
+import static org.w3.ldp.testsuite.crawler.ResourceValidator.RDF_TYPE;
+import static org.w3.ldp.testsuite.crawler.ResourceValidator.TURTLE;
+
+/**
+ * Estimates how many resources of a server too large to crawl pass each
+ * check, from a random sample of them. Every worker thread takes random
+ * walks down the containment tree from the root container, choosing a
+ * contained resource uniformly at each step and starting over at the root
+ * when it reaches a resource without members. Each distinct resource on
+ * the way is checked once, until the sample is complete or the time budget
+ * is spent.
+ *
+ * <p>
+ * The result is a pass rate for each check with a 95% Wilson score
+ * interval, labelled with the specification requirement of the test the
+ * check comes from. A random walk visits the members of small containers
+ * more often than those of large ones, so the estimate describes the
+ * server's resources as reached through its containers rather than a
+ * uniform sample; for a server that behaves the same in every container
+ * the two agree.
+ * </p>
+ */
+public class ResourceSampler {
+
+	/** z for a 95% confidence interval. */
+	private static final double Z = 1.96;
+
+	/** Walk steps in a row without a new resource after which a worker gives up. */
+	private static final int MAX_STALE_STEPS = 1000;
+
+	/** The tests each check comes from, for the specification reference. */
+	private static final Map<String, Method> SPEC_TESTS = new LinkedHashMap<>();
+
+	static {
+		SPEC_TESTS.put(GET, testMethod(CommonResourceTest.class, "testGetResource"));
+		SPEC_TESTS.put(ETAG_CHECK, testMethod(CommonResourceTest.class, "testETagHeadersGet"));
+		SPEC_TESTS.put(LINK_TYPE, testMethod(CommonResourceTest.class, "testLdpLinkHeader"));
+		SPEC_TESTS.put(TURTLE, testMethod(RdfSourceTest.class, "testGetResourceAcceptTurtle"));
+		SPEC_TESTS.put(RDF_TYPE, testMethod(RdfSourceTest.class, "testContainsRdfType"));
+		SPEC_TESTS.put(NO_BAG_SEQ_LIST, testMethod(CommonContainerTest.class, "testNoRdfBagSeqOrList"));
+	}
+
+	private final String root;
+	private final int threads;
+	private final int size;
+	private final long budgetMillis;
+	private final long seed;
+	private final String authorization;
+	private final CrawlReport report;
+
+	private final Set<String> sampled = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final Map<String, List<String>> children = new ConcurrentHashMap<>();
+	private final AtomicInteger remaining = new AtomicInteger();
+
+	/** Per check: resources it applied to and resources that passed. */
+	private final Map<String, long[]> counts = new LinkedHashMap<>();
+
+	private volatile long deadline;
+	private volatile boolean stopped;
+	private ResourceValidator validator;
+
+	/**
+	 * @param root
+	 *            the container to start from
+	 * @param threads
+	 *            the number of concurrent walks
+	 * @param size
+	 *            the number of resources to sample
+	 * @param budgetMillis
+	 *            the time after which sampling stops, complete or not
+	 * @param seed
+	 *            the seed for choosing resources
+	 * @param authorization
+	 *            the Authorization header to send, or null
+	 * @param report
+	 *            the report to write findings and pass rates to
+	 */
+	public ResourceSampler(String root, int threads, int size, long budgetMillis, long seed,
+			String authorization, CrawlReport report) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("ERROR: crawl threads must be at least 1");
+		}
+		if (size < 1) {
+			throw new IllegalArgumentException("ERROR: sample size must be at least 1");
+		}
+		if (budgetMillis < 1) {
+			throw new IllegalArgumentException("ERROR: sample budget must be positive");
+		}
+		this.root = root;
+		this.threads = threads;
+		this.size = size;
+		this.budgetMillis = budgetMillis;
+		this.seed = seed;
+		this.authorization = authorization;
+		this.report = report;
+		for (String check : SPEC_TESTS.keySet()) {
+			counts.put(check, new long[2]);
+		}
+	}
+
+	/**
+	 * Samples until the sample is complete, the reachable resources are
+	 * exhausted or the time budget is spent, then writes the pass rates to
+	 * the report. Requests still running at the end of the budget are
+	 * aborted and not counted.
+	 *
+	 * @return the time taken in milliseconds
+	 */
+	public long sample() throws InterruptedException, IOException {
+		long start = System.nanoTime();
+		deadline = start + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+		remaining.set(size);
+
+		validator = new ResourceValidator(root, threads, authorization);
+		List<Thread> walkers = new ArrayList<>();
+		try {
+			for (int i = 0; i < threads; i++) {
+				final Random random = new Random(seed + i);
+				Thread walker = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						walk(random);
+					}
+				}, "ldp-sampler-" + i);
+				walker.setDaemon(true);
+				walker.start();
+				walkers.add(walker);
+			}
+			for (Thread walker : walkers) {
+				long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (left > 0) {
+					walker.join(left);
+				}
+			}
+		} finally {
+			stopped = true;
+			// aborts requests still in flight
+			validator.close();
+		}
+		for (Thread walker : walkers) {
+			walker.join();
+		}
+
+		for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+			long applicable = entry.getValue()[0];
+			long passed = entry.getValue()[1];
+			double[] interval = wilson(passed, applicable);
+			report.passRate(entry.getKey(), getSpecRef(entry.getKey()), passed, applicable, interval[0], interval[1]);
+		}
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	/**
+	 * @return for each check, the resources it applied to and the resources
+	 *         that passed
+	 */
+	public synchronized Map<String, long[]> getCounts() {
+		Map<String, long[]> copy = new LinkedHashMap<>();
+		for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+			copy.put(entry.getKey(), entry.getValue().clone());
+		}
+		return copy;
+	}
+
+	/**
+	 * @param check
+	 *            the name of a check
+	 * @return the specification requirement the check's test covers, or
+	 *         null if unknown
+	 */
+	public static String getSpecRef(String check) {
+		Method method = SPEC_TESTS.get(check);
+		if (method == null) {
+			return null;
+		}
+		SpecTest spec = method.getAnnotation(SpecTest.class);
+		return spec != null ? spec.specRefUri() : null;
+	}
+
+	/**
+	 * Computes the Wilson score interval for a binomial proportion, which
+	 * unlike the normal approximation stays within [0, 1] and behaves for
+	 * pass rates close to 100%.
+	 *
+	 * @param passed
+	 *            successes
+	 * @param total
+	 *            trials
+	 * @return the lower and upper bounds, or [0, 1] for no trials
+	 */
+	public static double[] wilson(long passed, long total) {
+		if (total == 0) {
+			return new double[] { 0, 1 };
+		}
+		double p = (double) passed / total;
+		double z2 = Z * Z;
+		double denominator = 1 + z2 / total;
+		double center = (p + z2 / (2 * total)) / denominator;
+		double half = Z * Math.sqrt(p * (1 - p) / total + z2 / (4.0 * total * total)) / denominator;
+		return new double[] { Math.max(0, center - half), Math.min(1, center + half) };
+	}
+
+	private void walk(Random random) {
+		String current = root;
+		int stale = 0;
+		while (!stopped && remaining.get() > 0) {
+			if (sampled.add(current)) {
+				if (remaining.getAndDecrement() <= 0) {
+					return;
+				}
+				stale = 0;
+				check(current);
+			}
+
+			List<String> next = children.get(current);
+			if (next == null) {
+				// another walker is still checking it
+				pause();
+				continue;
+			}
+			if (++stale >= MAX_STALE_STEPS) {
+				return;
+			}
+			current = next.isEmpty() ? root : next.get(random.nextInt(next.size()));
+		}
+	}
+
+	private void pause() {
+		try {
+			Thread.sleep(10);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			stopped = true;
+		}
+	}
+
+	private void check(String uri) {
+		int timeout = (int) TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+		if (timeout <= 0) {
+			stopped = true;
+			return;
+		}
+
+		ResourceValidator.Result result;
+		try {
+			result = validator.validate(uri, null, timeout);
+		} catch (Exception e) {
+			if (!stopped) {
+				report.error(uri, e.toString());
+			}
+			children.put(uri, Collections.<String>emptyList());
+			return;
+		}
+		children.put(uri, result.children);
+		if (stopped) {
+			return;
+		}
+
+		report.resourceChecked();
+		Set<String> failed = new HashSet<>();
+		for (JsonObject finding : result.findings) {
+			failed.add(finding.get("check").getAsString().value());
+			report.finding(uri, finding, false);
+		}
+		synchronized (this) {
+			for (String check : result.checks) {
+				long[] count = counts.get(check);
+				count[0]++;
+				if (!failed.contains(check)) {
+					count[1]++;
+				}
+			}
+		}
+	}
+
+	private static Method testMethod(Class<?> testClass, String name) {
+		for (Method method : testClass.getMethods()) {
+			if (method.getName().equals(name)) {
+				return method;
+			}
+		}
+		throw new IllegalStateException("No test " + testClass.getSimpleName() + "." + name);
+	}
+
+}
@@ -0,0 +1,275 @@
+package org.w3.ldp.testsuite.crawler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.ws.rs.core.Link;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.jena.atlas.json.JsonObject;
+import org.jboss.resteasy.plugins.delegates.LinkDelegate;
+import org.w3.ldp.testsuite.filter.RequestLimiter;
+import org.w3.ldp.testsuite.http.LdpHttpClientFactory;
+import org.w3.ldp.testsuite.http.RequestWatchdog;
+import org.w3.ldp.testsuite.http.UnixSocketTransport;
+import org.w3.ldp.testsuite.matcher.HeaderMatchers;
+import org.w3.ldp.testsuite.test.LdpTest;
+import org.w3.ldp.testsuite.vocab.LDP;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+import static org.w3.ldp.testsuite.crawler.CrawlReport.newFinding;
+import static org.w3.ldp.testsuite.crawler.LdpCrawler.MUST;
+import static org.w3.ldp.testsuite.crawler.LdpCrawler.SHOULD;
+import static org.w3.ldp.testsuite.http.HttpHeaders.ACCEPT;
+import static org.w3.ldp.testsuite.http.HttpHeaders.AUTHORIZATION;
+import static org.w3.ldp.testsuite.http.HttpHeaders.ETAG;
+import static org.w3.ldp.testsuite.http.HttpHeaders.IF_NONE_MATCH;
+import static org.w3.ldp.testsuite.http.HttpHeaders.LINK;
+import static org.w3.ldp.testsuite.http.HttpHeaders.LINK_REL_TYPE;
+import static org.w3.ldp.testsuite.http.HttpHeaders.PREFER;
+import static org.w3.ldp.testsuite.http.LdpPreferences.PREFER_CONTAINMENT;
+import static org.w3.ldp.testsuite.http.MediaTypes.TEXT_TURTLE;
+
+/**
+ * Fetches one resource and applies the read-only checks of the test suite
+ * to it: a successful GET, a valid ETag, the ldp:Resource Link type header,
+ * an explicit rdf:type and no rdf:Bag, rdf:Seq or rdf:List in containers.
+ * Shared by the crawler and the sampler.
+ */
+class ResourceValidator {
+
+	// Names of the checks, as used in reports.
+	static final String GET = "get";
+	static final String ETAG_CHECK = "etag";
+	static final String LINK_TYPE = "linkTypeHeader";
+	static final String TURTLE = "turtle";
+	static final String RDF_TYPE = "rdfType";
+	static final String NO_BAG_SEQ_LIST = "noRdfBagSeqOrList";
+
+	/** What was learned from one GET. */
+	static class Result {
+
+		boolean notModified;
+		String etag;
+		final List<JsonObject> findings = new ArrayList<>();
+		final List<String> children = new ArrayList<>();
+		/** The checks that applied to the resource, failed or not. */
+		final Set<String> checks = new LinkedHashSet<>();
+
+		private void check(String check) {
+			checks.add(check);
+		}
+
+		private void fail(String check, String level, String message) {
+			checks.add(check);
+			findings.add(newFinding(check, level, message));
+		}
+	}
+
+	private final CloseableHttpClient client;
+	private final String origin;
+	private final String authorization;
+
+	/**
+	 * @param root
+	 *            the resource the crawl starts from; only resources on the
+	 *            same host are followed
+	 * @param connections
+	 *            the number of concurrent connections
+	 * @param authorization
+	 *            the Authorization header to send, or null
+	 */
+	ResourceValidator(String root, int connections, String authorization) {
+		URI uri = URI.create(root);
+		this.origin = uri.getScheme() + "://" + uri.getRawAuthority() + "/";
+		this.authorization = authorization;
+
+		HttpClientBuilder builder = HttpClients.custom()
+				.setMaxConnPerRoute(connections)
+				.setMaxConnTotal(connections);
+		if (StringUtils.startsWith(root, "https:")) { // allow self-signed certificates for development servers
+			builder.setSSLContext(LdpHttpClientFactory.relaxedSSLContext());
+			builder.setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE);
+		}
+		if (RequestWatchdog.getActive() != null) {
+			builder.setDefaultRequestConfig(RequestWatchdog.getActive().getRequestConfig());
+		}
+		if (UnixSocketTransport.getActive() != null) {
+			UnixSocketTransport.getActive().configure(builder, connections);
+		}
+		builder.setRequestExecutor(new RequestLimiter.LimitedRequestExecutor());
+		this.client = builder.build();
+	}
+
+	void close() throws IOException {
+		client.close();
+	}
+
+	/**
+	 * GETs a resource and checks it.
+	 *
+	 * @param uri
+	 *            the resource
+	 * @param ifNoneMatch
+	 *            the entity tag for If-None-Match, or null
+	 * @param timeoutMillis
+	 *            connect and read timeout, or 0 for none
+	 * @return the result; only {@link Result#notModified} is set if the
+	 *         server answered 304
+	 */
+	Result validate(String uri, String ifNoneMatch, int timeoutMillis) throws IOException {
+		HttpGet get = new HttpGet(uri);
+		get.setHeader(ACCEPT, TEXT_TURTLE);
+		get.setHeader(PREFER, LdpTest.include(PREFER_CONTAINMENT));
+		if (authorization != null) {
+			get.setHeader(AUTHORIZATION, authorization);
+		}
+		if (ifNoneMatch != null) {
+			get.setHeader(IF_NONE_MATCH, ifNoneMatch);
+		}
+		if (timeoutMillis > 0) {
+			get.setConfig(RequestConfig.custom()
+					.setConnectTimeout(timeoutMillis)
+					.setConnectionRequestTimeout(timeoutMillis)
+					.setSocketTimeout(timeoutMillis)
+					.build());
+		}
+
+		Result result = new Result();
+		try (CloseableHttpResponse response = client.execute(get)) {
+			int status = response.getStatusLine().getStatusCode();
+			if (ifNoneMatch != null && status == HttpStatus.SC_NOT_MODIFIED) {
+				result.notModified = true;
+				return result;
+			}
+			check(uri, get, response, result);
+		}
+		return result;
+	}
+
+	private void check(String uri, HttpGet get, CloseableHttpResponse response, Result result) {
+		// testGetResource
+		int status = response.getStatusLine().getStatusCode();
+		if (status < 200 || status >= 300) {
+			result.fail(GET, MUST, "GET returned " + response.getStatusLine());
+			return;
+		}
+		result.check(GET);
+
+		// testETagHeadersGet
+		Header etag = response.getFirstHeader(ETAG);
+		if (etag == null) {
+			result.fail(ETAG_CHECK, MUST, "No ETag header");
+		} else if (!HeaderMatchers.isValidEntityTag().matches(etag.getValue())) {
+			result.fail(ETAG_CHECK, MUST, "Invalid entity tag " + etag.getValue());
+		} else {
+			result.check(ETAG_CHECK);
+			result.etag = etag.getValue();
+		}
+
+		// testLdpLinkHeader
+		List<String> types = linkTypes(uri, response);
+		if (!types.contains(LDP.Resource.stringValue())) {
+			result.fail(LINK_TYPE, MUST, "No Link header with rel=\"type\" <" + LDP.Resource.stringValue() + ">");
+		} else {
+			result.check(LINK_TYPE);
+		}
+
+		HttpEntity entity = response.getEntity();
+		Header contentType = entity != null ? entity.getContentType() : null;
+		if (contentType == null
+				|| !HeaderMatchers.isTurtleCompatibleContentType().matches(contentType.getValue())) {
+			// An LDP-NR (or at least not Turtle). Closing the response
+			// without reading it avoids downloading large binaries.
+			get.abort();
+			return;
+		}
+
+		// testGetResourceAcceptTurtle
+		Model model = ModelFactory.createDefaultModel();
+		try (InputStream in = entity.getContent()) {
+			model.read(in, uri, "TURTLE");
+		} catch (Exception e) {
+			result.fail(TURTLE, MUST, "Unable to parse Turtle: " + e.getMessage());
+			return;
+		}
+		result.check(TURTLE);
+		checkRdfSource(uri, model, types, result);
+	}
+
+	private void checkRdfSource(String uri, Model model, List<String> types, Result result) {
+		Resource resource = model.getResource(uri);
+
+		// testContainsRdfType
+		if (!resource.hasProperty(RDF.type)) {
+			result.fail(RDF_TYPE, SHOULD, "LDP-RS representation has no explicit rdf:type");
+		} else {
+			result.check(RDF_TYPE);
+		}
+
+		List<RDFNode> contained = model.listObjectsOfProperty(resource, model.createProperty(LDP.contains.stringValue())).toList();
+		if (contained.isEmpty() && !isContainer(types)) {
+			return;
+		}
+
+		// testNoRdfBagSeqOrList
+		if (model.listResourcesWithProperty(RDF.type, RDF.Bag).hasNext()
+				|| model.listResourcesWithProperty(RDF.type, RDF.Seq).hasNext()
+				|| model.listResourcesWithProperty(RDF.type, RDF.List).hasNext()) {
+			result.fail(NO_BAG_SEQ_LIST, SHOULD, "LDPC representation uses rdf:Bag, rdf:Seq or rdf:List");
+		} else {
+			result.check(NO_BAG_SEQ_LIST);
+		}
+
+		for (RDFNode child : contained) {
+			if (child.isURIResource() && child.asResource().getURI().startsWith(origin)) {
+				result.children.add(child.asResource().getURI());
+			}
+		}
+	}
+
+	private static boolean isContainer(List<String> types) {
+		return types.contains(LDP.Container.stringValue())
+				|| types.contains(LDP.BasicContainer.stringValue())
+				|| types.contains(LDP.DirectContainer.stringValue())
+				|| types.contains(LDP.IndirectContainer.stringValue());
+	}
+
+	/**
+	 * @return the targets of all rel="type" links about the request URI
+	 */
+	private static List<String> linkTypes(String uri, CloseableHttpResponse response) {
+		List<String> types = new ArrayList<>();
+		for (Header header : response.getHeaders(LINK)) {
+			for (String s : LdpTest.splitLinks(header.getValue())) {
+				Link link = new LinkDelegate().fromString(s);
+				String anchor = link.getParams().get("anchor");
+				if (LINK_REL_TYPE.equals(link.getRel()) && (anchor == null || anchor.equals(uri))) {
+					types.add(LdpTest.resolveIfRelative(uri, link.getUri().toString()));
+				}
+			}
+		}
+		return types;
+	}
+
+}
@@ -0,0 +1,137 @@
+package org.w3.ldp.testsuite.filter;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.w3.ldp.testsuite.reporter.LatencyHistogram;
+
+import com.jayway.restassured.filter.Filter;
+import com.jayway.restassured.filter.FilterContext;
+import com.jayway.restassured.response.Response;
+import com.jayway.restassured.specification.FilterableRequestSpecification;
+import com.jayway.restassured.specification.FilterableResponseSpecification;
+
+/**
+ * Records the latency and outcome of every request by HTTP method, in
+ * windows that are closed with {@link #nextWindow()}. Used by soak runs to
+ * compare the server's behaviour over time, and by comparisons of two
+ * servers, which also keep every latency with {@link #setKeepSamples(boolean)}.
+ */
+public class LatencyFilter implements Filter {
+
+	/** The statistics of one HTTP method in one window. */
+	public static class Operation {
+
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private long serverErrors;
+		private long failures;
+		private long[] samples;
+		private int sampleCount;
+
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+
+		/**
+		 * @return every latency recorded in milliseconds, or none unless
+		 *         samples are kept
+		 */
+		public synchronized long[] getSamples() {
+			return samples == null ? new long[0] : Arrays.copyOf(samples, sampleCount);
+		}
+
+		private synchronized void addSample(long millis) {
+			if (samples == null) {
+				samples = new long[64];
+			} else if (sampleCount == samples.length) {
+				samples = Arrays.copyOf(samples, sampleCount * 2);
+			}
+			samples[sampleCount++] = millis;
+		}
+
+		/**
+		 * @return responses with a 5xx status
+		 */
+		public synchronized long getServerErrors() {
+			return serverErrors;
+		}
+
+		/**
+		 * @return requests that got no response at all
+		 */
+		public synchronized long getFailures() {
+			return failures;
+		}
+	}
+
+	private static final LatencyFilter INSTANCE = new LatencyFilter();
+
+	private Map<String, Operation> window = new LinkedHashMap<>();
+
+	private volatile boolean keepSamples;
+
+	/**
+	 * @return the filter shared by all tests in the suite
+	 */
+	public static LatencyFilter getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+		Operation operation = getOperation(requestSpec.getMethod().name());
+		long start = System.nanoTime();
+		Response response;
+		try {
+			response = ctx.next(requestSpec, responseSpec);
+		} catch (RuntimeException e) {
+			synchronized (operation) {
+				operation.failures++;
+			}
+			throw e;
+		}
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		operation.latency.record(millis);
+		if (keepSamples) {
+			operation.addSample(millis);
+		}
+		if (response.getStatusCode() >= 500) {
+			synchronized (operation) {
+				operation.serverErrors++;
+			}
+		}
+		return response;
+	}
+
+	/**
+	 * @param keepSamples
+	 *            true to keep every latency as well as the histogram, for
+	 *            tests that need the exact values
+	 */
+	public void setKeepSamples(boolean keepSamples) {
+		this.keepSamples = keepSamples;
+	}
+
+	/**
+	 * Closes the current window and starts a new one.
+	 *
+	 * @return the statistics of the closed window by HTTP method
+	 */
+	public synchronized Map<String, Operation> nextWindow() {
+		Map<String, Operation> closed = window;
+		window = new LinkedHashMap<>();
+		return closed;
+	}
+
+	private synchronized Operation getOperation(String method) {
+		Operation operation = window.get(method);
+		if (operation == null) {
+			operation = new Operation();
+			window.put(method, operation);
+		}
+		return operation;
+	}
+
+}
@@ -0,0 +1,464 @@
+package org.w3.ldp.testsuite.filter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import com.jayway.restassured.RestAssured;
+import com.jayway.restassured.filter.Filter;
+import com.jayway.restassured.filter.FilterContext;
+import com.jayway.restassured.response.Response;
+import com.jayway.restassured.specification.FilterableRequestSpecification;
+import com.jayway.restassured.specification.FilterableResponseSpecification;
+
+import static org.w3.ldp.testsuite.http.HttpHeaders.CONTENT_TYPE;
+import static org.w3.ldp.testsuite.http.HttpHeaders.RETRY_AFTER;
+
+/**
+ * Keeps the suite from overloading the server: holds every request back
+ * until it fits both a token bucket capped at a fixed rate
+ * ({@code --maxRate}) and a concurrency limit ({@code --maxConcurrency})
+ * that adapts to how the server copes.
+ *
+ * <p>
+ * The concurrency limit grows by one for every limit's worth of requests
+ * that completed while it was fully used (additive increase). It halves
+ * when the server answers 429 or 503 or a request fails, and shrinks by 10%
+ * when a response takes more than twice the server's latency without load,
+ * the fastest response of recent requests of the same operation
+ * (multiplicative decrease). An operation is a method and the media type of
+ * the request body, so a large upload is not compared with a HEAD. At most
+ * one decrease happens per round trip, so a burst of rejections counts
+ * once. A Retry-After header on a 429 or 503 response pauses all requests.
+ * </p>
+ *
+ * <p>
+ * Clients of the suite that do not use RestAssured, such as the crawler
+ * and the load tests, are held to the same limits. Blocking clients send
+ * their requests through a {@link LimitedRequestExecutor}; non-blocking
+ * clients call {@link #acquire()} before sending a request and
+ * {@link #release(long, HttpRequest, HttpResponse)} once it is answered.
+ * </p>
+ */
+public class RequestLimiter implements Filter {
+
+	private static final double DROP_DECREASE = 0.5;
+	private static final double LATENCY_DECREASE = 0.9;
+	private static final double LATENCY_TOLERANCE = 2;
+	/** Latency increases smaller than this are noise, not queuing. */
+	private static final long MIN_LATENCY_INCREASE_MILLIS = 20;
+	/** Requests of an operation over which its latency without load is the fastest one. */
+	private static final int BASELINE_WINDOW = 250;
+	private static final int INITIAL_CONCURRENCY = 4;
+	private static final long MAX_RETRY_AFTER_MILLIS = TimeUnit.MINUTES.toMillis(1);
+	private static final int MAX_CHANGES = 10000;
+
+	private static RequestLimiter active;
+
+	/** The latency without load of one operation. */
+	private static class Baseline {
+		long baselineMillis = Long.MAX_VALUE;
+		long windowMinMillis = Long.MAX_VALUE;
+		int windowCount;
+
+		/**
+		 * @return the latency without load before this response, or
+		 *         Long.MAX_VALUE if not known yet
+		 */
+		long record(long millis) {
+			long noLoadMillis = Math.min(baselineMillis, windowMinMillis);
+			windowMinMillis = Math.min(windowMinMillis, millis);
+			if (++windowCount == BASELINE_WINDOW) {
+				baselineMillis = windowMinMillis;
+				windowMinMillis = Long.MAX_VALUE;
+				windowCount = 0;
+			}
+			return noLoadMillis;
+		}
+	}
+
+	/** A new concurrency limit, for the reports. */
+	public static class Change {
+
+		private final long elapsedMillis;
+		private final int limit;
+		private final String reason;
+
+		Change(long elapsedMillis, int limit, String reason) {
+			this.elapsedMillis = elapsedMillis;
+			this.limit = limit;
+			this.reason = reason;
+		}
+
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+
+		public int getLimit() {
+			return limit;
+		}
+
+		public String getReason() {
+			return reason;
+		}
+	}
+
+	private final double maxRate;
+	private final int maxConcurrency;
+	private final long start = System.nanoTime();
+
+	private double tokens = 1;
+	private long refilled = start;
+	private long pausedUntil = start;
+
+	private double limit;
+	private int inFlight;
+	private long lastDecrease = start;
+	private final Map<String, Baseline> baselines = new HashMap<>();
+
+	private long requests;
+	private long throttled;
+	private long failures;
+	private long waitedNanos;
+	private int lowestLimit;
+	private int highestLimit;
+	private final List<Change> changes = new ArrayList<>();
+
+	/**
+	 * @param maxRate
+	 *            requests per second at most, or 0 for no cap
+	 * @param maxConcurrency
+	 *            concurrent requests at most, or 0 for no concurrency limit
+	 */
+	RequestLimiter(double maxRate, int maxConcurrency) {
+		this.maxRate = maxRate;
+		this.maxConcurrency = maxConcurrency;
+		this.limit = maxConcurrency > 0 ? Math.min(INITIAL_CONCURRENCY, maxConcurrency) : 0;
+		this.lowestLimit = this.highestLimit = (int) limit;
+		if (maxConcurrency > 0) {
+			changes.add(new Change(0, (int) limit, "start"));
+		}
+	}
+
+	/**
+	 * Limits every RestAssured request from now on. A limiter installed
+	 * before is replaced, in its place among the RestAssured filters, along
+	 * with the limits it learned.
+	 *
+	 * @param maxRate
+	 *            requests per second at most, or 0 for no cap
+	 * @param maxConcurrency
+	 *            concurrent requests at most, or 0 for no concurrency limit
+	 * @return the limiter
+	 */
+	public static synchronized RequestLimiter install(double maxRate, int maxConcurrency) {
+		RequestLimiter limiter = new RequestLimiter(maxRate, maxConcurrency);
+		List<Filter> filters = new ArrayList<>(RestAssured.filters());
+		int i = active != null ? filters.indexOf(active) : -1;
+		if (i >= 0) {
+			filters.set(i, limiter);
+		} else {
+			filters.add(limiter);
+		}
+		RestAssured.replaceFiltersWith(filters);
+		active = limiter;
+		return active;
+	}
+
+	/**
+	 * @return the limiter in use, or null if requests are not limited
+	 */
+	public static synchronized RequestLimiter getActive() {
+		return active;
+	}
+
+	@Override
+	public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+		String operation = operation(requestSpec.getMethod().name(), requestSpec.getContentType());
+		long requestStart = acquire();
+		Response response;
+		try {
+			response = ctx.next(requestSpec, responseSpec);
+		} catch (RuntimeException e) {
+			release(requestStart, operation, -1, null);
+			throw e;
+		}
+		release(requestStart, operation, response.getStatusCode(), response.getHeader(RETRY_AFTER));
+		return response;
+	}
+
+	/**
+	 * Waits until a request sent without RestAssured fits the limits. The
+	 * request counts toward the concurrency limit until it is released.
+	 *
+	 * @return the permit of the request, to release once it is answered
+	 * @see #release(long, HttpRequest, HttpResponse)
+	 */
+	public synchronized long acquire() {
+		long arrived = System.nanoTime();
+		boolean interrupted = false;
+		while (true) {
+			long now = System.nanoTime();
+			long waitMillis = 0;
+			if (now < pausedUntil) {
+				waitMillis = millisUntil(pausedUntil - now);
+			} else if (maxConcurrency > 0 && inFlight >= (int) limit) {
+				waitMillis = Long.MAX_VALUE;
+			} else if (maxRate > 0) {
+				tokens = Math.min(Math.max(1, maxRate), tokens + (now - refilled) * maxRate / TimeUnit.SECONDS.toNanos(1));
+				refilled = now;
+				if (tokens < 1) {
+					waitMillis = millisUntil((long) ((1 - tokens) * TimeUnit.SECONDS.toNanos(1) / maxRate));
+				} else {
+					tokens--;
+				}
+			}
+			if (waitMillis == 0) {
+				break;
+			}
+			try {
+				if (waitMillis == Long.MAX_VALUE) {
+					wait();
+				} else {
+					wait(waitMillis);
+				}
+			} catch (InterruptedException e) {
+				// let the request through rather than fail a test; keep the interrupt
+				interrupted = true;
+				break;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		inFlight++;
+		requests++;
+		long now = System.nanoTime();
+		waitedNanos += now - arrived;
+		return now;
+	}
+
+	/**
+	 * Lets the next request through once a request sent without RestAssured
+	 * is answered, and adapts the limits to how long it took.
+	 *
+	 * @param permit
+	 *            the permit from {@link #acquire()}
+	 * @param request
+	 *            the request
+	 * @param response
+	 *            the response, or null if the request failed
+	 */
+	public void release(long permit, HttpRequest request, HttpResponse response) {
+		Header contentType = request.getFirstHeader(CONTENT_TYPE);
+		if (request instanceof HttpEntityEnclosingRequest) {
+			HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+			if (entity != null && entity.getContentType() != null) {
+				contentType = entity.getContentType();
+			}
+		}
+		String operation = operation(request.getRequestLine().getMethod(), contentType != null ? contentType.getValue() : null);
+		if (response == null) {
+			release(permit, operation, -1, null);
+		} else {
+			Header retryAfter = response.getFirstHeader(RETRY_AFTER);
+			release(permit, operation, response.getStatusLine().getStatusCode(), retryAfter != null ? retryAfter.getValue() : null);
+		}
+	}
+
+	/**
+	 * @return the operation of a request, its method and the media type of
+	 *         its body, if any
+	 */
+	private static String operation(String method, String contentType) {
+		if (StringUtils.isBlank(contentType)) {
+			return method;
+		}
+		return method + " " + StringUtils.substringBefore(contentType, ";").trim().toLowerCase(Locale.ENGLISH);
+	}
+
+	private synchronized void release(long requestStart, String operation, int status, String retryAfter) {
+		inFlight--;
+		long now = System.nanoTime();
+		long millis = TimeUnit.NANOSECONDS.toMillis(now - requestStart);
+		boolean dropped = status < 0 || status == HttpStatus.SC_SERVICE_UNAVAILABLE || status == 429; // Too Many Requests
+		if (status < 0) {
+			failures++;
+		} else if (dropped) {
+			throttled++;
+			pause(now, retryAfter);
+		}
+
+		if (maxConcurrency > 0) {
+			if (dropped) {
+				decrease(requestStart, now, DROP_DECREASE, status < 0 ? "request failed" : "status " + status);
+			} else {
+				Baseline baseline = baselines.get(operation);
+				if (baseline == null) {
+					baseline = new Baseline();
+					baselines.put(operation, baseline);
+				}
+				long noLoadMillis = baseline.record(millis);
+				if (noLoadMillis != Long.MAX_VALUE && millis > LATENCY_TOLERANCE * noLoadMillis
+						&& millis > noLoadMillis + MIN_LATENCY_INCREASE_MILLIS) {
+					decrease(requestStart, now, LATENCY_DECREASE, "latency " + millis + " ms");
+				} else if (inFlight + 1 >= (int) limit && limit < maxConcurrency) {
+					int before = (int) limit;
+					limit = Math.min(maxConcurrency, limit + 1 / limit);
+					if ((int) limit != before) {
+						changed(now, "increase");
+					}
+				}
+			}
+		}
+		notifyAll();
+	}
+
+	private void decrease(long requestStart, long now, double factor, String reason) {
+		// requests sent before the last decrease saw the old limit
+		if (requestStart <= lastDecrease) {
+			return;
+		}
+		lastDecrease = now;
+		int before = (int) limit;
+		limit = Math.max(1, limit * factor);
+		if ((int) limit != before) {
+			changed(now, reason);
+		}
+	}
+
+	private void changed(long now, String reason) {
+		lowestLimit = Math.min(lowestLimit, (int) limit);
+		highestLimit = Math.max(highestLimit, (int) limit);
+		if (changes.size() < MAX_CHANGES) {
+			changes.add(new Change(TimeUnit.NANOSECONDS.toMillis(now - start), (int) limit, reason));
+		}
+	}
+
+	private void pause(long now, String retryAfter) {
+		if (retryAfter == null) {
+			return;
+		}
+		long millis;
+		try {
+			millis = TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+		} catch (NumberFormatException e) {
+			Date date = DateUtils.parseDate(retryAfter.trim());
+			if (date == null) {
+				return;
+			}
+			millis = date.getTime() - System.currentTimeMillis();
+		}
+		millis = Math.min(MAX_RETRY_AFTER_MILLIS, millis);
+		if (millis > 0) {
+			pausedUntil = Math.max(pausedUntil, now + TimeUnit.MILLISECONDS.toNanos(millis));
+		}
+	}
+
+	private static long millisUntil(long nanos) {
+		return Math.max(1, TimeUnit.NANOSECONDS.toMillis(nanos + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+	}
+
+	/**
+	 * @return requests per second at most, or 0 for no cap
+	 */
+	public double getMaxRate() {
+		return maxRate;
+	}
+
+	/**
+	 * @return the upper bound of the concurrency limit, or 0 for none
+	 */
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	public synchronized int getLowestLimit() {
+		return lowestLimit;
+	}
+
+	public synchronized int getHighestLimit() {
+		return highestLimit;
+	}
+
+	public synchronized long getRequests() {
+		return requests;
+	}
+
+	/**
+	 * @return responses with status 429 or 503
+	 */
+	public synchronized long getThrottled() {
+		return throttled;
+	}
+
+	/**
+	 * @return requests that got no response
+	 */
+	public synchronized long getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return the time requests spent held back, added up
+	 */
+	public synchronized long getWaitedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(waitedNanos);
+	}
+
+	/**
+	 * @return every change of the concurrency limit, the first 10000 of them
+	 */
+	public synchronized List<Change> getChanges() {
+		return Collections.unmodifiableList(new ArrayList<>(changes));
+	}
+
+	/**
+	 * Sends the requests of a blocking client made without RestAssured
+	 * within the limits of the active limiter, if there is one. A request
+	 * counts toward the concurrency limit until its response headers arrive.
+	 */
+	public static class LimitedRequestExecutor extends HttpRequestExecutor {
+
+		@Override
+		public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context)
+				throws IOException, HttpException {
+			RequestLimiter limiter = getActive();
+			if (limiter == null) {
+				return super.execute(request, conn, context);
+			}
+			long permit = limiter.acquire();
+			HttpResponse response = null;
+			try {
+				response = super.execute(request, conn, context);
+				return response;
+			} finally {
+				limiter.release(permit, request, response);
+			}
+		}
+	}
+
+}
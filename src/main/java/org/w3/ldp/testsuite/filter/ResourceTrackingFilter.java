@@ -0,0 +1,62 @@
+package org.w3.ldp.testsuite.filter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.http.HttpStatus;
+
+import com.jayway.restassured.filter.Filter;
+import com.jayway.restassured.filter.FilterContext;
+import com.jayway.restassured.http.Method;
+import com.jayway.restassured.response.Response;
+import com.jayway.restassured.specification.FilterableRequestSpecification;
+import com.jayway.restassured.specification.FilterableResponseSpecification;
+
+/**
+ * Remembers every resource successfully retrieved with GET during the run,
+ * so tests running at the end of the suite can revisit them.
+ */
+public class ResourceTrackingFilter implements Filter {
+
+	private static final ResourceTrackingFilter INSTANCE = new ResourceTrackingFilter();
+
+	private final Set<String> resources = new LinkedHashSet<>();
+
+	/**
+	 * @return the filter shared by all tests in the suite
+	 */
+	public static ResourceTrackingFilter getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+		Response response = ctx.next(requestSpec, responseSpec);
+		if (requestSpec.getMethod() == Method.GET && response.getStatusCode() == HttpStatus.SC_OK) {
+			add(requestSpec.getURI());
+		}
+		return response;
+	}
+
+	public synchronized void add(String uri) {
+		resources.add(uri);
+	}
+
+	/**
+	 * Forgets the resources retrieved so far, for instance before the suite
+	 * runs again.
+	 */
+	public synchronized void clear() {
+		resources.clear();
+	}
+
+	/**
+	 * @return the resources retrieved so far, in the order first seen
+	 */
+	public synchronized List<String> getResources() {
+		return new ArrayList<>(resources);
+	}
+
+}
@@ -0,0 +1,175 @@
+package org.w3.ldp.testsuite.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.w3.ldp.testsuite.reporter.RequestTimings;
+import org.w3.ldp.testsuite.reporter.TestMeasurements;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Sends identical GET and HEAD requests made at the same time once, so
+ * tests that read the same resources in parallel do not add to the load.
+ * Requests are identical when they have the same method, URI and headers,
+ * so requests with different Accept, Prefer or Authorization headers are
+ * never mixed up. The first request is sent and its response read into
+ * memory; the others wait for it and each get a copy with the same status,
+ * headers and body.
+ *
+ * <p>
+ * A request never shares the exchange of a request sent before a write
+ * (any request other than GET, HEAD or OPTIONS) of the suite's RestAssured
+ * clients completed, so a test reading what it has just written sees the
+ * write. A request with {@code Cache-Control: no-cache}, or with
+ * {@link LdpHttpClientFactory#COALESCE} set to false, is always sent on its
+ * own, for tests that need an independent exchange with the server.
+ * </p>
+ */
+@SuppressWarnings("deprecation")
+class CoalescingRequestDirector implements org.apache.http.client.RequestDirector {
+
+	private static final String NO_CACHE = "no-cache";
+
+	/** Shared by every client, since RestAssured creates one per request. */
+	private static final SingleFlight<SharedResponse> FLIGHTS = new SingleFlight<>();
+
+	/** Writes completed so far, part of the key of a flight. */
+	private static final AtomicLong WRITES = new AtomicLong();
+
+	/** A response read into memory, never changed once read. */
+	private static class SharedResponse {
+		final StatusLine statusLine;
+		final Header[] headers;
+		final byte[] body;
+		final Header contentType;
+		final Header contentEncoding;
+
+		SharedResponse(HttpResponse response) throws IOException {
+			statusLine = response.getStatusLine();
+			headers = response.getAllHeaders();
+			HttpEntity entity = response.getEntity();
+			body = entity != null ? EntityUtils.toByteArray(entity) : null;
+			contentType = entity != null ? entity.getContentType() : null;
+			contentEncoding = entity != null ? entity.getContentEncoding() : null;
+		}
+
+		HttpResponse copy() {
+			BasicHttpResponse response = new BasicHttpResponse(statusLine);
+			response.setHeaders(headers);
+			if (body != null) {
+				ByteArrayEntity entity = new ByteArrayEntity(body);
+				entity.setContentType(contentType);
+				entity.setContentEncoding(contentEncoding);
+				response.setEntity(entity);
+			}
+			return response;
+		}
+	}
+
+	private final org.apache.http.client.RequestDirector director;
+	private final boolean share;
+
+	/**
+	 * @param share
+	 *            false to send every request on its own, only keeping track
+	 *            of writes
+	 */
+	CoalescingRequestDirector(org.apache.http.client.RequestDirector director, boolean share) {
+		this.director = director;
+		this.share = share;
+	}
+
+	@Override
+	public HttpResponse execute(final HttpHost target, final HttpRequest request, final HttpContext context) throws HttpException, IOException {
+		if (!share || !isShareable(request)) {
+			try {
+				return director.execute(target, request, context);
+			} finally {
+				if (!isSafe(request)) {
+					WRITES.incrementAndGet();
+				}
+			}
+		}
+		final boolean[] sent = new boolean[1];
+		String key = WRITES.get() + " " + SingleFlight.key(target, request);
+		ListenableFuture<SharedResponse> response = FLIGHTS.share(key, new Callable<ListenableFuture<SharedResponse>>() {
+			@Override
+			public ListenableFuture<SharedResponse> call() throws Exception {
+				sent[0] = true;
+				return Futures.immediateFuture(new SharedResponse(director.execute(target, request, context)));
+			}
+		});
+		try {
+			SharedResponse shared = response.get();
+			if (!sent[0]) {
+				RequestTimings.setLastOperation(request.getRequestLine().getMethod().toUpperCase(Locale.ENGLISH));
+				record();
+			}
+			return shared.copy();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for an identical request");
+		} catch (ExecutionException e) {
+			Throwables.propagateIfPossible(e.getCause(), HttpException.class, IOException.class);
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private static boolean isSafe(HttpRequest request) {
+		String method = request.getRequestLine().getMethod().toUpperCase(Locale.ENGLISH);
+		return method.equals("GET") || method.equals("HEAD") || method.equals("OPTIONS");
+	}
+
+	/**
+	 * @return true for GET and HEAD requests without a body, unless they ask
+	 *         for an exchange of their own
+	 */
+	static boolean isShareable(HttpRequest request) {
+		String method = request.getRequestLine().getMethod().toUpperCase(Locale.ENGLISH);
+		if (!method.equals("GET") && !method.equals("HEAD")) {
+			return false;
+		}
+		if (request instanceof HttpEntityEnclosingRequest && ((HttpEntityEnclosingRequest) request).getEntity() != null) {
+			return false;
+		}
+		for (Header cacheControl : request.getHeaders(HttpHeaders.CACHE_CONTROL)) {
+			if (cacheControl.getValue().toLowerCase(Locale.ENGLISH).contains(NO_CACHE)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Counts the responses a test got from an identical request of another
+	 * caller.
+	 */
+	private static void record() {
+		ITestResult result = Reporter.getCurrentTestResult();
+		if (result != null) {
+			TestMeasurements.count(result, "shared responses");
+		}
+	}
+
+}
@@ -0,0 +1,173 @@
+package org.w3.ldp.testsuite.http;
+
+import java.io.IOException;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.util.Locale;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.ssl.SSLContexts;
+import org.apache.http.util.EntityUtils;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Sends the requests of {@link LdpAsyncClient} that ask for HTTP/2: h2 over
+ * TLS for https, and h2c with prior knowledge for http, as local servers
+ * speaking HTTP/2 in clear text expect. Concurrent
+ * requests to a server are multiplexed as streams of one connection.
+ *
+ * <p>
+ * Requests and responses are HttpClient 4 messages on both sides, as for
+ * HTTP/1.1, so callers need not know the protocol. The response status line
+ * carries the protocol version that was used.
+ * </p>
+ */
+class Http2Client {
+
+	private static final int IO_THREADS = 2;
+
+	private static final ProtocolVersion HTTP_2 = new ProtocolVersion("HTTP", 2, 0);
+
+	/** Connection specific headers, not allowed in HTTP/2 requests. */
+	private static final ImmutableSet<String> CONNECTION_HEADERS = ImmutableSet.of(
+			"connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade", "host", "content-length");
+
+	private static CloseableHttpAsyncClient client;
+
+	private Http2Client() {
+	}
+
+	/**
+	 * @see LdpAsyncClient#execute(HttpUriRequest, boolean)
+	 */
+	static ListenableFuture<HttpResponse> execute(HttpUriRequest request) {
+		final SettableFuture<HttpResponse> future = SettableFuture.create();
+		SimpleHttpRequest h2Request;
+		try {
+			h2Request = toHttp2(request);
+		} catch (IOException e) {
+			future.setException(e);
+			return future;
+		}
+		Future<SimpleHttpResponse> exchange = getClient().execute(h2Request, new FutureCallback<SimpleHttpResponse>() {
+			@Override
+			public void completed(SimpleHttpResponse response) {
+				future.set(fromHttp2(response));
+			}
+
+			@Override
+			public void failed(Exception e) {
+				future.setException(e);
+			}
+
+			@Override
+			public void cancelled() {
+				future.cancel(false);
+			}
+		});
+		LdpAsyncClient.abortIfCancelled(future, exchange);
+		return future;
+	}
+
+	private static SimpleHttpRequest toHttp2(HttpUriRequest request) throws IOException {
+		URI uri = request.getURI();
+		SimpleHttpRequest h2Request = new SimpleHttpRequest(request.getMethod(), uri);
+		for (Header header : request.getAllHeaders()) {
+			if (!CONNECTION_HEADERS.contains(header.getName().toLowerCase(Locale.ENGLISH))) {
+				h2Request.addHeader(header.getName(), header.getValue());
+			}
+		}
+		if (request instanceof HttpEntityEnclosingRequest) {
+			HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+			if (entity != null) {
+				h2Request.setBody(EntityUtils.toByteArray(entity),
+						entity.getContentType() != null ? ContentType.parse(entity.getContentType().getValue()) : null);
+			}
+		}
+		return h2Request;
+	}
+
+	private static HttpResponse fromHttp2(SimpleHttpResponse h2Response) {
+		ProtocolVersion version = h2Response.getVersion() != null
+				? new ProtocolVersion(h2Response.getVersion().getProtocol(), h2Response.getVersion().getMajor(), h2Response.getVersion().getMinor())
+				: HTTP_2;
+		BasicHttpResponse response = new BasicHttpResponse(new BasicStatusLine(version,
+				h2Response.getCode(), h2Response.getReasonPhrase()));
+		for (org.apache.hc.core5.http.Header header : h2Response.getHeaders()) {
+			response.addHeader(header.getName(), header.getValue());
+		}
+		byte[] body = h2Response.getBodyBytes();
+		if (body != null) {
+			ByteArrayEntity entity = new ByteArrayEntity(body);
+			if (h2Response.getContentType() != null) {
+				entity.setContentType(h2Response.getContentType().toString());
+			}
+			response.setEntity(entity);
+		}
+		return response;
+	}
+
+	private static synchronized CloseableHttpAsyncClient getClient() {
+		if (client == null) {
+			H2AsyncClientBuilder builder = HttpAsyncClients.customHttp2()
+					.setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(IO_THREADS).build())
+					.setThreadFactory(new ThreadFactoryBuilder().setNameFormat("ldp-h2-io-%d").setDaemon(true).build());
+			if (RequestWatchdog.getActive() != null) {
+				org.apache.http.client.config.RequestConfig timeouts = RequestWatchdog.getActive().getRequestConfig();
+				builder.setDefaultRequestConfig(RequestConfig.custom()
+						.setConnectTimeout(timeouts.getConnectTimeout(), TimeUnit.MILLISECONDS)
+						.setResponseTimeout(timeouts.getSocketTimeout(), TimeUnit.MILLISECONDS)
+						.build());
+			}
+			try { // allow self-signed certificates for development servers, as for RestAssured
+				builder.setTlsStrategy(ClientTlsStrategyBuilder.create()
+						.setSslContext(SSLContexts.custom().loadTrustMaterial(null, new TrustSelfSignedStrategy()).build())
+						.setHostnameVerifier(NoopHostnameVerifier.INSTANCE)
+						.build());
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+			client = builder.build();
+			client.start();
+		}
+		return client;
+	}
+
+	/**
+	 * @see LdpAsyncClient#shutdown()
+	 */
+	static synchronized void shutdown() {
+		if (client != null) {
+			client.close(CloseMode.GRACEFUL);
+			client = null;
+		}
+	}
+
+}
@@ -0,0 +1,224 @@
+package org.w3.ldp.testsuite.http;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.w3.ldp.testsuite.filter.RequestLimiter;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A non-blocking HTTP client for the tests that compare transports, such as
+ * {@link org.w3.ldp.testsuite.test.Http2Test}. A couple of I/O threads serve
+ * every request, so many requests can be in flight without a thread each.
+ * Requests sent this way do not go through RestAssured and its filters; only
+ * the limits of {@link RequestLimiter} and the connect and read timeouts
+ * apply.
+ *
+ * <p>
+ * Responses are buffered in memory before their future completes. Cancelling
+ * the future of a response aborts its exchange, closing the HTTP/1.1
+ * connection or resetting the HTTP/2 stream.
+ * </p>
+ *
+ * <p>
+ * Requests go over HTTP/1.1 on up to {@value #MAX_CONNECTIONS} connections,
+ * or multiplexed over HTTP/2 if asked for. The non-blocking client
+ * cannot connect to a Unix domain socket, so with a {@code unix:} server
+ * requests are sent by a blocking client on as many threads as connections
+ * instead.
+ * </p>
+ */
+public class LdpAsyncClient {
+
+	private static final int IO_THREADS = 2;
+	private static final int MAX_CONNECTIONS = 16;
+
+	private static CloseableHttpAsyncClient client;
+	private static CloseableHttpClient unixClient;
+	private static ListeningExecutorService unixSenders;
+
+	private LdpAsyncClient() {
+	}
+
+	/**
+	 * Sends a request, once the {@link RequestLimiter} lets it through.
+	 *
+	 * @param request
+	 *            the request, with any authorization already added
+	 * @param overHttp2
+	 *            true to send the request over HTTP/2, false for HTTP/1.1
+	 * @return the response, or the I/O error, once the whole body has
+	 *         arrived; cancelling the future aborts the request
+	 */
+	public static ListenableFuture<HttpResponse> execute(final HttpUriRequest request, boolean overHttp2) {
+		final RequestLimiter limiter = RequestLimiter.getActive();
+		final long permit = limiter != null ? limiter.acquire() : 0;
+		ListenableFuture<HttpResponse> response;
+		if (overHttp2) {
+			response = Http2Client.execute(request);
+		} else if (UnixSocketTransport.getActive() != null) {
+			response = sendOverUnixSocket(request);
+		} else {
+			response = send(request);
+		}
+		if (limiter != null) {
+			Futures.addCallback(response, new com.google.common.util.concurrent.FutureCallback<HttpResponse>() {
+				@Override
+				public void onSuccess(HttpResponse result) {
+					limiter.release(permit, request, result);
+				}
+
+				@Override
+				public void onFailure(Throwable t) {
+					limiter.release(permit, request, null);
+				}
+			});
+		}
+		return response;
+	}
+
+	private static ListenableFuture<HttpResponse> send(HttpUriRequest request) {
+		final SettableFuture<HttpResponse> future = SettableFuture.create();
+		Future<HttpResponse> exchange = getClient().execute(request, new FutureCallback<HttpResponse>() {
+			@Override
+			public void completed(HttpResponse response) {
+				future.set(response);
+			}
+
+			@Override
+			public void failed(Exception e) {
+				future.setException(e);
+			}
+
+			@Override
+			public void cancelled() {
+				future.cancel(false);
+			}
+		});
+		abortIfCancelled(future, exchange);
+		return future;
+	}
+
+	/**
+	 * Cancels an exchange when the future of its response is cancelled,
+	 * which closes its stream or connection.
+	 */
+	static void abortIfCancelled(final ListenableFuture<?> response, final Future<?> exchange) {
+		response.addListener(new Runnable() {
+			@Override
+			public void run() {
+				if (response.isCancelled()) {
+					exchange.cancel(true);
+				}
+			}
+		}, MoreExecutors.sameThreadExecutor());
+	}
+
+	private static ListenableFuture<HttpResponse> sendOverUnixSocket(final HttpUriRequest request) {
+		final CloseableHttpClient client = getUnixClient();
+		final ListenableFuture<HttpResponse> response = unixSenders.submit(new Callable<HttpResponse>() {
+			@Override
+			public HttpResponse call() throws IOException {
+				CloseableHttpResponse response = client.execute(request);
+				try {
+					if (response.getEntity() != null) {
+						response.setEntity(new BufferedHttpEntity(response.getEntity()));
+					}
+					return response;
+				} finally {
+					response.close();
+				}
+			}
+		});
+		// interrupting the sender does not stop a blocking read; aborting closes the connection
+		response.addListener(new Runnable() {
+			@Override
+			public void run() {
+				if (response.isCancelled()) {
+					request.abort();
+				}
+			}
+		}, MoreExecutors.sameThreadExecutor());
+		return response;
+	}
+
+	private static synchronized CloseableHttpAsyncClient getClient() {
+		if (client == null) {
+			HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+					.setDefaultIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(IO_THREADS).build())
+					.setMaxConnPerRoute(MAX_CONNECTIONS)
+					.setMaxConnTotal(MAX_CONNECTIONS)
+					.setThreadFactory(new ThreadFactoryBuilder().setNameFormat("ldp-async-io-%d").setDaemon(true).build());
+			if (RequestWatchdog.getActive() != null) {
+				builder.setDefaultRequestConfig(RequestWatchdog.getActive().getRequestConfig());
+			}
+			builder.setSSLContext(LdpHttpClientFactory.relaxedSSLContext());
+			builder.setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE);
+			client = builder.build();
+			client.start();
+		}
+		return client;
+	}
+
+	private static synchronized CloseableHttpClient getUnixClient() {
+		if (unixClient == null) {
+			HttpClientBuilder builder = HttpClients.custom();
+			UnixSocketTransport.getActive().configure(builder, MAX_CONNECTIONS);
+			if (RequestWatchdog.getActive() != null) {
+				builder.setDefaultRequestConfig(RequestWatchdog.getActive().getRequestConfig());
+			}
+			unixClient = builder.build();
+			unixSenders = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(MAX_CONNECTIONS,
+					new ThreadFactoryBuilder().setNameFormat("ldp-unix-%d").setDaemon(true).build()));
+		}
+		return unixClient;
+	}
+
+	/**
+	 * Closes the client and stops its threads, at the end of the suite. The
+	 * next request starts a new client.
+	 */
+	public static synchronized void shutdown() {
+		if (client != null) {
+			try {
+				client.close();
+			} catch (IOException e) {
+				// closing anyway
+			}
+			client = null;
+		}
+		Http2Client.shutdown();
+		if (unixClient != null) {
+			try {
+				unixClient.close();
+			} catch (IOException e) {
+				// closing anyway
+			}
+			unixClient = null;
+			unixSenders.shutdown();
+			unixSenders = null;
+		}
+	}
+
+}
@@ -0,0 +1,232 @@
+package org.w3.ldp.testsuite.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.ConnectionReuseStrategy;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.AuthenticationStrategy;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.HttpRequestRetryHandler;
+import org.apache.http.client.RedirectStrategy;
+import org.apache.http.client.UserTokenHandler;
+import org.apache.http.client.entity.DecompressingEntity;
+import org.apache.http.client.entity.InputStreamFactory;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoutePlanner;
+import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.apache.http.ssl.SSLContexts;
+import org.brotli.dec.BrotliInputStream;
+
+import com.jayway.restassured.config.HttpClientConfig;
+
+/**
+ * Creates the HTTP clients used by RestAssured for the test suite.
+ *
+ * <p>
+ * RestAssured decodes gzip and deflate itself. The clients created here also
+ * decode Brotli ({@code br}) responses, decompressing while the body is
+ * read, before RestAssured or {@link org.w3.ldp.testsuite.mapper.RdfObjectMapper}
+ * see it.
+ * </p>
+ *
+ * <p>
+ * With {@code --retries}, the clients also send requests again after
+ * transient errors as the active {@link RetryPolicy} allows. Retrying
+ * happens here rather than in a RestAssured filter because a filter cannot
+ * send its request twice. The connect and read timeouts and the watchdog of
+ * {@link RequestWatchdog} apply to them as well.
+ * </p>
+ *
+ * <p>
+ * GET and HEAD requests share one exchange with identical requests in
+ * flight, unless they opt out with the {@link #COALESCE} parameter; see
+ * {@link CoalescingRequestDirector}. With a {@code unix:} server, requests for it go over the socket of the
+ * active {@link UnixSocketTransport}.
+ * </p>
+ *
+ * <p>
+ * The phases of each request of a test are timed for
+ * {@link org.w3.ldp.testsuite.reporter.RequestTimings}; see
+ * {@link TimingRequestDirector}.
+ * </p>
+ */
+public class LdpHttpClientFactory implements HttpClientConfig.HttpClientFactory {
+
+	/**
+	 * The Brotli content coding, advertised in Accept-Encoding next to the
+	 * gzip and deflate codings RestAssured adds.
+	 */
+	public static final String BROTLI = "br";
+
+	/**
+	 * A client parameter, true by default, for whether a GET or HEAD request
+	 * may share the exchange of an identical request in flight. Set it to
+	 * false with {@code HttpClientConfig.setParam(String, Object)} for a
+	 * request that needs an exchange of its own, such as one whose timing is
+	 * measured.
+	 */
+	public static final String COALESCE = "ldp.coalesce";
+
+	private static final InputStreamFactory BROTLI_STREAM = new InputStreamFactory() {
+		@Override
+		public InputStream create(InputStream in) throws IOException {
+			return new BrotliInputStream(in);
+		}
+	};
+
+	private final boolean decodeBrotli;
+
+	public LdpHttpClientFactory() {
+		this(true);
+	}
+
+	/**
+	 * @param decodeBrotli
+	 *            false to leave Brotli encoded responses as sent, for tests
+	 *            that look at the encoded bytes
+	 */
+	public LdpHttpClientFactory(boolean decodeBrotli) {
+		this.decodeBrotli = decodeBrotli;
+	}
+
+	/**
+	 * Creates the SSL context of the clients made without RestAssured. Like
+	 * {@code RestAssured.useRelaxedHTTPSValidation()}, it accepts the
+	 * self-signed certificates of development servers. Use it together with
+	 * {@code NoopHostnameVerifier.INSTANCE}.
+	 *
+	 * @return the SSL context
+	 */
+	public static SSLContext relaxedSSLContext() {
+		try {
+			return SSLContexts.custom().loadTrustMaterial(null, new TrustSelfSignedStrategy()).build();
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public HttpClient createHttpClient() {
+		RetryPolicy policy = RetryPolicy.getActive();
+		RequestWatchdog watchdog = RequestWatchdog.getActive();
+		org.apache.http.impl.client.DefaultHttpClient client = new LdpHttpClient(policy, watchdog, UnixSocketTransport.getActive());
+		if (watchdog != null) {
+			watchdog.configure(client.getParams());
+		}
+		if (decodeBrotli) {
+			client.addResponseInterceptor(new BrotliResponseInterceptor());
+		}
+		return client;
+	}
+
+	/**
+	 * A client whose identical requests are coalesced unless asked not to, and whose
+	 * requests are timed, retried by a {@link RetryingRequestDirector} and watched by the
+	 * {@link RequestWatchdog}, each as configured.
+	 */
+	@SuppressWarnings("deprecation")
+	static class LdpHttpClient extends org.apache.http.impl.client.DefaultHttpClient {
+
+		private final RetryPolicy policy;
+		private final RequestWatchdog watchdog;
+		private final UnixSocketTransport unix;
+
+		/**
+		 * @param policy
+		 *            the retry policy, or null to send requests once
+		 * @param watchdog
+		 *            the watchdog, or null
+		 * @param unix
+		 *            the socket of the server, or null to connect over TCP
+		 */
+		LdpHttpClient(RetryPolicy policy, RequestWatchdog watchdog, UnixSocketTransport unix) {
+			this.policy = policy;
+			this.watchdog = watchdog;
+			this.unix = unix;
+		}
+
+		@Override
+		protected org.apache.http.conn.ClientConnectionManager createClientConnectionManager() {
+			if (unix != null) {
+				return unix.createConnectionManager();
+			}
+			return new org.apache.http.impl.conn.BasicClientConnectionManager(
+					org.apache.http.impl.conn.SchemeRegistryFactory.createDefault()) {
+				@Override
+				protected org.apache.http.conn.ClientConnectionOperator createConnectionOperator(
+						org.apache.http.conn.scheme.SchemeRegistry schemes) {
+					return new TimingRequestDirector.TimingConnectionOperator(schemes, SystemDefaultDnsResolver.INSTANCE);
+				}
+			};
+		}
+
+		@Override
+		protected HttpRequestExecutor createRequestExecutor() {
+			return new TimingRequestDirector.TimingRequestExecutor();
+		}
+
+		@Override
+		protected org.apache.http.client.RequestDirector createClientRequestDirector(final HttpRequestExecutor requestExec,
+				final org.apache.http.conn.ClientConnectionManager conman, final ConnectionReuseStrategy reustrat,
+				final ConnectionKeepAliveStrategy kastrat, final HttpRoutePlanner rouplan,
+				final HttpProcessor httpProcessor, final HttpRequestRetryHandler retryHandler,
+				final RedirectStrategy redirectStrategy, final AuthenticationStrategy targetAuthStrategy,
+				final AuthenticationStrategy proxyAuthStrategy, final UserTokenHandler userTokenHandler,
+				final org.apache.http.params.HttpParams params) {
+			// each attempt is watched and timed on its own, so a retry starts a fresh request
+			// timeout and the backoff before it is not counted as latency
+			RetryingRequestDirector.Directors attempts = new RetryingRequestDirector.Directors() {
+				@Override
+				public org.apache.http.client.RequestDirector create() {
+					org.apache.http.client.RequestDirector director = LdpHttpClient.super.createClientRequestDirector(requestExec, conman,
+							reustrat, kastrat, rouplan, httpProcessor, retryHandler, redirectStrategy,
+							targetAuthStrategy, proxyAuthStrategy, userTokenHandler, params);
+					return new TimingRequestDirector(watchdog != null ? watchdog.watch(director) : director);
+				}
+			};
+			org.apache.http.client.RequestDirector director = policy != null
+					? new RetryingRequestDirector(policy, attempts)
+					: attempts.create();
+			// coalesced outside the retries, so the callers sharing a request share its retries too
+			return new CoalescingRequestDirector(director, params.getBooleanParameter(COALESCE, true));
+		}
+	}
+
+	/**
+	 * Replaces a Brotli encoded response entity with one that decompresses
+	 * it as it is read. Runs before the RestAssured decoders, which ignore
+	 * responses without a Content-Encoding header.
+	 */
+	static class BrotliResponseInterceptor implements HttpResponseInterceptor {
+		@Override
+		public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
+			HttpEntity entity = response.getEntity();
+			if (entity == null) {
+				return;
+			}
+			Header encoding = entity.getContentEncoding();
+			if (encoding == null) {
+				encoding = response.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+			}
+			if (encoding != null && BROTLI.equalsIgnoreCase(encoding.getValue().trim())) {
+				response.setEntity(new DecompressingEntity(entity, BROTLI_STREAM));
+				response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+				response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+			}
+		}
+	}
+
+}
@@ -6,5 +6,6 @@ public interface MediaTypes {
 	public final static String APPLICATION_RDF_XML = "application/rdf+xml";
 	public final static String APPLICATION_JSON = "application/json";
 	public final static String APPLICATION_LD_JSON = "application/ld+json";
+	public final static String APPLICATION_OCTET_STREAM = "application/octet-stream";
 
 }
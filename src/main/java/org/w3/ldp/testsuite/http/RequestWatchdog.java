@@ -0,0 +1,353 @@
+package org.w3.ldp.testsuite.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.apache.http.protocol.HttpContext;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+/**
+ * Bounds how long requests and tests may take. Connect and read timeouts
+ * ({@code --connectTimeout}, {@code --readTimeout}) apply to every client of
+ * the suite, so a server that accepts a connection and never answers fails
+ * one test instead of hanging the run.
+ *
+ * <p>
+ * With a total request timeout ({@code --requestTimeout}) or a wall-clock
+ * budget per test ({@code --testTimeout}), a watchdog thread also checks the
+ * requests in flight. When one runs past either limit, the watchdog prints
+ * the requests in flight with their tests and the stacks of the threads
+ * sending them, then aborts the request so its test fails with the reason.
+ * A test already over its budget fails at its next request.
+ * </p>
+ *
+ * <p>
+ * A request is in flight until its response body has been read to the end or
+ * closed, so the request timeout covers a body that trickles in as well as
+ * the wait for the headers.
+ * </p>
+ */
+public class RequestWatchdog {
+
+	private static final long CHECK_MILLIS = 500;
+
+	private static RequestWatchdog active;
+
+	/** A request being sent. */
+	private static class InFlight {
+		final HttpRequest request;
+		final ITestResult test;
+		final Thread thread = Thread.currentThread();
+		final long start = System.currentTimeMillis();
+		volatile String abortReason;
+
+		InFlight(HttpRequest request, ITestResult test) {
+			this.request = request;
+			this.test = test;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s %s, %.1f s, %s", request.getRequestLine().getMethod(),
+					request.getRequestLine().getUri(), (System.currentTimeMillis() - start) / 1000.0,
+					test != null ? testName(test) : "no test");
+		}
+	}
+
+	private final int connectTimeoutMillis;
+	private final int readTimeoutMillis;
+	private final long requestTimeoutMillis;
+	private final long testTimeoutMillis;
+
+	private final List<InFlight> inFlight = new CopyOnWriteArrayList<>();
+	private final List<String> timeouts = Collections.synchronizedList(new ArrayList<String>());
+
+	/**
+	 * @param connectTimeoutMillis
+	 *            how long to wait for a connection, or 0 for ever
+	 * @param readTimeoutMillis
+	 *            how long to wait for each read from the server, or 0 for
+	 *            ever
+	 * @param requestTimeoutMillis
+	 *            how long a request may take in total, or 0 for no limit
+	 * @param testTimeoutMillis
+	 *            how long a test may take before its requests are aborted,
+	 *            or 0 for no limit
+	 */
+	RequestWatchdog(int connectTimeoutMillis, int readTimeoutMillis, long requestTimeoutMillis, long testTimeoutMillis) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+		this.requestTimeoutMillis = requestTimeoutMillis;
+		this.testTimeoutMillis = testTimeoutMillis;
+	}
+
+	/**
+	 * Applies the timeouts to the requests of the suite from now on, and
+	 * starts the watchdog thread if there is a request timeout or test
+	 * budget. Suites run one after the other in the same JVM share the
+	 * watchdog installed by the first.
+	 *
+	 * @return the watchdog
+	 * @see #RequestWatchdog(int, int, long, long)
+	 */
+	public static synchronized RequestWatchdog install(int connectTimeoutMillis, int readTimeoutMillis,
+			long requestTimeoutMillis, long testTimeoutMillis) {
+		if (active == null) {
+			active = new RequestWatchdog(connectTimeoutMillis, readTimeoutMillis, requestTimeoutMillis, testTimeoutMillis);
+			if (requestTimeoutMillis > 0 || testTimeoutMillis > 0) {
+				Thread thread = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						active.watch();
+					}
+				}, "ldp-request-watchdog");
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+		return active;
+	}
+
+	/**
+	 * @return the watchdog in use, or null if requests have no timeouts
+	 */
+	public static synchronized RequestWatchdog getActive() {
+		return active;
+	}
+
+	/**
+	 * @return the connect and read timeouts, for clients created without
+	 *         RestAssured
+	 */
+	public RequestConfig getRequestConfig() {
+		return RequestConfig.custom()
+				.setConnectTimeout(connectTimeoutMillis)
+				.setConnectionRequestTimeout(connectTimeoutMillis)
+				.setSocketTimeout(readTimeoutMillis)
+				.build();
+	}
+
+	/**
+	 * Sets the connect and read timeouts of a RestAssured client.
+	 */
+	@SuppressWarnings("deprecation")
+	void configure(org.apache.http.params.HttpParams params) {
+		org.apache.http.params.HttpConnectionParams.setConnectionTimeout(params, connectTimeoutMillis);
+		org.apache.http.params.HttpConnectionParams.setSoTimeout(params, readTimeoutMillis);
+	}
+
+	/**
+	 * @return a director that sends requests through the given one while
+	 *         the watchdog keeps an eye on them
+	 */
+	@SuppressWarnings("deprecation")
+	org.apache.http.client.RequestDirector watch(final org.apache.http.client.RequestDirector director) {
+		return new org.apache.http.client.RequestDirector() {
+			@Override
+			public HttpResponse execute(HttpHost target, HttpRequest request, HttpContext context) throws HttpException, IOException {
+				ITestResult test = Reporter.getCurrentTestResult();
+				if (test != null && testTimeoutMillis > 0 && System.currentTimeMillis() - test.getStartMillis() > testTimeoutMillis) {
+					throw new RequestAbortedException(overBudget(test));
+				}
+				InFlight entry = new InFlight(request, test);
+				inFlight.add(entry);
+				boolean watchingBody = false;
+				try {
+					HttpResponse response = director.execute(target, request, context);
+					HttpEntity entity = response.getEntity();
+					if (entity != null && entity.isStreaming()) {
+						response.setEntity(new WatchedEntity(entity, entry));
+						watchingBody = true;
+					}
+					return response;
+				} catch (IOException e) {
+					throw aborted(entry, e);
+				} finally {
+					if (!watchingBody) {
+						inFlight.remove(entry);
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * @return the exception to throw for an I/O error of a request, which
+	 *         gives the reason if the watchdog aborted it
+	 */
+	private static IOException aborted(InFlight entry, IOException e) {
+		if (entry.abortReason != null) {
+			return new RequestAbortedException("Request " + entry.request.getRequestLine().getUri()
+					+ " aborted: " + entry.abortReason, e);
+		}
+		return e;
+	}
+
+	/** Keeps a request in flight until its body has been read or closed. */
+	private class WatchedEntity extends HttpEntityWrapper {
+
+		private final InFlight entry;
+
+		WatchedEntity(HttpEntity entity, InFlight entry) {
+			super(entity);
+			this.entry = entry;
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			return new FilterInputStream(super.getContent()) {
+				@Override
+				public int read() throws IOException {
+					try {
+						int b = super.read();
+						if (b < 0) {
+							finished();
+						}
+						return b;
+					} catch (IOException e) {
+						finished();
+						throw aborted(entry, e);
+					}
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					try {
+						int n = super.read(b, off, len);
+						if (n < 0) {
+							finished();
+						}
+						return n;
+					} catch (IOException e) {
+						finished();
+						throw aborted(entry, e);
+					}
+				}
+
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						finished();
+					}
+				}
+			};
+		}
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException {
+			try {
+				super.writeTo(out);
+			} catch (IOException e) {
+				throw aborted(entry, e);
+			} finally {
+				finished();
+			}
+		}
+
+		private void finished() {
+			inFlight.remove(entry);
+		}
+	}
+
+	private void watch() {
+		while (true) {
+			try {
+				Thread.sleep(CHECK_MILLIS);
+			} catch (InterruptedException e) {
+				return;
+			}
+			long now = System.currentTimeMillis();
+			for (InFlight request : inFlight) {
+				if (request.test != null && request.test.getEndMillis() > 0) {
+					// a body left unread by a test that has finished
+					inFlight.remove(request);
+					continue;
+				}
+				if (request.abortReason != null) {
+					continue;
+				}
+				String reason = null;
+				if (requestTimeoutMillis > 0 && now - request.start > requestTimeoutMillis) {
+					reason = "no complete response within the request timeout of " + seconds(requestTimeoutMillis) + " s";
+				} else if (request.test != null && testTimeoutMillis > 0 && now - request.test.getStartMillis() > testTimeoutMillis) {
+					reason = overBudget(request.test);
+				}
+				if (reason != null) {
+					request.abortReason = reason;
+					dump(request, reason);
+					if (request.request instanceof HttpUriRequest) {
+						((HttpUriRequest) request.request).abort();
+					}
+				}
+			}
+		}
+	}
+
+	private String overBudget(ITestResult test) {
+		return "test " + testName(test) + " ran past its budget of " + seconds(testTimeoutMillis) + " s";
+	}
+
+	/**
+	 * Prints what the suite is waiting for: the requests in flight and the
+	 * stacks of the threads sending them.
+	 */
+	private void dump(InFlight timedOut, String reason) {
+		StringBuilder dump = new StringBuilder();
+		dump.append(String.format("%nWATCHDOG [%tT]: aborting %s %s: %s%n", new Date(),
+				timedOut.request.getRequestLine().getMethod(), timedOut.request.getRequestLine().getUri(), reason));
+		dump.append("Requests in flight:\n");
+		Set<Thread> threads = new LinkedHashSet<>();
+		for (InFlight request : inFlight) {
+			dump.append("  ").append(request).append('\n');
+			threads.add(request.thread);
+		}
+		for (Thread thread : threads) {
+			dump.append(String.format("Thread \"%s\" (%s):%n", thread.getName(), thread.getState()));
+			for (StackTraceElement element : thread.getStackTrace()) {
+				dump.append("    at ").append(element).append('\n');
+			}
+		}
+		System.err.print(dump);
+		timeouts.add(timedOut + ": " + reason);
+	}
+
+	private static String testName(ITestResult test) {
+		return test.getTestClass().getRealClass().getSimpleName() + "." + test.getName();
+	}
+
+	private static long seconds(long millis) {
+		return TimeUnit.MILLISECONDS.toSeconds(millis);
+	}
+
+	/**
+	 * @return the requests the watchdog aborted, with the reason
+	 */
+	public List<String> getTimeouts() {
+		synchronized (timeouts) {
+			return Collections.unmodifiableList(new ArrayList<>(timeouts));
+		}
+	}
+
+}
@@ -0,0 +1,351 @@
+package org.w3.ldp.testsuite.http;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.w3.ldp.testsuite.exception.SkipException;
+import org.w3.ldp.testsuite.reporter.TestMeasurements;
+
+/**
+ * When and how often requests are sent again after a transient error (429,
+ * 502, 503 or 504, or an I/O error), and a circuit breaker per host that
+ * stops sending requests to a host that keeps failing. Enabled with
+ * {@code --retries}; requests of the suite's RestAssured clients are then
+ * retried by {@link RetryingRequestDirector}.
+ *
+ * <p>
+ * Only idempotent requests (GET, HEAD, OPTIONS, DELETE and PUT with
+ * If-Match) are retried after any transient error. Other requests are
+ * retried only when the server cannot have acted on them: a 429 or 503
+ * response, or a connection that could not be opened. Retries wait an
+ * exponentially growing, randomly jittered time, or as long as the
+ * Retry-After header asks.
+ * </p>
+ *
+ * <p>
+ * Every retried request is recorded with the test that sent it so the
+ * reports list them apart from the test outcomes, and a test that passes
+ * only thanks to retries is never mistaken for one that did not need them.
+ * While a host's circuit is open, tests that send requests to it are
+ * skipped instead of failed, because the server is unavailable, not
+ * nonconforming.
+ * </p>
+ */
+public class RetryPolicy {
+
+	private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(10);
+	private static final long MAX_RETRY_AFTER_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+	private static RetryPolicy active;
+
+	/** A request that was sent more than once. */
+	public static class Retry {
+
+		private final String test;
+		private final String request;
+		private final List<String> errors;
+		private final boolean succeeded;
+
+		Retry(String test, String request, List<String> errors, boolean succeeded) {
+			this.test = test;
+			this.request = request;
+			this.errors = errors;
+			this.succeeded = succeeded;
+		}
+
+		/**
+		 * @return the test that sent the request, or null if it was sent
+		 *         while setting up or cleaning up
+		 */
+		public String getTest() {
+			return test;
+		}
+
+		/**
+		 * @return the method and URI of the request
+		 */
+		public String getRequest() {
+			return request;
+		}
+
+		/**
+		 * @return the error of each attempt that was retried, and of the
+		 *         last one if it failed as well
+		 */
+		public List<String> getErrors() {
+			return errors;
+		}
+
+		/**
+		 * @return true if an attempt finally got a response without a
+		 *         transient error
+		 */
+		public boolean isSucceeded() {
+			return succeeded;
+		}
+	}
+
+	/** The circuit breaker of one host. */
+	private static class Circuit {
+		int failures;
+		long openUntil;
+		boolean trial;
+	}
+
+	private final int retries;
+	private final long backoffMillis;
+	private final int breakerThreshold;
+	private final long breakerCooldownMillis;
+	private final Random random = new Random();
+
+	private final Map<String, Circuit> circuits = new HashMap<>();
+	private final List<Retry> retried = new ArrayList<>();
+	private final List<String> breakerEvents = new ArrayList<>();
+
+	/**
+	 * @param retries
+	 *            how many times a request is sent again at most
+	 * @param backoffMillis
+	 *            the wait before the first retry, doubled for each further
+	 *            one
+	 * @param breakerThreshold
+	 *            consecutive transient errors from a host that open its
+	 *            circuit, or 0 for no circuit breaker
+	 * @param breakerCooldownMillis
+	 *            how long a circuit stays open before a trial request
+	 */
+	RetryPolicy(int retries, long backoffMillis, int breakerThreshold, long breakerCooldownMillis) {
+		this.retries = retries;
+		this.backoffMillis = backoffMillis;
+		this.breakerThreshold = breakerThreshold;
+		this.breakerCooldownMillis = breakerCooldownMillis;
+	}
+
+	/**
+	 * Retries the requests of the suite from now on. Suites run one after
+	 * the other in the same JVM share the policy installed by the first.
+	 *
+	 * @return the policy
+	 * @see #RetryPolicy(int, long, int, long)
+	 */
+	public static synchronized RetryPolicy install(int retries, long backoffMillis, int breakerThreshold, long breakerCooldownMillis) {
+		if (active == null) {
+			active = new RetryPolicy(retries, backoffMillis, breakerThreshold, breakerCooldownMillis);
+		}
+		return active;
+	}
+
+	/**
+	 * @return the policy in use, or null if requests are not retried
+	 */
+	public static synchronized RetryPolicy getActive() {
+		return active;
+	}
+
+	public int getRetries() {
+		return retries;
+	}
+
+	/**
+	 * @return true for the statuses of a server that is overloaded or
+	 *         briefly unavailable
+	 */
+	static boolean isTransient(int status) {
+		return status == 429 // Too Many Requests
+				|| status == HttpStatus.SC_BAD_GATEWAY
+				|| status == HttpStatus.SC_SERVICE_UNAVAILABLE
+				|| status == HttpStatus.SC_GATEWAY_TIMEOUT;
+	}
+
+	/**
+	 * @return true if sending the request twice has the same effect as
+	 *         sending it once, and its body can be sent again
+	 */
+	static boolean isIdempotent(HttpRequest request) {
+		String method = request.getRequestLine().getMethod().toUpperCase(Locale.ENGLISH);
+		switch (method) {
+			case "GET":
+			case "HEAD":
+			case "OPTIONS":
+			case "DELETE":
+				return true;
+			case "PUT":
+				if (!request.containsHeader(HttpHeaders.IF_MATCH)) {
+					return false;
+				}
+				HttpEntity entity = request instanceof HttpEntityEnclosingRequest
+						? ((HttpEntityEnclosingRequest) request).getEntity()
+						: null;
+				return entity == null || entity.isRepeatable();
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * @return true if a request that got a transient status may be sent
+	 *         again
+	 */
+	static boolean mayRetry(HttpRequest request, int status) {
+		return isIdempotent(request) || status == 429 || status == HttpStatus.SC_SERVICE_UNAVAILABLE;
+	}
+
+	/**
+	 * @return true if a request that failed with an I/O error may be sent
+	 *         again
+	 */
+	static boolean mayRetry(HttpRequest request, Throwable error) {
+		if (error instanceof RequestAbortedException) {
+			// the watchdog gave up on it
+			return false;
+		}
+		if (isIdempotent(request)) {
+			return true;
+		}
+		for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ConnectException) {
+				// nothing was sent
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param attempt
+	 *            the attempt that failed, 0 for the first
+	 * @param retryAfter
+	 *            the Retry-After header of the response, or null
+	 * @return how long to wait before the next attempt
+	 */
+	long getBackoffMillis(int attempt, String retryAfter) {
+		if (retryAfter != null) {
+			long millis = -1;
+			try {
+				millis = TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+			} catch (NumberFormatException e) {
+				Date date = DateUtils.parseDate(retryAfter.trim());
+				if (date != null) {
+					millis = date.getTime() - System.currentTimeMillis();
+				}
+			}
+			if (millis >= 0) {
+				return Math.min(MAX_RETRY_AFTER_MILLIS, millis);
+			}
+		}
+		// full jitter: anything up to the exponential backoff, so clients retrying together spread out
+		long ceiling = Math.min(MAX_BACKOFF_MILLIS, backoffMillis << Math.min(attempt, 20));
+		synchronized (random) {
+			return (long) (random.nextDouble() * ceiling);
+		}
+	}
+
+	/**
+	 * Lets a request to a host through unless its circuit is open.
+	 *
+	 * @throws SkipException
+	 *             if the circuit is open, to skip the test sending the
+	 *             request
+	 */
+	synchronized void checkCircuit(String host) {
+		Circuit circuit = circuits.get(host);
+		if (circuit == null || circuit.failures < breakerThreshold || breakerThreshold == 0) {
+			return;
+		}
+		if (System.currentTimeMillis() >= circuit.openUntil && !circuit.trial) {
+			// half open: one request finds out if the host is back
+			circuit.trial = true;
+			return;
+		}
+		ITestResult result = Reporter.getCurrentTestResult();
+		throw new SkipException(result != null ? result.getName() : "setup",
+				"Skipping test because the circuit breaker for " + host + " is open after "
+				+ circuit.failures + " consecutive transient errors.");
+	}
+
+	synchronized void succeeded(String host) {
+		Circuit circuit = circuits.get(host);
+		if (circuit != null) {
+			if (breakerThreshold > 0 && circuit.failures >= breakerThreshold) {
+				breakerEvents.add(String.format("%tT circuit for %s closed", new Date(), host));
+			}
+			circuits.remove(host);
+		}
+	}
+
+	/**
+	 * Neither counts a request the watchdog gave up on as a failure of the
+	 * host nor as a success; if it was the trial of a half open circuit, the
+	 * next request tries again.
+	 */
+	synchronized void aborted(String host) {
+		Circuit circuit = circuits.get(host);
+		if (circuit != null) {
+			circuit.trial = false;
+		}
+	}
+
+	synchronized void failed(String host) {
+		Circuit circuit = circuits.get(host);
+		if (circuit == null) {
+			circuit = new Circuit();
+			circuits.put(host, circuit);
+		}
+		circuit.failures++;
+		if (breakerThreshold > 0 && circuit.failures >= breakerThreshold
+				&& (circuit.failures == breakerThreshold || circuit.trial)) {
+			circuit.trial = false;
+			circuit.openUntil = System.currentTimeMillis() + breakerCooldownMillis;
+			breakerEvents.add(String.format("%tT circuit for %s opened for %d s after %d consecutive transient errors",
+					new Date(), host, TimeUnit.MILLISECONDS.toSeconds(breakerCooldownMillis), circuit.failures));
+		}
+	}
+
+	/**
+	 * Records a request that was sent more than once, with the test sending
+	 * it.
+	 */
+	void record(HttpRequest request, List<String> errors, boolean succeeded) {
+		ITestResult result = Reporter.getCurrentTestResult();
+		String test = null;
+		if (result != null) {
+			test = result.getTestClass().getRealClass().getSimpleName() + "." + result.getName();
+			TestMeasurements.count(result, "retried requests");
+		}
+		synchronized (this) {
+			retried.add(new Retry(test, request.getRequestLine().getMethod() + " " + request.getRequestLine().getUri(),
+					Collections.unmodifiableList(new ArrayList<>(errors)), succeeded));
+		}
+	}
+
+	/**
+	 * @return the requests that were sent more than once, in order
+	 */
+	public synchronized List<Retry> getRetried() {
+		return Collections.unmodifiableList(new ArrayList<>(retried));
+	}
+
+	/**
+	 * @return when circuits opened and closed
+	 */
+	public synchronized List<String> getBreakerEvents() {
+		return Collections.unmodifiableList(new ArrayList<>(breakerEvents));
+	}
+
+}
@@ -0,0 +1,111 @@
+package org.w3.ldp.testsuite.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Sends a request again after a transient error, as the {@link RetryPolicy}
+ * allows, and keeps the policy's circuit breakers up to date. Each attempt
+ * runs through a new director of the client, since HttpClient's directors
+ * keep state between the steps of one exchange.
+ */
+@SuppressWarnings("deprecation")
+class RetryingRequestDirector implements org.apache.http.client.RequestDirector {
+
+	/** Creates the director of one attempt. */
+	interface Directors {
+		org.apache.http.client.RequestDirector create();
+	}
+
+	private final RetryPolicy policy;
+	private final Directors directors;
+
+	RetryingRequestDirector(RetryPolicy policy, Directors directors) {
+		this.policy = policy;
+		this.directors = directors;
+	}
+
+	@Override
+	public HttpResponse execute(HttpHost target, HttpRequest request, HttpContext context) throws HttpException, IOException {
+		String host = target != null ? target.toHostString() : request.getRequestLine().getUri();
+		List<String> errors = new ArrayList<>();
+		for (int attempt = 0; ; attempt++) {
+			policy.checkCircuit(host);
+			boolean last = attempt == policy.getRetries() || !isRepeatable(request);
+
+			HttpResponse response;
+			try {
+				response = directors.create().execute(target, request, context);
+			} catch (IOException e) {
+				if (e instanceof RequestAbortedException) {
+					// a timeout of the suite, not an error of the server
+					policy.aborted(host);
+				} else {
+					policy.failed(host);
+				}
+				errors.add(e.toString());
+				if (last || !RetryPolicy.mayRetry(request, e)) {
+					recordIfRetried(request, errors, false);
+					throw e;
+				}
+				sleep(policy.getBackoffMillis(attempt, null));
+				continue;
+			}
+
+			int status = response.getStatusLine().getStatusCode();
+			if (!RetryPolicy.isTransient(status)) {
+				policy.succeeded(host);
+				recordIfRetried(request, errors, true);
+				return response;
+			}
+			policy.failed(host);
+			errors.add(response.getStatusLine().toString());
+			if (last || !RetryPolicy.mayRetry(request, status)) {
+				recordIfRetried(request, errors, false);
+				return response;
+			}
+			Header retryAfter = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+			// frees the connection for the next attempt
+			EntityUtils.consume(response.getEntity());
+			sleep(policy.getBackoffMillis(attempt, retryAfter != null ? retryAfter.getValue() : null));
+		}
+	}
+
+	private void recordIfRetried(HttpRequest request, List<String> errors, boolean succeeded) {
+		int attempts = succeeded ? errors.size() + 1 : errors.size();
+		if (attempts > 1) {
+			policy.record(request, errors, succeeded);
+		}
+	}
+
+	private static boolean isRepeatable(HttpRequest request) {
+		if (request instanceof HttpEntityEnclosingRequest) {
+			HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+			return entity == null || entity.isRepeatable();
+		}
+		return true;
+	}
+
+	private static void sleep(long millis) throws InterruptedIOException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting to retry the request");
+		}
+	}
+
+}
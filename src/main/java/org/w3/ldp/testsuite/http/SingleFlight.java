@@ -0,0 +1,112 @@
+package org.w3.ldp.testsuite.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Lets identical calls made at the same time share one result. The first
+ * caller for a key runs the call; callers arriving with the same key while
+ * it is in flight get the same future instead of running it again. Once the
+ * call completes, the next caller runs it anew: results are shared, never
+ * cached. Cancelling the future of one caller leaves the call running
+ * for the others.
+ *
+ * <p>
+ * The shared value is seen by every caller, so it must be immutable, or
+ * each caller must be handed its own copy of it.
+ * </p>
+ *
+ * @param <V>
+ *            the result of a call
+ */
+public class SingleFlight<V> {
+
+	private final ConcurrentMap<String, ListenableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Joins the call in flight for a key, or runs it.
+	 *
+	 * @param key
+	 *            what makes two calls identical
+	 * @param call
+	 *            starts the call if none is in flight for the key; a call
+	 *            that blocks runs on the caller's thread and returns a
+	 *            completed future
+	 * @return the result of the call
+	 */
+	public ListenableFuture<V> share(final String key, Callable<ListenableFuture<V>> call) {
+		final SettableFuture<V> flight = SettableFuture.create();
+		ListenableFuture<V> running = inFlight.putIfAbsent(key, flight);
+		if (running != null) {
+			return Futures.nonCancellationPropagating(running);
+		}
+		// leaves once complete, so later callers start over
+		flight.addListener(new Runnable() {
+			@Override
+			public void run() {
+				inFlight.remove(key, flight);
+			}
+		}, MoreExecutors.sameThreadExecutor());
+		ListenableFuture<V> result;
+		try {
+			result = call.call();
+		} catch (Throwable t) {
+			result = Futures.immediateFailedFuture(t);
+		}
+		Futures.addCallback(result, new FutureCallback<V>() {
+			@Override
+			public void onSuccess(V value) {
+				flight.set(value);
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				flight.setException(t);
+			}
+		});
+		return Futures.nonCancellationPropagating(flight);
+	}
+
+	/**
+	 * @param target
+	 *            the host the request is sent to, or null if its URI is
+	 *            absolute
+	 * @return a key for identical requests: the method, URI and headers of
+	 *         the request, header names in lower case and sorted so their
+	 *         order does not matter
+	 */
+	public static String key(HttpHost target, HttpRequest request) {
+		List<String> headers = new ArrayList<>();
+		for (Header header : request.getAllHeaders()) {
+			headers.add(header.getName().toLowerCase(Locale.ENGLISH) + ": " + header.getValue());
+		}
+		Collections.sort(headers);
+		StringBuilder key = new StringBuilder();
+		String uri = request.getRequestLine().getUri();
+		key.append(request.getRequestLine().getMethod()).append(' ');
+		if (target != null && uri.startsWith("/")) {
+			key.append(target.toURI());
+		}
+		key.append(uri);
+		for (String header : headers) {
+			key.append('\n').append(header);
+		}
+		return key.toString();
+	}
+
+}
@@ -0,0 +1,335 @@
+package org.w3.ldp.testsuite.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.w3.ldp.testsuite.reporter.RequestTimings;
+import org.w3.ldp.testsuite.reporter.RequestTimings.Phase;
+import org.w3.ldp.testsuite.reporter.ServerTimings;
+
+/**
+ * Times the phases of each request of a test for {@link RequestTimings}.
+ * Each attempt at sending a request is timed on its own, and counts as a
+ * request. The connection operator, request executor and socket factories of the
+ * client below report to the exchange running on their thread, since they
+ * are called on the thread that sends the request; the response body is
+ * timed as it is read, whenever that is.
+ *
+ * <p>
+ * The Server-Timing metrics of each response are recorded for
+ * {@link ServerTimings} as well, with the time from sending its request to
+ * its headers. Redirects and authentication challenges are responses of
+ * their own.
+ * </p>
+ *
+ * <p>
+ * Requests sent outside of a test, or that reuse an open connection, skip
+ * the phases that do not apply to them.
+ * </p>
+ */
+@SuppressWarnings("deprecation")
+class TimingRequestDirector implements org.apache.http.client.RequestDirector {
+
+	private static final ThreadLocal<Exchange> CURRENT = new ThreadLocal<>();
+
+	/** The request being sent on a thread, and the test it belongs to. */
+	private static class Exchange {
+		final ITestResult result;
+		final String operation;
+		long sent;
+
+		Exchange(ITestResult result, String operation) {
+			this.result = result;
+			this.operation = operation;
+		}
+
+		void record(Phase phase, long nanos) {
+			RequestTimings.record(result, operation, phase, nanos);
+		}
+	}
+
+	private final org.apache.http.client.RequestDirector director;
+
+	TimingRequestDirector(org.apache.http.client.RequestDirector director) {
+		this.director = director;
+	}
+
+	@Override
+	public HttpResponse execute(HttpHost target, HttpRequest request, HttpContext context) throws HttpException, IOException {
+		ITestResult result = Reporter.getCurrentTestResult();
+		if (result == null) {
+			return director.execute(target, request, context);
+		}
+		Exchange exchange = new Exchange(result, request.getRequestLine().getMethod().toUpperCase(Locale.ENGLISH));
+		RequestTimings.count(result, exchange.operation);
+		RequestTimings.setLastOperation(exchange.operation);
+		CURRENT.set(exchange);
+		try {
+			HttpResponse response = director.execute(target, request, context);
+			if (response.getEntity() != null) {
+				response.setEntity(new TimedEntity(response.getEntity(), exchange));
+			}
+			return response;
+		} finally {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * @return the duration of each Server-Timing metric of the response in
+	 *         milliseconds, added up if a metric is repeated; metrics
+	 *         without a duration are left out
+	 */
+	static Map<String, Double> getServerTimings(HttpResponse response) {
+		Map<String, Double> durations = new LinkedHashMap<>();
+		for (Header header : response.getHeaders(HttpHeaders.SERVER_TIMING)) {
+			for (HeaderElement metric : header.getElements()) {
+				NameValuePair duration = metric.getParameterByName("dur");
+				if (duration == null || duration.getValue() == null) {
+					continue;
+				}
+				double millis;
+				try {
+					millis = Double.parseDouble(duration.getValue().trim());
+				} catch (NumberFormatException e) {
+					continue; // ignored, as browsers do
+				}
+				Double before = durations.get(metric.getName());
+				durations.put(metric.getName(), before != null ? before + millis : millis);
+			}
+		}
+		return durations;
+	}
+
+	private static void record(Phase phase, long start) {
+		Exchange exchange = CURRENT.get();
+		if (exchange != null) {
+			exchange.record(phase, System.nanoTime() - start);
+		}
+	}
+
+	/** Times from the request sent to the response headers received. */
+	static class TimingRequestExecutor extends HttpRequestExecutor {
+		@Override
+		protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context)
+				throws IOException, HttpException {
+			HttpResponse response = super.doSendRequest(request, conn, context);
+			Exchange exchange = CURRENT.get();
+			if (exchange != null) {
+				exchange.sent = System.nanoTime();
+			}
+			return response;
+		}
+
+		@Override
+		protected HttpResponse doReceiveResponse(HttpRequest request, HttpClientConnection conn, HttpContext context)
+				throws HttpException, IOException {
+			HttpResponse response = super.doReceiveResponse(request, conn, context);
+			Exchange exchange = CURRENT.get();
+			if (exchange != null && exchange.sent != 0) {
+				long nanos = System.nanoTime() - exchange.sent;
+				exchange.record(Phase.TTFB, nanos);
+				ServerTimings.record(exchange.result, exchange.operation, nanos / 1e6, getServerTimings(response));
+				exchange.sent = 0;
+			}
+			return response;
+		}
+	}
+
+	/** Times name resolution and opening connections. */
+	static class TimingConnectionOperator extends org.apache.http.impl.conn.DefaultClientConnectionOperator {
+
+		TimingConnectionOperator(org.apache.http.conn.scheme.SchemeRegistry schemes, DnsResolver dnsResolver) {
+			super(schemes, dnsResolver);
+		}
+
+		@Override
+		protected InetAddress[] resolveHostname(String host) throws UnknownHostException {
+			long start = System.nanoTime();
+			try {
+				return super.resolveHostname(host);
+			} finally {
+				record(Phase.DNS, start);
+			}
+		}
+
+		@Override
+		public void openConnection(org.apache.http.conn.OperatedClientConnection conn, HttpHost target, InetAddress local,
+				HttpContext context, org.apache.http.params.HttpParams params) throws IOException {
+			// RestAssured registers its https scheme after the client is created, so the
+			// socket factory is wrapped here, for this connection only
+			Object registered = context.getAttribute(org.apache.http.client.protocol.ClientContext.SCHEME_REGISTRY);
+			org.apache.http.conn.scheme.SchemeRegistry schemes = registered != null
+					? (org.apache.http.conn.scheme.SchemeRegistry) registered
+					: schemeRegistry;
+			org.apache.http.conn.scheme.Scheme scheme = schemes.getScheme(target.getSchemeName());
+			org.apache.http.conn.scheme.SchemeRegistry timed = new org.apache.http.conn.scheme.SchemeRegistry();
+			timed.register(new org.apache.http.conn.scheme.Scheme(scheme.getName(), scheme.getDefaultPort(),
+					new TimingSocketFactory(scheme.getSchemeSocketFactory())));
+			context.setAttribute(org.apache.http.client.protocol.ClientContext.SCHEME_REGISTRY, timed);
+			try {
+				super.openConnection(conn, target, local, context, params);
+			} finally {
+				context.setAttribute(org.apache.http.client.protocol.ClientContext.SCHEME_REGISTRY, registered);
+			}
+		}
+	}
+
+	/**
+	 * Times connecting, and for TLS connects over TCP first so the handshake
+	 * is timed on its own.
+	 */
+	private static class TimingSocketFactory implements org.apache.http.conn.scheme.SchemeLayeredSocketFactory {
+
+		private final org.apache.http.conn.scheme.SchemeSocketFactory factory;
+
+		TimingSocketFactory(org.apache.http.conn.scheme.SchemeSocketFactory factory) {
+			this.factory = factory;
+		}
+
+		@Override
+		public Socket createSocket(org.apache.http.params.HttpParams params) throws IOException {
+			return factory.createSocket(params);
+		}
+
+		@Override
+		public Socket connectSocket(Socket socket, InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+				org.apache.http.params.HttpParams params) throws IOException {
+			long start = System.nanoTime();
+			if (!(factory instanceof org.apache.http.conn.scheme.SchemeLayeredSocketFactory)
+					|| !(remoteAddress instanceof org.apache.http.conn.HttpInetSocketAddress)) {
+				try {
+					return factory.connectSocket(socket, remoteAddress, localAddress, params);
+				} finally {
+					record(Phase.CONNECT, start);
+				}
+			}
+			if (socket != null) {
+				socket.close();
+			}
+			Socket plain;
+			try {
+				plain = org.apache.http.conn.scheme.PlainSocketFactory.getSocketFactory()
+						.connectSocket(null, remoteAddress, localAddress, params);
+			} finally {
+				record(Phase.CONNECT, start);
+			}
+			start = System.nanoTime();
+			try {
+				return createLayeredSocket(plain, ((org.apache.http.conn.HttpInetSocketAddress) remoteAddress).getHttpHost().getHostName(),
+						remoteAddress.getPort(), params);
+			} catch (IOException e) {
+				plain.close();
+				throw e;
+			} finally {
+				record(Phase.TLS, start);
+			}
+		}
+
+		@Override
+		public Socket createLayeredSocket(Socket socket, String target, int port,
+				org.apache.http.params.HttpParams params) throws IOException {
+			return ((org.apache.http.conn.scheme.SchemeLayeredSocketFactory) factory).createLayeredSocket(socket, target, port, params);
+		}
+
+		@Override
+		public boolean isSecure(Socket socket) {
+			return factory.isSecure(socket);
+		}
+	}
+
+	/** Times reading the body, from the first read to the end. */
+	private static class TimedEntity extends HttpEntityWrapper {
+
+		private final Exchange exchange;
+		private long start;
+		private boolean recorded;
+
+		TimedEntity(HttpEntity entity, Exchange exchange) {
+			super(entity);
+			this.exchange = exchange;
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			return new FilterInputStream(super.getContent()) {
+				@Override
+				public int read() throws IOException {
+					started();
+					int b = super.read();
+					if (b < 0) {
+						finished();
+					}
+					return b;
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					started();
+					int n = super.read(b, off, len);
+					if (n < 0) {
+						finished();
+					}
+					return n;
+				}
+
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						finished();
+					}
+				}
+			};
+		}
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException {
+			started();
+			try {
+				super.writeTo(out);
+			} finally {
+				finished();
+			}
+		}
+
+		private synchronized void started() {
+			if (start == 0) {
+				start = System.nanoTime();
+			}
+		}
+
+		private synchronized void finished() {
+			if (start != 0 && !recorded) {
+				recorded = true;
+				exchange.record(Phase.TRANSFER, System.nanoTime() - start);
+			}
+		}
+	}
+
+}
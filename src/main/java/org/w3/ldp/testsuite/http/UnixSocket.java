@@ -0,0 +1,314 @@
+package org.w3.ldp.testsuite.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.ProtocolFamily;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+import com.google.common.base.Throwables;
+
+/**
+ * A connected Unix domain socket, as a {@link Socket} for HttpClient's
+ * blocking connections. Unix domain channels cannot be adapted with
+ * {@link SocketChannel#socket()}, so the streams are built on the channel
+ * directly, in non-blocking mode so reads honor the socket timeout.
+ *
+ * <p>
+ * Unix domain channels are available from Java 16 and looked up
+ * reflectively, so the suite still builds for older releases.
+ * </p>
+ */
+class UnixSocket extends Socket {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final SocketChannel channel;
+	private final Selector readSelector;
+	private final Selector writeSelector;
+	private final InputStream in = new Input();
+	private final OutputStream out = new Output();
+	private volatile int soTimeout;
+
+	private UnixSocket(SocketChannel channel) throws IOException {
+		this.channel = channel;
+		channel.configureBlocking(false);
+		readSelector = Selector.open();
+		writeSelector = Selector.open();
+		channel.register(readSelector, SelectionKey.OP_READ);
+		channel.register(writeSelector, SelectionKey.OP_WRITE);
+	}
+
+	/**
+	 * @param path
+	 *            the socket file
+	 * @return a socket connected to the server listening on the file
+	 * @throws IOException
+	 *             if the connection fails, or the JVM has no Unix domain
+	 *             sockets
+	 */
+	static UnixSocket connect(String path) throws IOException {
+		SocketChannel channel = open();
+		try {
+			channel.connect(address(path));
+			return new UnixSocket(channel);
+		} catch (IOException e) {
+			channel.close();
+			throw new IOException("Cannot connect to unix:" + path + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Checks the JVM supports Unix domain sockets.
+	 *
+	 * @throws IOException if it does not
+	 */
+	static void checkSupported() throws IOException {
+		open().close();
+	}
+
+	private static SocketChannel open() throws IOException {
+		try {
+			ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+			return (SocketChannel) SocketChannel.class.getMethod("open", ProtocolFamily.class).invoke(null, unix);
+		} catch (InvocationTargetException e) {
+			Throwables.propagateIfPossible(e.getCause(), IOException.class);
+			throw new IOException(e.getCause());
+		} catch (ReflectiveOperationException | IllegalArgumentException e) {
+			throw new IOException("Unix domain sockets need Java 16 or later", e);
+		}
+	}
+
+	private static SocketAddress address(String path) throws IOException {
+		try {
+			return (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", String.class).invoke(null, path);
+		} catch (ReflectiveOperationException e) {
+			throw new IOException("Unix domain sockets need Java 16 or later", e);
+		}
+	}
+
+	/** Reads, waiting at most the socket timeout for data. */
+	private class Input extends InputStream {
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			int n = read(b, 0, 1);
+			return n < 0 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+			long deadline = soTimeout > 0 ? System.currentTimeMillis() + soTimeout : 0;
+			while (true) {
+				int n = channel.read(buffer);
+				if (n != 0) {
+					return n;
+				}
+				long wait = 0;
+				if (deadline > 0) {
+					wait = deadline - System.currentTimeMillis();
+					if (wait <= 0) {
+						throw new SocketTimeoutException("Read timed out");
+					}
+				}
+				await(readSelector, wait);
+			}
+		}
+	}
+
+	/** Writes everything, waiting for room as long as it takes. */
+	private class Output extends OutputStream {
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+			while (buffer.hasRemaining()) {
+				if (channel.write(buffer) == 0) {
+					await(writeSelector, 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits until the channel is ready, the timeout passes or the socket is
+	 * closed.
+	 */
+	private static void await(Selector selector, long timeout) throws IOException {
+		try {
+			selector.select(timeout);
+			selector.selectedKeys().clear();
+		} catch (ClosedSelectorException e) {
+			throw new SocketException("Socket is closed");
+		}
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		checkOpen();
+		return in;
+	}
+
+	@Override
+	public OutputStream getOutputStream() throws IOException {
+		checkOpen();
+		return out;
+	}
+
+	private void checkOpen() throws SocketException {
+		if (!channel.isOpen()) {
+			throw new SocketException("Socket is closed");
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		// wakes up a read or write blocked on a selector, which then fails on the closed channel
+		channel.close();
+		readSelector.wakeup();
+		writeSelector.wakeup();
+		readSelector.close();
+		writeSelector.close();
+	}
+
+	@Override
+	public boolean isClosed() {
+		return !channel.isOpen();
+	}
+
+	@Override
+	public boolean isConnected() {
+		return true;
+	}
+
+	@Override
+	public boolean isBound() {
+		return true;
+	}
+
+	@Override
+	public void shutdownInput() throws IOException {
+		channel.shutdownInput();
+	}
+
+	@Override
+	public void shutdownOutput() throws IOException {
+		channel.shutdownOutput();
+	}
+
+	@Override
+	public void setSoTimeout(int timeout) {
+		soTimeout = timeout;
+	}
+
+	@Override
+	public int getSoTimeout() {
+		return soTimeout;
+	}
+
+	// TCP options mean nothing for a Unix domain socket
+
+	@Override
+	public void setTcpNoDelay(boolean on) {
+	}
+
+	@Override
+	public boolean getTcpNoDelay() {
+		return true;
+	}
+
+	@Override
+	public void setSoLinger(boolean on, int linger) {
+	}
+
+	@Override
+	public int getSoLinger() {
+		return -1;
+	}
+
+	@Override
+	public void setKeepAlive(boolean on) {
+	}
+
+	@Override
+	public boolean getKeepAlive() {
+		return false;
+	}
+
+	@Override
+	public void setSendBufferSize(int size) {
+	}
+
+	@Override
+	public int getSendBufferSize() {
+		return BUFFER_SIZE;
+	}
+
+	@Override
+	public void setReceiveBufferSize(int size) {
+	}
+
+	@Override
+	public int getReceiveBufferSize() {
+		return BUFFER_SIZE;
+	}
+
+	@Override
+	public InetAddress getInetAddress() {
+		return InetAddress.getLoopbackAddress();
+	}
+
+	@Override
+	public InetAddress getLocalAddress() {
+		return InetAddress.getLoopbackAddress();
+	}
+
+	@Override
+	public int getPort() {
+		return 0;
+	}
+
+	@Override
+	public int getLocalPort() {
+		return -1;
+	}
+
+	@Override
+	public SocketAddress getRemoteSocketAddress() {
+		try {
+			return channel.getRemoteAddress();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public SocketAddress getLocalSocketAddress() {
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return "UnixSocket[" + getRemoteSocketAddress() + "]";
+	}
+
+}
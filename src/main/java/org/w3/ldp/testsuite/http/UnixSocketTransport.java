@@ -0,0 +1,234 @@
+package org.w3.ldp.testsuite.http;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.UnknownHostException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpHost;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Sends the requests for a server on the same host over a Unix domain
+ * socket instead of TCP, for {@code --server unix:<socket>:<uri>}, such as
+ * {@code unix:/run/ldp.sock:http://localhost:8080/container/}. Without a URI
+ * the server is {@code http://localhost:8080/}. The tests see only the http
+ * URI: the
+ * clients of the suite resolve its host to the loopback address and then
+ * connect to the socket instead, so there is no TCP overhead and no
+ * ephemeral ports to run out of. Requests for other hosts and ports still go
+ * over TCP. The URI needs a port, since RestAssured sends requests for URIs
+ * without one to its own default port; the port only names the server.
+ *
+ * <p>
+ * Needs Java 16 or later to run, for Unix domain socket channels. The open
+ * loop load test, whose non-blocking client needs TCP, is skipped.
+ * </p>
+ */
+public class UnixSocketTransport {
+
+	public static final String SCHEME = "unix";
+
+	private static final String DEFAULT_URI = "http://localhost:8080/";
+
+	private static UnixSocketTransport active;
+
+	private final String path;
+	private final String host;
+	private final int port;
+
+	UnixSocketTransport(String path, String host, int port) {
+		this.path = path;
+		this.host = host;
+		this.port = port;
+	}
+
+	/**
+	 * @return true if the server is given as a Unix domain socket
+	 */
+	public static boolean isUnixServer(String server) {
+		return StringUtils.startsWith(server, SCHEME + ":");
+	}
+
+	/**
+	 * Sends the requests for the server over its socket from now on,
+	 * replacing the socket of an earlier suite in the same JVM.
+	 *
+	 * @param server
+	 *            {@code unix:<socket>} or {@code unix:<socket>:<http uri>}
+	 * @return the http URI of the server, for the tests
+	 * @throws IllegalArgumentException
+	 *             if the server is not a Unix domain socket and http URI,
+	 *             or the JVM has no Unix domain sockets
+	 */
+	public static synchronized String install(String server) {
+		String socket = server.substring(SCHEME.length() + 1);
+		String uri = DEFAULT_URI;
+		int split = socket.indexOf(":http");
+		if (split >= 0) {
+			uri = socket.substring(split + 1);
+			socket = socket.substring(0, split);
+		}
+		if (socket.isEmpty()) {
+			throw new IllegalArgumentException("missing unix socket path");
+		}
+		if (!new File(socket).exists()) {
+			throw new IllegalArgumentException("no unix socket " + socket);
+		}
+		URI parsed = URI.create(uri);
+		if (!"http".equals(parsed.getScheme()) || parsed.getHost() == null || parsed.getPort() == -1) {
+			throw new IllegalArgumentException("expected an http uri with a port after the unix socket, found " + uri);
+		}
+		try {
+			UnixSocket.checkSupported();
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+		active = new UnixSocketTransport(socket, parsed.getHost(), parsed.getPort());
+		return uri;
+	}
+
+	/**
+	 * Sends requests over TCP again, for a suite with an http server.
+	 */
+	public static synchronized void uninstall() {
+		active = null;
+	}
+
+	/**
+	 * @return the socket in use, or null if requests go over TCP
+	 */
+	public static synchronized UnixSocketTransport getActive() {
+		return active;
+	}
+
+	/**
+	 * @return the socket file
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Makes a client built without RestAssured send requests for the server
+	 * over the socket. Replaces the connection manager of the builder.
+	 *
+	 * @param connections
+	 *            the connections the client may keep open
+	 */
+	public void configure(HttpClientBuilder builder, int connections) {
+		PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(
+				RegistryBuilder.<ConnectionSocketFactory>create()
+						.register("http", new UnixConnectionSocketFactory())
+						.register("https", SSLConnectionSocketFactory.getSocketFactory())
+						.build(),
+				new LoopbackDnsResolver());
+		manager.setMaxTotal(connections);
+		manager.setDefaultMaxPerRoute(connections);
+		builder.setConnectionManager(manager);
+	}
+
+	/**
+	 * @return a connection manager for the RestAssured clients, sending
+	 *         requests for the server over the socket
+	 */
+	@SuppressWarnings("deprecation")
+	org.apache.http.conn.ClientConnectionManager createConnectionManager() {
+		org.apache.http.conn.scheme.SchemeRegistry registry = org.apache.http.impl.conn.SchemeRegistryFactory.createDefault();
+		registry.register(new org.apache.http.conn.scheme.Scheme("http", 80, new UnixSchemeSocketFactory()));
+		final DnsResolver dnsResolver = new LoopbackDnsResolver();
+		return new org.apache.http.impl.conn.PoolingClientConnectionManager(registry, dnsResolver) {
+			@Override
+			protected org.apache.http.conn.ClientConnectionOperator createConnectionOperator(
+					org.apache.http.conn.scheme.SchemeRegistry schemes) {
+				return new TimingRequestDirector.TimingConnectionOperator(schemes, dnsResolver);
+			}
+		};
+	}
+
+	private boolean isServer(HttpHost target) {
+		return host.equalsIgnoreCase(target.getHostName()) && port == target.getPort();
+	}
+
+	/**
+	 * Resolves the host of the server to the loopback address, whatever its
+	 * name, so connections to it are not refused before they reach the
+	 * socket factory.
+	 */
+	private class LoopbackDnsResolver implements DnsResolver {
+		@Override
+		public InetAddress[] resolve(String name) throws UnknownHostException {
+			if (host.equalsIgnoreCase(name)) {
+				return new InetAddress[] { InetAddress.getByAddress(name, InetAddress.getLoopbackAddress().getAddress()) };
+			}
+			return SystemDefaultDnsResolver.INSTANCE.resolve(name);
+		}
+	}
+
+	/** Connects to the socket for the clients of HttpClientBuilder. */
+	private class UnixConnectionSocketFactory implements ConnectionSocketFactory {
+
+		private final ConnectionSocketFactory tcp = PlainConnectionSocketFactory.getSocketFactory();
+
+		@Override
+		public Socket createSocket(HttpContext context) throws IOException {
+			return tcp.createSocket(context);
+		}
+
+		@Override
+		public Socket connectSocket(int connectTimeout, Socket socket, HttpHost target, InetSocketAddress remoteAddress,
+				InetSocketAddress localAddress, HttpContext context) throws IOException {
+			if (!isServer(target)) {
+				return tcp.connectSocket(connectTimeout, socket, target, remoteAddress, localAddress, context);
+			}
+			if (socket != null) {
+				socket.close();
+			}
+			return UnixSocket.connect(path);
+		}
+	}
+
+	/** Connects to the socket for the RestAssured clients. */
+	@SuppressWarnings("deprecation")
+	private class UnixSchemeSocketFactory implements org.apache.http.conn.scheme.SchemeSocketFactory {
+
+		private final org.apache.http.conn.scheme.SchemeSocketFactory tcp =
+				org.apache.http.conn.scheme.PlainSocketFactory.getSocketFactory();
+
+		@Override
+		public Socket createSocket(org.apache.http.params.HttpParams params) throws IOException {
+			return tcp.createSocket(params);
+		}
+
+		@Override
+		public Socket connectSocket(Socket socket, InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+				org.apache.http.params.HttpParams params) throws IOException {
+			if (!(remoteAddress instanceof org.apache.http.conn.HttpInetSocketAddress)
+					|| !isServer(((org.apache.http.conn.HttpInetSocketAddress) remoteAddress).getHttpHost())) {
+				return tcp.connectSocket(socket, remoteAddress, localAddress, params);
+			}
+			if (socket != null) {
+				socket.close();
+			}
+			return UnixSocket.connect(path);
+		}
+
+		@Override
+		public boolean isSecure(Socket socket) {
+			return false;
+		}
+	}
+
+}
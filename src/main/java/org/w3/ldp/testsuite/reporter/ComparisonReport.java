@@ -0,0 +1,404 @@
+package org.w3.ldp.testsuite.reporter;
+
+import static org.rendersnake.HtmlAttributesFactory.NO_ESCAPE;
+import static org.rendersnake.HtmlAttributesFactory.class_;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.StringResource;
+import org.testng.ITestContext;
+import org.testng.ITestResult;
+import org.testng.TestListenerAdapter;
+import org.w3.ldp.testsuite.LdpTestSuite;
+import org.w3.ldp.testsuite.filter.LatencyFilter;
+
+import com.jayway.restassured.RestAssured;
+
+/**
+ * Collects what one of two servers compared with {@code --compare} did in
+ * every run of the suite: the outcome and duration of each test, the
+ * latency of every request by HTTP method and the requests per second of
+ * each run. {@link #getRegressions(ComparisonReport)} and
+ * {@link #write(ComparisonReport, ComparisonReport, int, String)} then set
+ * the two servers side by side.
+ *
+ * <p>
+ * Latency and throughput differences count only if the Mann-Whitney test
+ * finds them significant and they are at least 10%, so noise and trivial
+ * differences between large samples are not reported as regressions.
+ * </p>
+ */
+public class ComparisonReport extends TestListenerAdapter {
+
+	public static final String FILE_NAME = "comparison.html";
+
+	private static final double SIGNIFICANCE = 0.05;
+	private static final double MIN_CHANGE = 0.1;
+
+	/** The runs of one test on one server. */
+	static class Runs {
+
+		private int passed;
+		private int failed;
+		private int skipped;
+		private final List<Long> durations = new ArrayList<>();
+
+		/**
+		 * @return passed, failed or skipped if every run agreed, the counts
+		 *         of each otherwise
+		 */
+		String getOutcome() {
+			if (failed == 0 && skipped == 0) {
+				return "passed";
+			}
+			if (passed == 0 && skipped == 0) {
+				return "failed";
+			}
+			if (passed == 0 && failed == 0) {
+				return "skipped";
+			}
+			return String.format("%d passed, %d failed, %d skipped", passed, failed, skipped);
+		}
+
+		long[] getDurations() {
+			long[] values = new long[durations.size()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = durations.get(i);
+			}
+			return values;
+		}
+	}
+
+	private final String label;
+	private final String server;
+	private final Map<String, Runs> tests = new LinkedHashMap<>();
+	private final Map<String, List<long[]>> latencies = new LinkedHashMap<>();
+	private final List<Long> throughputs = new ArrayList<>();
+	private long runStart;
+
+	/**
+	 * @param label
+	 *            the name of the server in the report, such as A or B
+	 * @param server
+	 *            the server's URI
+	 */
+	public ComparisonReport(String label, String server) {
+		this.label = label;
+		this.server = server;
+		LatencyFilter.getInstance().setKeepSamples(true);
+		if (!RestAssured.filters().contains(LatencyFilter.getInstance())) {
+			RestAssured.filters(LatencyFilter.getInstance());
+		}
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public String getServer() {
+		return server;
+	}
+
+	@Override
+	public synchronized void onStart(ITestContext testContext) {
+		// requests to the other server belong to its report
+		LatencyFilter.getInstance().nextWindow();
+		runStart = System.nanoTime();
+	}
+
+	@Override
+	public synchronized void onTestSuccess(ITestResult tr) {
+		getRuns(tr).passed++;
+	}
+
+	@Override
+	public synchronized void onTestFailure(ITestResult tr) {
+		getRuns(tr).failed++;
+	}
+
+	@Override
+	public synchronized void onTestSkipped(ITestResult tr) {
+		getRuns(tr).skipped++;
+	}
+
+	@Override
+	public synchronized void onFinish(ITestContext testContext) {
+		long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStart));
+		long requests = 0;
+		for (Map.Entry<String, LatencyFilter.Operation> entry : LatencyFilter.getInstance().nextWindow().entrySet()) {
+			long[] samples = entry.getValue().getSamples();
+			requests += samples.length;
+			List<long[]> method = latencies.get(entry.getKey());
+			if (method == null) {
+				method = new ArrayList<>();
+				latencies.put(entry.getKey(), method);
+			}
+			method.add(samples);
+		}
+		// in requests per thousand seconds, so runs compare as whole numbers
+		throughputs.add(requests * 1000000 / millis);
+	}
+
+	/**
+	 * Finds what got worse from this server to another: tests that pass
+	 * here but fail there, and HTTP methods or throughput significantly and
+	 * at least 10% slower there.
+	 *
+	 * @param after
+	 *            the server that replaces this one
+	 * @return a description of each regression
+	 */
+	public synchronized List<String> getRegressions(ComparisonReport after) {
+		List<String> regressions = new ArrayList<>();
+		for (Map.Entry<String, Runs> entry : tests.entrySet()) {
+			Runs before = entry.getValue();
+			Runs now = after.tests.get(entry.getKey());
+			if (before.passed > 0 && before.failed == 0 && now != null && now.failed > 0) {
+				regressions.add(String.format("%s passes on %s but fails on %s (%s)",
+						entry.getKey(), label, after.label, now.getOutcome()));
+			}
+		}
+		for (String method : latencies.keySet()) {
+			long[] a = getLatencies(method);
+			long[] b = after.getLatencies(method);
+			double p = MannWhitney.pValue(a, b);
+			if (b.length > 0 && p < SIGNIFICANCE && median(b) > median(a) * (1 + MIN_CHANGE)) {
+				regressions.add(String.format("%s median latency %d ms on %s, %d ms on %s (p = %.3g)",
+						method, median(b), after.label, median(a), label, p));
+			}
+		}
+		long[] a = getThroughputs();
+		long[] b = after.getThroughputs();
+		double p = MannWhitney.pValue(a, b);
+		if (p < SIGNIFICANCE && median(b) < median(a) * (1 - MIN_CHANGE)) {
+			regressions.add(String.format("throughput %.1f req/s on %s, %.1f req/s on %s (p = %.3g)",
+					median(b) / 1000.0, after.label, median(a) / 1000.0, label, p));
+		}
+		return regressions;
+	}
+
+	/**
+	 * Writes the side by side report of two servers.
+	 *
+	 * @param a
+	 *            the server compared against
+	 * @param b
+	 *            the server checked for regressions
+	 * @param rounds
+	 *            the number of times the suite ran against each server
+	 * @param outputDir
+	 *            the directory of the report
+	 * @return the report file
+	 */
+	public static File write(ComparisonReport a, ComparisonReport b, int rounds, String outputDir) throws IOException {
+		HtmlCanvas html = new HtmlCanvas();
+		html.html().head();
+		html.style().write(StringResource.get("reportStyle.css"), NO_ESCAPE)._style();
+		html.title().content(LdpTestSuite.NAME + " Comparison")._head().body();
+		html.h1().content(LdpTestSuite.NAME + " Comparison");
+
+		html.table(class_("indented"));
+		html.tr().th().content("Server");
+		html.th().content("URI");
+		html.th().content("Runs")._tr();
+		for (ComparisonReport report : Arrays.asList(a, b)) {
+			html.tr().td().content(report.label);
+			html.td().content(report.server);
+			html.td().content(String.valueOf(rounds))._tr();
+		}
+		html._table();
+		html.p().content("The suite ran against " + a.label + " and " + b.label + " in turns, starting with each "
+				+ "server every other round. Differences are significant if the Mann-Whitney test gives p < "
+				+ SIGNIFICANCE + ".");
+
+		html.h2().content("Regressions from " + a.label + " to " + b.label);
+		List<String> regressions = a.getRegressions(b);
+		if (regressions.isEmpty()) {
+			html.div(class_("indented")).i().content("None")._div();
+		} else {
+			html.ul();
+			for (String regression : regressions) {
+				html.li(class_("Failed")).content(regression);
+			}
+			html._ul();
+		}
+
+		html.h2().content("Conformance Differences");
+		html.table(class_("indented"));
+		html.tr().th().content("Test");
+		html.th().content(a.label);
+		html.th().content(b.label)._tr();
+		Set<String> names = new LinkedHashSet<>(a.tests.keySet());
+		names.addAll(b.tests.keySet());
+		int differences = 0;
+		for (String name : names) {
+			String before = a.tests.containsKey(name) ? a.tests.get(name).getOutcome() : "not run";
+			String after = b.tests.containsKey(name) ? b.tests.get(name).getOutcome() : "not run";
+			if (!before.equals(after)) {
+				html.tr().td().content(name);
+				html.td(class_(cssClass(before))).content(before);
+				html.td(class_(cssClass(after))).content(after)._tr();
+				differences++;
+			}
+		}
+		html._table();
+		if (differences == 0) {
+			html.div(class_("indented")).i().content("Every test had the same outcome on both servers")._div();
+		}
+
+		html.h2().content("Latency by HTTP Method");
+		html.table(class_("indented"));
+		html.tr().th().content("Method");
+		for (ComparisonReport report : Arrays.asList(a, b)) {
+			html.th().content(report.label + " Requests");
+			html.th().content(report.label + " p50 (ms)");
+			html.th().content(report.label + " p95 (ms)");
+		}
+		html.th().content("p50 Change");
+		html.th().content("p")._tr();
+		Set<String> methods = new LinkedHashSet<>(a.latencies.keySet());
+		methods.addAll(b.latencies.keySet());
+		for (String method : methods) {
+			long[] before = a.getLatencies(method);
+			long[] after = b.getLatencies(method);
+			double p = MannWhitney.pValue(before, after);
+			html.tr().td().content(method);
+			for (long[] values : Arrays.asList(before, after)) {
+				html.td().content(String.valueOf(values.length));
+				html.td().content(String.valueOf(median(values)));
+				html.td().content(String.valueOf(percentile(values, 95)));
+			}
+			html.td().content(change(median(before), median(after)));
+			html.td(class_(p < SIGNIFICANCE ? "Failed" : "")).content(String.format("%.3g", p))._tr();
+		}
+		html._table();
+
+		html.h2().content("Throughput");
+		long[] before = a.getThroughputs();
+		long[] after = b.getThroughputs();
+		html.table(class_("indented"));
+		html.tr().th().content(a.label + " Median (req/s)");
+		html.th().content(b.label + " Median (req/s)");
+		html.th().content("Change");
+		html.th().content("p")._tr();
+		double p = MannWhitney.pValue(before, after);
+		html.tr().td().content(String.format("%.1f", median(before) / 1000.0));
+		html.td().content(String.format("%.1f", median(after) / 1000.0));
+		html.td().content(change(median(before), median(after)));
+		html.td(class_(p < SIGNIFICANCE ? "Failed" : "")).content(String.format("%.3g", p))._tr();
+		html._table();
+		html.p().content("Requests per second of whole runs of the suite; with few rounds, no difference can be significant.");
+
+		html.h2().content("Test Durations");
+		html.table(class_("indented"));
+		html.tr().th().content("Test");
+		html.th().content(a.label + " Median (ms)");
+		html.th().content(b.label + " Median (ms)");
+		html.th().content("Change")._tr();
+		for (String name : names) {
+			// skipped everywhere, nothing to compare
+			if (a.tests.containsKey(name) && b.tests.containsKey(name)
+					&& !a.tests.get(name).durations.isEmpty() && !b.tests.get(name).durations.isEmpty()) {
+				long beforeMillis = median(a.tests.get(name).getDurations());
+				long afterMillis = median(b.tests.get(name).getDurations());
+				html.tr().td().content(name);
+				html.td().content(String.valueOf(beforeMillis));
+				html.td().content(String.valueOf(afterMillis));
+				html.td().content(change(beforeMillis, afterMillis))._tr();
+			}
+		}
+		html._table();
+		html._body()._html();
+
+		File directory = new File(outputDir);
+		directory.mkdirs();
+		File file = new File(directory, FILE_NAME);
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+			writer.write(html.toHtml());
+		}
+		return file;
+	}
+
+	private Runs getRuns(ITestResult tr) {
+		String name = tr.getTestClass().getRealClass().getSimpleName() + "." + tr.getName();
+		Runs runs = tests.get(name);
+		if (runs == null) {
+			runs = new Runs();
+			tests.put(name, runs);
+		}
+		if (tr.getStatus() != ITestResult.SKIP) {
+			runs.durations.add(tr.getEndMillis() - tr.getStartMillis());
+		}
+		return runs;
+	}
+
+	private synchronized long[] getLatencies(String method) {
+		List<long[]> runs = latencies.get(method);
+		if (runs == null) {
+			return new long[0];
+		}
+		int size = 0;
+		for (long[] run : runs) {
+			size += run.length;
+		}
+		long[] all = new long[size];
+		int i = 0;
+		for (long[] run : runs) {
+			System.arraycopy(run, 0, all, i, run.length);
+			i += run.length;
+		}
+		return all;
+	}
+
+	private synchronized long[] getThroughputs() {
+		long[] values = new long[throughputs.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = throughputs.get(i);
+		}
+		return values;
+	}
+
+	private static long median(long[] values) {
+		return percentile(values, 50);
+	}
+
+	private static long percentile(long[] values, double percentile) {
+		if (values.length == 0) {
+			return 0;
+		}
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(sorted.length * percentile / 100);
+		return sorted[Math.max(0, rank - 1)];
+	}
+
+	private static String change(long before, long after) {
+		return before == 0 ? "-" : String.format("%+.0f%%", (after - before) * 100.0 / before);
+	}
+
+	private static String cssClass(String outcome) {
+		switch (outcome) {
+			case "passed":
+				return "Passed";
+			case "skipped":
+				return "Skipped";
+			default:
+				return "Failed";
+		}
+	}
+
+}
@@ -0,0 +1,208 @@
+package org.w3.ldp.testsuite.reporter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.ITestResult;
+import org.testng.TestListenerAdapter;
+
+/**
+ * Collects the outcome and duration of every run of every test when the
+ * suite runs each test several times ({@code --iterations}), so the reports
+ * can tell a test that always fails from one that only fails sometimes, and
+ * a slow test from a noisy one.
+ */
+public class IterationStatistics extends TestListenerAdapter {
+
+	private static IterationStatistics active;
+
+	/** The runs of one test. */
+	public static class Runs {
+
+		private final String testClass;
+		private final String name;
+		private final List<Long> durations = new ArrayList<>();
+		private int passed;
+		private int failed;
+		private int skipped;
+
+		Runs(String testClass, String name) {
+			this.testClass = testClass;
+			this.name = name;
+		}
+
+		public String getTestClass() {
+			return testClass;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public synchronized int getPassed() {
+			return passed;
+		}
+
+		public synchronized int getFailed() {
+			return failed;
+		}
+
+		public synchronized int getSkipped() {
+			return skipped;
+		}
+
+		/**
+		 * @return passed runs out of the runs that passed or failed, or -1
+		 *         if every run was skipped
+		 */
+		public synchronized double getPassRatio() {
+			int decided = passed + failed;
+			return decided == 0 ? -1 : (double) passed / decided;
+		}
+
+		/**
+		 * @return true if the test both passed and failed
+		 */
+		public synchronized boolean isFlaky() {
+			return passed > 0 && failed > 0;
+		}
+
+		public synchronized long getMinMillis() {
+			return durations.isEmpty() ? 0 : sorted().get(0);
+		}
+
+		public synchronized long getMedianMillis() {
+			return percentile(50);
+		}
+
+		public synchronized long getP95Millis() {
+			return percentile(95);
+		}
+
+		public synchronized long getMaxMillis() {
+			return durations.isEmpty() ? 0 : sorted().get(durations.size() - 1);
+		}
+
+		/**
+		 * @return the standard deviation of the durations divided by their
+		 *         mean, or 0 with fewer than two runs
+		 */
+		public synchronized double getCoefficientOfVariation() {
+			int n = durations.size();
+			if (n < 2) {
+				return 0;
+			}
+			double sum = 0;
+			for (long duration : durations) {
+				sum += duration;
+			}
+			double mean = sum / n;
+			if (mean == 0) {
+				return 0;
+			}
+			double squares = 0;
+			for (long duration : durations) {
+				squares += (duration - mean) * (duration - mean);
+			}
+			return Math.sqrt(squares / (n - 1)) / mean;
+		}
+
+		private synchronized void add(ITestResult result) {
+			switch (result.getStatus()) {
+				case ITestResult.SUCCESS:
+					passed++;
+					break;
+				case ITestResult.FAILURE:
+				case ITestResult.SUCCESS_PERCENTAGE_FAILURE:
+					failed++;
+					break;
+				default:
+					skipped++;
+					// a skipped run takes no time worth comparing
+					return;
+			}
+			durations.add(result.getEndMillis() - result.getStartMillis());
+		}
+
+		private long percentile(double percentile) {
+			if (durations.isEmpty()) {
+				return 0;
+			}
+			List<Long> sorted = sorted();
+			int rank = (int) Math.ceil(sorted.size() * percentile / 100);
+			return sorted.get(Math.max(0, rank - 1));
+		}
+
+		private List<Long> sorted() {
+			List<Long> sorted = new ArrayList<>(durations);
+			Collections.sort(sorted);
+			return sorted;
+		}
+	}
+
+	private final Map<String, Runs> runs = new LinkedHashMap<>();
+
+	public IterationStatistics() {
+		active = this;
+	}
+
+	/**
+	 * @return the statistics of the run in progress, or null if tests run
+	 *         only once
+	 */
+	public static IterationStatistics getActive() {
+		return active;
+	}
+
+	@Override
+	public void onTestSuccess(ITestResult tr) {
+		getRuns(tr).add(tr);
+	}
+
+	@Override
+	public void onTestFailure(ITestResult tr) {
+		getRuns(tr).add(tr);
+	}
+
+	@Override
+	public void onTestSkipped(ITestResult tr) {
+		getRuns(tr).add(tr);
+	}
+
+	/**
+	 * @param testClass
+	 *            the simple name of the test class
+	 * @param name
+	 *            the test method
+	 * @return the runs of the test, or null if it did not run
+	 */
+	public synchronized Runs getRuns(String testClass, String name) {
+		return runs.get(key(testClass, name));
+	}
+
+	/**
+	 * @return the runs of each test, in the order the tests first ran
+	 */
+	public synchronized List<Runs> getAllRuns() {
+		return new ArrayList<>(runs.values());
+	}
+
+	private synchronized Runs getRuns(ITestResult tr) {
+		String testClass = tr.getTestClass().getRealClass().getSimpleName();
+		String key = key(testClass, tr.getName());
+		Runs test = runs.get(key);
+		if (test == null) {
+			test = new Runs(testClass, tr.getName());
+			runs.put(key, test);
+		}
+		return test;
+	}
+
+	private static String key(String testClass, String name) {
+		return testClass + "." + name;
+	}
+
+}
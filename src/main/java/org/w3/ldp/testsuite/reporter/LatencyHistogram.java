@@ -0,0 +1,95 @@
+package org.w3.ldp.testsuite.reporter;
+
+/**
+ * Latencies in logarithmic buckets, each 10% wider than the one before, so a
+ * histogram takes the same small amount of memory however many requests it
+ * counts and percentiles are accurate to within 10%.
+ */
+public class LatencyHistogram {
+
+	private static final double GROWTH = 1.1;
+
+	/** Enough buckets for about two days. */
+	private static final int BUCKETS = 200;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+	private long totalMillis;
+	private long maxMillis;
+
+	public synchronized void record(long millis) {
+		millis = Math.max(0, millis);
+		counts[bucket(millis)]++;
+		count++;
+		totalMillis += millis;
+		maxMillis = Math.max(maxMillis, millis);
+	}
+
+	/**
+	 * Adds the latencies counted by another histogram to this one.
+	 */
+	public void add(LatencyHistogram other) {
+		long[] otherCounts;
+		long otherCount, otherTotal, otherMax;
+		synchronized (other) {
+			otherCounts = other.counts.clone();
+			otherCount = other.count;
+			otherTotal = other.totalMillis;
+			otherMax = other.maxMillis;
+		}
+		synchronized (this) {
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] += otherCounts[i];
+			}
+			count += otherCount;
+			totalMillis += otherTotal;
+			maxMillis = Math.max(maxMillis, otherMax);
+		}
+	}
+
+	public synchronized long getCount() {
+		return count;
+	}
+
+	public synchronized long getMeanMillis() {
+		return count == 0 ? 0 : totalMillis / count;
+	}
+
+	public synchronized long getMaxMillis() {
+		return maxMillis;
+	}
+
+	/**
+	 * @param percentile
+	 *            the percentile, between 0 and 100
+	 * @return the upper bound of the bucket holding the percentile, never
+	 *         more than the largest latency recorded, or 0 if empty
+	 */
+	public synchronized long getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(maxMillis, upperBound(i));
+			}
+		}
+		return maxMillis;
+	}
+
+	private static int bucket(long millis) {
+		if (millis == 0) {
+			return 0;
+		}
+		int bucket = (int) Math.ceil(Math.log(millis) / Math.log(GROWTH)) + 1;
+		return Math.min(BUCKETS - 1, bucket);
+	}
+
+	private static long upperBound(int bucket) {
+		return bucket == 0 ? 0 : (long) Math.floor(Math.pow(GROWTH, bucket - 1));
+	}
+
+}
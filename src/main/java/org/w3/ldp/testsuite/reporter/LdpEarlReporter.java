@@ -5,9 +5,12 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.testng.IReporter;
 import org.testng.IResultMap;
@@ -67,12 +70,29 @@ public class LdpEarlReporter extends AbstractEarlReporter implements IReporter {
 	private static Property ranAsClass = ResourceFactory
 			.createProperty(LDP.LDPT_NAMESPACE + "ranAsClass");
 
+	// statistics over the runs of a test with --iterations
+	private static Property iterations = ResourceFactory.createProperty(LDP.LDPT_NAMESPACE + "iterations");
+	private static Property passRatio = ResourceFactory.createProperty(LDP.LDPT_NAMESPACE + "passRatio");
+	private static Property minMillis = ResourceFactory.createProperty(LDP.LDPT_NAMESPACE + "minMillis");
+	private static Property medianMillis = ResourceFactory.createProperty(LDP.LDPT_NAMESPACE + "medianMillis");
+	private static Property p95Millis = ResourceFactory.createProperty(LDP.LDPT_NAMESPACE + "p95Millis");
+	private static Property maxMillis = ResourceFactory.createProperty(LDP.LDPT_NAMESPACE + "maxMillis");
+	private static Property coefficientOfVariation = ResourceFactory.createProperty(LDP.LDPT_NAMESPACE + "coefficientOfVariation");
+
+	// time spent in each phase of the requests of a test, by operation
+	private static Property requestTiming = ResourceFactory.createProperty(LDP.LDPT_NAMESPACE + "requestTiming");
+	private static Property operation = ResourceFactory.createProperty(LDP.LDPT_NAMESPACE + "operation");
+	private static Property requests = ResourceFactory.createProperty(LDP.LDPT_NAMESPACE + "requests");
+
 	private static String TITLE = "ldp-testsuite";
 
 	private IResultMap passedTests;
 	private IResultMap failedTests;
 	private IResultMap skippedTests;
 
+	/** Tests already asserted, so repeated runs of a test make one assertion. */
+	private final Set<String> asserted = new HashSet<>();
+
 	private String outputDirectory = LdpTestSuite.OUTPUT_DIR;
 
 	public void setOutputDirectory(String outputDirectory) {
@@ -113,6 +133,7 @@ public class LdpEarlReporter extends AbstractEarlReporter implements IReporter {
 	}
 
 	private void createAssertions(List<ISuite> suites) {
+		asserted.clear();
 		for (ISuite suite : suites) {
 			// Acquire parameters
 			// direct = suite.getParameter("directContainer");
@@ -190,9 +211,11 @@ public class LdpEarlReporter extends AbstractEarlReporter implements IReporter {
 				passedTests = testContext.getPassedTests();
 				failedTests = testContext.getFailedTests();
 				skippedTests = testContext.getSkippedTests();
+				// with --iterations, the first result of a test makes its assertion, so the
+				// results telling the most about it come first
 				getResultProperties(failedTests, FAIL);
-				getResultProperties(skippedTests, SKIP);
 				getResultProperties(passedTests, PASS);
+				getResultProperties(skippedTests, SKIP);
 			}
 
 		}
@@ -210,6 +233,21 @@ public class LdpEarlReporter extends AbstractEarlReporter implements IReporter {
 		className = className.substring(className
 				.lastIndexOf(".") + 1);
 
+		// with --iterations, a test makes one assertion whose outcome covers all
+		// of its runs so far, including those of earlier suite runs with --interleave:
+		// failed if any run failed, passed if any passed, skipped otherwise
+		IterationStatistics statistics = IterationStatistics.getActive();
+		IterationStatistics.Runs runs = null;
+		if (statistics != null) {
+			if (!asserted.add(className + "." + result.getName())) {
+				return;
+			}
+			runs = statistics.getRuns(result.getTestClass().getRealClass().getSimpleName(), result.getName());
+			if (runs != null) {
+				status = runs.getFailed() > 0 ? FAIL : runs.getPassed() > 0 ? PASS : SKIP;
+			}
+		}
+
 		Resource assertionResource = model.createResource(null, Earl.Assertion);
 
 		Resource resultResource = model.createResource(null, Earl.TestResult);
@@ -302,6 +340,29 @@ public class LdpEarlReporter extends AbstractEarlReporter implements IReporter {
 
 		resultResource.addProperty(DCTerms.date, model.createTypedLiteral(GregorianCalendar.getInstance()));
 
+		if (runs != null) {
+			resultResource.addLiteral(iterations, runs.getPassed() + runs.getFailed() + runs.getSkipped());
+			if (runs.getPassRatio() >= 0) {
+				resultResource.addLiteral(passRatio, runs.getPassRatio());
+			}
+			resultResource.addLiteral(minMillis, runs.getMinMillis());
+			resultResource.addLiteral(medianMillis, runs.getMedianMillis());
+			resultResource.addLiteral(p95Millis, runs.getP95Millis());
+			resultResource.addLiteral(maxMillis, runs.getMaxMillis());
+			resultResource.addLiteral(coefficientOfVariation, runs.getCoefficientOfVariation());
+		}
+
+		for (Map.Entry<String, RequestTimings.Operation> entry : RequestTimings.get(result).entrySet()) {
+			Resource timing = model.createResource();
+			timing.addLiteral(operation, entry.getKey());
+			timing.addLiteral(requests, entry.getValue().getRequests());
+			for (RequestTimings.Phase phase : RequestTimings.Phase.values()) {
+				timing.addLiteral(ResourceFactory.createProperty(LDP.LDPT_NAMESPACE, phase.name().toLowerCase(Locale.ENGLISH) + "Millis"),
+						entry.getValue().getMillis(phase));
+			}
+			resultResource.addProperty(requestTiming, timing);
+		}
+
 		/*
 		 * Add the above resources to the Assertion Resource
 		 */
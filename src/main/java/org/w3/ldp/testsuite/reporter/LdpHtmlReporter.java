@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.lang3.StringUtils;
 import org.rendersnake.HtmlCanvas;
 import org.rendersnake.StringResource;
 import org.testng.IReporter;
@@ -38,6 +39,10 @@ import org.w3.ldp.testsuite.LdpTestSuite;
 import org.w3.ldp.testsuite.annotations.SpecTest;
 import org.w3.ldp.testsuite.annotations.SpecTest.METHOD;
 import org.w3.ldp.testsuite.annotations.SpecTest.STATUS;
+import org.w3.ldp.testsuite.filter.LatencyFilter;
+import org.w3.ldp.testsuite.filter.RequestLimiter;
+import org.w3.ldp.testsuite.http.RequestWatchdog;
+import org.w3.ldp.testsuite.http.RetryPolicy;
 
 /**
  * HTML reporter for the LDP test suite. Takes the results of the test methods
@@ -93,6 +98,7 @@ public class LdpHtmlReporter implements IReporter {
 	public void generateReport(List<XmlSuite> xmlSuites, List<ISuite> suites, String outputDirectory) {
 		try {
 			for (ISuite suite : suites) {
+				reset();
 				html = new HtmlCanvas();
 				html.html().head();
 
@@ -134,6 +140,23 @@ public class LdpHtmlReporter implements IReporter {
 				
 				html.br();
 				generateOverallSummaryReport(suites, "summary");
+				if (SoakReport.getActive() != null) {
+					generateSoakSummary(SoakReport.getActive());
+				}
+				if (IterationStatistics.getActive() != null) {
+					generateIterationSummary(IterationStatistics.getActive());
+				}
+				if (RequestLimiter.getActive() != null) {
+					generateLimiterSummary(RequestLimiter.getActive());
+				}
+				if (RetryPolicy.getActive() != null) {
+					generateRetrySummary(RetryPolicy.getActive());
+				}
+				if (RequestWatchdog.getActive() != null && !RequestWatchdog.getActive().getTimeouts().isEmpty()) {
+					generateTimeoutSummary(RequestWatchdog.getActive());
+				}
+				generateTimingSummary();
+				generateServerTimingSummary();
 				displayGroupsInfo(suites);
 				displayMethodsSummary(suites);
 				toTop();
@@ -160,6 +183,19 @@ public class LdpHtmlReporter implements IReporter {
 		}
 	}
 	
+	/**
+	 * Clears the counts of the previous report, for when the suite runs
+	 * more than once in the same JVM (see {@link SoakReport}).
+	 */
+	private void reset() {
+		passed = failed = skipped = total = 0;
+		mustPass = shouldPass = mayPass = 0;
+		mustFailed = shouldFailed = mayFailed = 0;
+		mustSkip = shouldSkip = maySkip = 0;
+		indirect.clear();
+		graphs = new StringWriter();
+	}
+
 	public void setTitle(String title) {
 		this.outputName = title;
 	}
@@ -280,6 +316,214 @@ public class LdpHtmlReporter implements IReporter {
 
 	}
 
+	private void generateIterationSummary(IterationStatistics statistics) throws IOException {
+		html.h2().content("Iteration Statistics");
+		html.table(class_("indented"));
+		html.tr().th().content("Test");
+		html.th().content("Class");
+		html.th().content("Passed");
+		html.th().content("Failed");
+		html.th().content("Skipped");
+		html.th().content("Pass Ratio");
+		html.th().content("Min (ms)");
+		html.th().content("Median (ms)");
+		html.th().content("p95 (ms)");
+		html.th().content("Max (ms)");
+		html.th().content("CV")._tr();
+		for (IterationStatistics.Runs runs : statistics.getAllRuns()) {
+			double ratio = runs.getPassRatio();
+			String status = runs.isFlaky() ? FAIL : runs.getFailed() > 0 ? FAIL : runs.getPassed() > 0 ? PASS : SKIP;
+			html.tr().td().a(href("#" + runs.getName())).content(runs.getName())._td();
+			html.td().content(runs.getTestClass());
+			html.td().content(String.valueOf(runs.getPassed()));
+			html.td().content(String.valueOf(runs.getFailed()));
+			html.td().content(String.valueOf(runs.getSkipped()));
+			html.td(class_(status)).content(ratio < 0 ? "-" : String.format("%.0f%%%s", ratio * 100, runs.isFlaky() ? " (flaky)" : ""));
+			html.td().content(String.valueOf(runs.getMinMillis()));
+			html.td().content(String.valueOf(runs.getMedianMillis()));
+			html.td().content(String.valueOf(runs.getP95Millis()));
+			html.td().content(String.valueOf(runs.getMaxMillis()));
+			html.td().content(String.format("%.2f", runs.getCoefficientOfVariation()))._tr();
+		}
+		html._table();
+	}
+
+	private void generateLimiterSummary(RequestLimiter limiter) throws IOException {
+		html.h2().content("Request Limiter");
+		html.table(class_("indented"));
+		html.tr().th().content("Max Rate (req/s)");
+		html.th().content("Max Concurrency");
+		html.th().content("Requests");
+		html.th().content("429/503");
+		html.th().content("Failed");
+		html.th().content("Held Back (ms)");
+		html.th().content("Concurrency Limit (lowest / highest / last)")._tr();
+		html.tr().td().content(limiter.getMaxRate() > 0 ? String.valueOf(limiter.getMaxRate()) : "-");
+		html.td().content(limiter.getMaxConcurrency() > 0 ? String.valueOf(limiter.getMaxConcurrency()) : "-");
+		html.td().content(String.valueOf(limiter.getRequests()));
+		html.td().content(String.valueOf(limiter.getThrottled()));
+		html.td().content(String.valueOf(limiter.getFailures()));
+		html.td().content(String.valueOf(limiter.getWaitedMillis()));
+		html.td().content(limiter.getMaxConcurrency() > 0 ? limiter.getLowestLimit() + " / "
+				+ limiter.getHighestLimit() + " / " + limiter.getLimit() : "-")._tr();
+		html._table();
+
+		List<RequestLimiter.Change> changes = limiter.getChanges();
+		if (changes.size() > 1) {
+			html.table(class_("indented"));
+			html.tr().th().content("Elapsed (s)");
+			html.th().content("Concurrency Limit");
+			html.th().content("Reason")._tr();
+			// the first and last changes and an even spread in between
+			int step = Math.max(1, changes.size() / 50);
+			for (int i = 0; i < changes.size(); i++) {
+				if (i % step != 0 && i != changes.size() - 1) {
+					continue;
+				}
+				RequestLimiter.Change change = changes.get(i);
+				html.tr().td().content(String.format("%.1f", change.getElapsedMillis() / 1000.0));
+				html.td().content(String.valueOf(change.getLimit()));
+				html.td().content(change.getReason())._tr();
+			}
+			html._table();
+		}
+	}
+
+	private void generateRetrySummary(RetryPolicy policy) throws IOException {
+		html.h2().content("Retried Requests");
+		List<RetryPolicy.Retry> retried = policy.getRetried();
+		List<String> events = policy.getBreakerEvents();
+		if (retried.isEmpty() && events.isEmpty()) {
+			html.div(style("padding-left:2em")).i()
+					.content("No request needed a retry")
+					._div();
+			return;
+		}
+		if (!events.isEmpty()) {
+			html.ul();
+			for (String event : events) {
+				html.li(class_("Skipped")).content(event);
+			}
+			html._ul();
+		}
+		if (!retried.isEmpty()) {
+			html.table(class_("indented"));
+			html.tr().th().content("Test");
+			html.th().content("Request");
+			html.th().content("Attempts");
+			html.th().content("Errors");
+			html.th().content("Result")._tr();
+			for (RetryPolicy.Retry retry : retried) {
+				int attempts = retry.getErrors().size() + (retry.isSucceeded() ? 1 : 0);
+				html.tr().td().content(retry.getTest() != null ? retry.getTest() : "-");
+				html.td().content(retry.getRequest());
+				html.td().content(String.valueOf(attempts));
+				html.td().content(StringUtils.join(retry.getErrors(), "; "));
+				html.td(class_(retry.isSucceeded() ? "Passed" : "Failed"))
+						.content(retry.isSucceeded() ? "succeeded" : "gave up")._tr();
+			}
+			html._table();
+		}
+	}
+
+	private void generateTimeoutSummary(RequestWatchdog watchdog) throws IOException {
+		html.h2().content("Aborted Requests");
+		html.ul();
+		for (String timeout : watchdog.getTimeouts()) {
+			html.li(class_("Failed")).content(timeout);
+		}
+		html._ul();
+	}
+
+	private List<ITestResult> getAllResults() {
+		List<ITestResult> results = new ArrayList<>();
+		results.addAll(passedTests.getAllResults());
+		results.addAll(failedTests.getAllResults());
+		results.addAll(skippedTests.getAllResults());
+		return results;
+	}
+
+	private void generateTimingSummary() throws IOException {
+		Map<String, RequestTimings.Operation> timings = RequestTimings.aggregate(getAllResults());
+		if (timings.isEmpty()) {
+			return;
+		}
+		RequestTimings.Operation all = new RequestTimings.Operation();
+		for (RequestTimings.Operation operation : timings.values()) {
+			all.add(operation);
+		}
+		timings.put("all", all);
+		html.h2().content("Request Timing");
+		createTimingsTable(timings);
+		html.p().content("Total milliseconds spent in each phase by the requests of all tests. "
+				+ "DNS, Connect and TLS are the network, TTFB and Transfer mostly the server, Parse the test suite.");
+	}
+
+	private void generateServerTimingSummary() throws IOException {
+		Map<String, ServerTimings.Operation> timings = ServerTimings.aggregate(getAllResults());
+		if (timings.isEmpty()) {
+			return;
+		}
+		html.h2().content("Server Timing");
+		createServerTimingsTable(timings);
+		html.p().content("Durations reported by the server in Server-Timing headers, next to the latency "
+				+ "the test suite saw up to the response headers. Share is the part of that latency a metric "
+				+ "accounts for; correlation, from -1 to 1, how closely the metric follows it from one response to the next.");
+	}
+
+	private void generateSoakSummary(SoakReport soak) throws IOException {
+		html.h2().content("Soak Test Summary");
+		List<String> degradations = soak.getDegradations();
+		if (degradations.isEmpty()) {
+			html.div(style("padding-left:2em")).i()
+					.content("No degradation detected (compares the last run to the second one, at least three runs needed)")
+					._div();
+		} else {
+			html.ul();
+			for (String degradation : degradations) {
+				html.li(class_("Failed")).content(degradation);
+			}
+			html._ul();
+		}
+
+		html.table(class_("indented"));
+		html.tr().th().content("Run");
+		html.th().content("Elapsed (s)");
+		html.th().content("Requests");
+		html.th().content("p50 (ms)");
+		html.th().content("p95 (ms)");
+		html.th().content("p99 (ms)");
+		html.th().content("5xx");
+		html.th().content("Failed Tests");
+		html.th().content("Container Size")._tr();
+		html.tr().td().content("before");
+		html.td().content("0");
+		html.td().content("");
+		html.td().content("");
+		html.td().content("");
+		html.td().content("");
+		html.td().content("");
+		html.td().content("");
+		html.td().content(String.valueOf(soak.getBaselineSize()))._tr();
+		for (SoakReport.Window window : soak.getWindows()) {
+			LatencyHistogram latency = new LatencyHistogram();
+			for (LatencyFilter.Operation operation : window.getOperations().values()) {
+				latency.add(operation.getLatency());
+			}
+			html.tr().td().content(String.valueOf(window.getNumber()));
+			html.td().content(String.valueOf(window.getElapsedSeconds()));
+			html.td().content(String.valueOf(window.getRequests()));
+			html.td().content(String.valueOf(latency.getPercentile(50)));
+			html.td().content(String.valueOf(latency.getPercentile(95)));
+			html.td().content(String.valueOf(latency.getPercentile(99)));
+			html.td().content(String.valueOf(window.getServerErrors()));
+			html.td().content(String.valueOf(window.getFailedTests()));
+			html.td().content(String.valueOf(window.getContainerSize()))._tr();
+		}
+		html._table();
+		html.p().content("Latencies by HTTP method and test for every run: " + SoakReport.FILE_NAME);
+	}
+
 	private void generateSummaryTableStart(Date date, String suiteName)
 			throws IOException {
 		html.tr().th().content("Test Suite Name");
@@ -563,6 +807,21 @@ public class LdpHtmlReporter implements IReporter {
 					.write(parameters)._p();
 		}
 
+		Map<String, String> measurements = TestMeasurements.get(m);
+		if (!measurements.isEmpty()) {
+			createMeasurementsTable(measurements);
+		}
+
+		Map<String, RequestTimings.Operation> timings = RequestTimings.get(m);
+		if (!timings.isEmpty()) {
+			createTimingsTable(timings);
+		}
+
+		Map<String, ServerTimings.Operation> serverTimings = ServerTimings.get(m);
+		if (!serverTimings.isEmpty()) {
+			createServerTimingsTable(serverTimings);
+		}
+
 		if (m.getMethod().getConstructorOrMethod().getMethod()
 				.getAnnotation(SpecTest.class) != null) {
 			SpecTest testLdp = m.getMethod().getConstructorOrMethod().getMethod()
@@ -646,6 +905,75 @@ public class LdpHtmlReporter implements IReporter {
 
 	}
 
+	private void createMeasurementsTable(Map<String, String> measurements) throws IOException {
+		html.table(class_("indented"));
+		html.tr().th().content("Measurement");
+		html.th().content("Value")._tr();
+		for (Map.Entry<String, String> measurement : measurements.entrySet()) {
+			html.tr().td().content(measurement.getKey());
+			html.td().content(measurement.getValue())._tr();
+		}
+		html._table();
+	}
+
+	private void createTimingsTable(Map<String, RequestTimings.Operation> timings) throws IOException {
+		html.table(class_("indented"));
+		html.tr().th().content("Operation");
+		html.th().content("Requests");
+		for (RequestTimings.Phase phase : RequestTimings.Phase.values()) {
+			html.th().content(phase.getLabel() + " (ms)");
+		}
+		html._tr();
+		for (Map.Entry<String, RequestTimings.Operation> entry : timings.entrySet()) {
+			RequestTimings.Operation operation = entry.getValue();
+			html.tr().td().content(entry.getKey());
+			html.td().content(String.valueOf(operation.getRequests()));
+			for (RequestTimings.Phase phase : RequestTimings.Phase.values()) {
+				html.td().content(String.format("%.1f", operation.getMillis(phase)));
+			}
+			html._tr();
+		}
+		html._table();
+	}
+
+	private void createServerTimingsTable(Map<String, ServerTimings.Operation> timings) throws IOException {
+		html.table(class_("indented"));
+		html.tr().th().content("Operation");
+		html.th().content("Metric");
+		html.th().content("Responses");
+		html.th().content("p50 (ms)");
+		html.th().content("p95 (ms)");
+		html.th().content("Max (ms)");
+		html.th().content("Share");
+		html.th().content("Correlation")._tr();
+		for (Map.Entry<String, ServerTimings.Operation> entry : timings.entrySet()) {
+			LatencyHistogram latency = entry.getValue().getLatency();
+			html.tr().td().content(entry.getKey());
+			html.td().i().content("latency")._td();
+			writeHistogramCells(latency);
+			html.td().content("");
+			html.td().content("")._tr();
+			for (Map.Entry<String, ServerTimings.Metric> metric : entry.getValue().getMetrics().entrySet()) {
+				ServerTimings.Metric value = metric.getValue();
+				html.tr().td().content(entry.getKey());
+				html.td().content(metric.getKey());
+				writeHistogramCells(value.getDuration());
+				html.td().content(value.getLatencyMillis() > 0
+						? String.format("%.0f%%", 100 * value.getTotalMillis() / value.getLatencyMillis()) : "-");
+				html.td().content(Double.isNaN(value.getCorrelation())
+						? "-" : String.format("%.2f", value.getCorrelation()))._tr();
+			}
+		}
+		html._table();
+	}
+
+	private void writeHistogramCells(LatencyHistogram histogram) throws IOException {
+		html.td().content(String.valueOf(histogram.getCount()));
+		html.td().content(String.valueOf(histogram.getPercentile(50)));
+		html.td().content(String.valueOf(histogram.getPercentile(95)));
+		html.td().content(String.valueOf(histogram.getMaxMillis()));
+	}
+
 	private void createThrownTable(Throwable thrown) throws IOException {
 		html.table(class_("indented"));
 		html.tr(class_("center")).th(class_("Failed")).content("[FAILED TEST]")
@@ -1,6 +1,7 @@
 package org.w3.ldp.testsuite.reporter;
 
 import java.util.Arrays;
+import java.util.Map;
 
 import org.apache.commons.lang3.text.WordUtils;
 import org.testng.ITestContext;
@@ -80,5 +81,9 @@ public class LdpTestListener extends TestListenerAdapter {
 						.replaceAll("Test", ""), status,
 				Arrays.toString(tr.getMethod().getGroups()),
 				(tr.getEndMillis() - tr.getStartMillis()) + "ms");
+
+		for (Map.Entry<String, String> measurement : TestMeasurements.get(tr).entrySet()) {
+			System.out.printf("    %-46s %s%n", measurement.getKey(), measurement.getValue());
+		}
 	}
 }
@@ -0,0 +1,88 @@
+package org.w3.ldp.testsuite.reporter;
+
+import java.util.Arrays;
+
+/**
+ * The Mann-Whitney U test: are the values of one sample systematically
+ * larger or smaller than those of another? It compares ranks rather than
+ * means, so it needs no assumption about the shape of the distributions
+ * and a few very slow requests cannot dominate it, which suits latencies.
+ */
+public class MannWhitney {
+
+	private MannWhitney() {
+	}
+
+	/**
+	 * Two-sided p-value of the normal approximation with a correction for
+	 * ties, which latencies in whole milliseconds have plenty of. Reliable
+	 * from about eight values per sample.
+	 *
+	 * @param a
+	 *            the first sample
+	 * @param b
+	 *            the second sample
+	 * @return the probability of a difference at least this large between
+	 *         the samples if both came from the same distribution, or 1 if
+	 *         either sample is empty or all values are equal
+	 */
+	public static double pValue(long[] a, long[] b) {
+		int n1 = a.length;
+		int n2 = b.length;
+		if (n1 == 0 || n2 == 0) {
+			return 1;
+		}
+
+		// tag each value with its sample in the low bit so one sort ranks both
+		long[] all = new long[n1 + n2];
+		for (int i = 0; i < n1; i++) {
+			all[i] = a[i] << 1;
+		}
+		for (int i = 0; i < n2; i++) {
+			all[n1 + i] = (b[i] << 1) | 1;
+		}
+		Arrays.sort(all);
+
+		double rankSumA = 0;
+		double ties = 0;
+		int n = all.length;
+		for (int i = 0; i < n; ) {
+			int j = i;
+			while (j < n && (all[j] >> 1) == (all[i] >> 1)) {
+				j++;
+			}
+			// values i to j - 1 are tied and share the mean of their ranks
+			int tied = j - i;
+			double rank = (i + 1 + j) / 2.0;
+			for (int k = i; k < j; k++) {
+				if ((all[k] & 1) == 0) {
+					rankSumA += rank;
+				}
+			}
+			ties += (double) tied * tied * tied - tied;
+			i = j;
+		}
+
+		double u = rankSumA - n1 * (n1 + 1) / 2.0;
+		double mean = (double) n1 * n2 / 2;
+		double variance = (double) n1 * n2 / 12 * ((n + 1) - ties / ((double) n * (n - 1)));
+		if (variance <= 0) {
+			return 1;
+		}
+		// continuity correction
+		double z = (Math.abs(u - mean) - 0.5) / Math.sqrt(variance);
+		return Math.min(1, 2 * (1 - normal(Math.max(0, z))));
+	}
+
+	/**
+	 * The standard normal distribution function (Zelen and Severo, error
+	 * below 1e-7).
+	 */
+	static double normal(double z) {
+		double t = 1 / (1 + 0.2316419 * Math.abs(z));
+		double density = Math.exp(-z * z / 2) / Math.sqrt(2 * Math.PI);
+		double tail = density * t * (0.319381530 + t * (-0.356563782 + t * (1.781477937 + t * (-1.821255978 + t * 1.330274429))));
+		return z >= 0 ? 1 - tail : tail;
+	}
+
+}
@@ -0,0 +1,183 @@
+package org.w3.ldp.testsuite.reporter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+/**
+ * Where the time of the requests of a test went, by phase and by operation
+ * (the HTTP method). The phases tell apart the network (DNS, connect, TLS),
+ * the server (time to first byte, transfer) and the suite itself (parsing
+ * the response into a model).
+ *
+ * <p>
+ * Recorded by the clients of RestAssured for the test that sent each
+ * request, and listed by the HTML and EARL reports.
+ * </p>
+ */
+public class RequestTimings {
+
+	/**
+	 * The {@link ITestResult} attribute holding the timings.
+	 */
+	public static final String ATTRIBUTE = "ldp.timings";
+
+	private static final ResultAttributeTotals<Operation> OPERATIONS = new ResultAttributeTotals<Operation>(ATTRIBUTE) {
+		@Override
+		protected Operation create() {
+			return new Operation();
+		}
+
+		@Override
+		protected void add(Operation total, Operation operation) {
+			total.add(operation);
+		}
+	};
+
+	private static final ThreadLocal<String> LAST_OPERATION = new ThreadLocal<>();
+
+	public enum Phase {
+		/** Resolving the host name of the server. */
+		DNS("DNS"),
+		/** Opening the TCP (or Unix domain socket) connection. */
+		CONNECT("Connect"),
+		/** The TLS handshake of https connections. */
+		TLS("TLS"),
+		/** From the request sent to the response headers received. */
+		TTFB("TTFB"),
+		/** Reading the response body. */
+		TRANSFER("Transfer"),
+		/** Parsing the response body into a model. */
+		PARSE("Parse");
+
+		private final String label;
+
+		Phase(String label) {
+			this.label = label;
+		}
+
+		/**
+		 * @return the name of the phase in the reports
+		 */
+		public String getLabel() {
+			return label;
+		}
+	}
+
+	/** The time each phase took over the requests of one operation. */
+	public static class Operation {
+
+		private long requests;
+		private final long[] nanos = new long[Phase.values().length];
+
+		/**
+		 * @return the requests sent
+		 */
+		public synchronized long getRequests() {
+			return requests;
+		}
+
+		/**
+		 * @return the total time of the phase over all requests
+		 */
+		public synchronized double getMillis(Phase phase) {
+			return (double) TimeUnit.NANOSECONDS.toMicros(nanos[phase.ordinal()]) / 1000;
+		}
+
+		/**
+		 * Adds the requests and times of another operation to this one.
+		 */
+		public void add(Operation other) {
+			long otherRequests;
+			long[] otherNanos;
+			synchronized (other) {
+				otherRequests = other.requests;
+				otherNanos = other.nanos.clone();
+			}
+			synchronized (this) {
+				requests += otherRequests;
+				for (int i = 0; i < nanos.length; i++) {
+					nanos[i] += otherNanos[i];
+				}
+			}
+		}
+
+		private synchronized void count() {
+			requests++;
+		}
+
+		private synchronized void record(Phase phase, long time) {
+			nanos[phase.ordinal()] += Math.max(0, time);
+		}
+	}
+
+	/**
+	 * Remembers the operation of the request the current thread sent last,
+	 * whose response body it reads next, so that parsing the body is
+	 * recorded under the same operation.
+	 */
+	public static void setLastOperation(String operation) {
+		LAST_OPERATION.set(operation);
+	}
+
+	/**
+	 * @return the operation of the request the current thread sent last, or
+	 *         null if it sent none
+	 */
+	public static String getLastOperation() {
+		return LAST_OPERATION.get();
+	}
+
+	/**
+	 * Counts a request of the test running on the current thread. Does
+	 * nothing outside of a test.
+	 */
+	public static void count(String operation) {
+		ITestResult result = Reporter.getCurrentTestResult();
+		if (result != null) {
+			count(result, operation);
+		}
+	}
+
+	public static void count(ITestResult result, String operation) {
+		OPERATIONS.get(result, operation).count();
+	}
+
+	/**
+	 * Records the time of a phase for the test running on the current
+	 * thread. Does nothing outside of a test.
+	 *
+	 * @param nanos
+	 *            the time the phase took
+	 */
+	public static void record(String operation, Phase phase, long nanos) {
+		ITestResult result = Reporter.getCurrentTestResult();
+		if (result != null) {
+			record(result, operation, phase, nanos);
+		}
+	}
+
+	public static void record(ITestResult result, String operation, Phase phase, long nanos) {
+		OPERATIONS.get(result, operation).record(phase, nanos);
+	}
+
+	/**
+	 * @return the timings of {@code result} by operation, in the order the
+	 *         operations were first seen, never {@code null}
+	 */
+	public static Map<String, Operation> get(ITestResult result) {
+		return aggregate(Collections.singleton(result));
+	}
+
+	/**
+	 * @return the timings of all the results added up by operation
+	 */
+	public static Map<String, Operation> aggregate(Collection<ITestResult> results) {
+		return OPERATIONS.aggregate(results);
+	}
+
+}
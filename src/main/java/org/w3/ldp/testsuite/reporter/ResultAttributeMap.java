@@ -0,0 +1,65 @@
+package org.w3.ldp.testsuite.reporter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.testng.ITestResult;
+
+/**
+ * Values by name kept in an attribute of each test result, such as the
+ * measurements of a test. The map is created on first use, keeps the order
+ * names were first seen in, and is only read through copies, so tests can
+ * record while the reporters read.
+ *
+ * @param <V>
+ *            the values, which take care of their own synchronization if
+ *            they change
+ * @see ResultAttributeTotals
+ */
+class ResultAttributeMap<V> {
+
+	private final String attribute;
+
+	/**
+	 * @param attribute
+	 *            the {@link ITestResult} attribute holding the map
+	 */
+	ResultAttributeMap(String attribute) {
+		this.attribute = attribute;
+	}
+
+	/**
+	 * Sets the value of a name for a result.
+	 */
+	synchronized void put(ITestResult result, String name, V value) {
+		getMap(result).put(name, value);
+	}
+
+	/**
+	 * @return a copy of the values of a result, never {@code null}
+	 */
+	synchronized Map<String, V> copy(ITestResult result) {
+		@SuppressWarnings("unchecked")
+		Map<String, V> values = (Map<String, V>) result.getAttribute(attribute);
+		if (values == null) {
+			return Collections.emptyMap();
+		}
+		return new LinkedHashMap<>(values);
+	}
+
+	/**
+	 * @return the map of a result, created if there was none; only to be
+	 *         used while holding the lock of this object
+	 */
+	Map<String, V> getMap(ITestResult result) {
+		@SuppressWarnings("unchecked")
+		Map<String, V> values = (Map<String, V>) result.getAttribute(attribute);
+		if (values == null) {
+			values = new LinkedHashMap<>();
+			result.setAttribute(attribute, values);
+		}
+		return values;
+	}
+
+}
@@ -0,0 +1,68 @@
+package org.w3.ldp.testsuite.reporter;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.testng.ITestResult;
+
+/**
+ * Values by name kept in an attribute of each test result that tests add
+ * to as they run, such as the request timings of a test by operation, and
+ * that the reporters add up over all the results.
+ *
+ * @param <V>
+ *            the values, which take care of their own synchronization
+ */
+abstract class ResultAttributeTotals<V> extends ResultAttributeMap<V> {
+
+	/**
+	 * @param attribute
+	 *            the {@link ITestResult} attribute holding the map
+	 */
+	ResultAttributeTotals(String attribute) {
+		super(attribute);
+	}
+
+	/**
+	 * @return a new value for a name seen for the first time
+	 */
+	protected abstract V create();
+
+	/**
+	 * Adds the value of another result to a total.
+	 */
+	protected abstract void add(V total, V value);
+
+	/**
+	 * @return the value of a name for a result, created if there was none
+	 */
+	synchronized V get(ITestResult result, String name) {
+		Map<String, V> values = getMap(result);
+		V value = values.get(name);
+		if (value == null) {
+			value = create();
+			values.put(name, value);
+		}
+		return value;
+	}
+
+	/**
+	 * @return the values of all the results added up by name
+	 */
+	Map<String, V> aggregate(Collection<ITestResult> results) {
+		Map<String, V> total = new LinkedHashMap<>();
+		for (ITestResult result : results) {
+			for (Map.Entry<String, V> entry : copy(result).entrySet()) {
+				V value = total.get(entry.getKey());
+				if (value == null) {
+					value = create();
+					total.put(entry.getKey(), value);
+				}
+				add(value, entry.getValue());
+			}
+		}
+		return total;
+	}
+
+}
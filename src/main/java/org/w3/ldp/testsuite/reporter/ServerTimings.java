@@ -0,0 +1,188 @@
+package org.w3.ldp.testsuite.reporter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.testng.ITestResult;
+
+/**
+ * The Server-Timing metrics of the responses to the requests of a test,
+ * such as {@code db}, {@code serialize} or {@code auth}, by operation (the
+ * HTTP method) and metric. Each response's latency, from sending its
+ * request to its headers, is the part the server can account for. It is
+ * kept next to the response's metrics, so the reports can tell how much of
+ * the latency each server phase explains and how closely it follows it.
+ *
+ * <p>
+ * Only responses with a Server-Timing duration are counted.
+ * </p>
+ */
+public class ServerTimings {
+
+	/**
+	 * The {@link ITestResult} attribute holding the metrics.
+	 */
+	public static final String ATTRIBUTE = "ldp.serverTimings";
+
+	private static final ResultAttributeTotals<Operation> OPERATIONS = new ResultAttributeTotals<Operation>(ATTRIBUTE) {
+		@Override
+		protected Operation create() {
+			return new Operation();
+		}
+
+		@Override
+		protected void add(Operation total, Operation operation) {
+			total.add(operation);
+		}
+	};
+
+	/** The durations of one metric over the responses of one operation. */
+	public static class Metric {
+
+		private final LatencyHistogram duration = new LatencyHistogram();
+		// sums of the durations x and the latencies y of the same responses, for the correlation
+		private long count;
+		private double x, y, xx, yy, xy;
+
+		/**
+		 * @return the durations the server reported, in milliseconds
+		 */
+		public LatencyHistogram getDuration() {
+			return duration;
+		}
+
+		public synchronized long getCount() {
+			return count;
+		}
+
+		/**
+		 * @return the total duration in milliseconds
+		 */
+		public synchronized double getTotalMillis() {
+			return x;
+		}
+
+		/**
+		 * @return the total latency of the same responses in milliseconds
+		 */
+		public synchronized double getLatencyMillis() {
+			return y;
+		}
+
+		/**
+		 * @return the Pearson correlation of the durations with the
+		 *         latencies of the same responses, or NaN if either never
+		 *         varies
+		 */
+		public synchronized double getCorrelation() {
+			double covariance = count * xy - x * y;
+			double variances = (count * xx - x * x) * (count * yy - y * y);
+			return variances > 0 ? covariance / Math.sqrt(variances) : Double.NaN;
+		}
+
+		private synchronized void record(double millis, double latencyMillis) {
+			duration.record(Math.round(millis));
+			count++;
+			x += millis;
+			y += latencyMillis;
+			xx += millis * millis;
+			yy += latencyMillis * latencyMillis;
+			xy += millis * latencyMillis;
+		}
+
+		private void add(Metric other) {
+			duration.add(other.duration);
+			synchronized (other) {
+				synchronized (this) {
+					count += other.count;
+					x += other.x;
+					y += other.y;
+					xx += other.xx;
+					yy += other.yy;
+					xy += other.xy;
+				}
+			}
+		}
+	}
+
+	/** The responses of one operation: their latency and their metrics. */
+	public static class Operation {
+
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private final Map<String, Metric> metrics = new LinkedHashMap<>();
+
+		/**
+		 * @return the latencies up to the response headers, in milliseconds
+		 */
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+
+		/**
+		 * @return the metrics by name, in the order they were first seen
+		 */
+		public synchronized Map<String, Metric> getMetrics() {
+			return new LinkedHashMap<>(metrics);
+		}
+
+		/**
+		 * Adds the responses of another operation to this one.
+		 */
+		public void add(Operation other) {
+			latency.add(other.latency);
+			for (Map.Entry<String, Metric> entry : other.getMetrics().entrySet()) {
+				getMetric(entry.getKey()).add(entry.getValue());
+			}
+		}
+
+		private synchronized Metric getMetric(String name) {
+			Metric metric = metrics.get(name);
+			if (metric == null) {
+				metric = new Metric();
+				metrics.put(name, metric);
+			}
+			return metric;
+		}
+	}
+
+	/**
+	 * Records the metrics of a response.
+	 *
+	 * @param operation
+	 *            the HTTP method of the request
+	 * @param latencyMillis
+	 *            the time from sending the request to the response headers,
+	 *            without connecting or retries
+	 * @param durations
+	 *            the duration of each metric in milliseconds; nothing is
+	 *            recorded if empty
+	 */
+	public static void record(ITestResult result, String operation, double latencyMillis, Map<String, Double> durations) {
+		if (durations.isEmpty()) {
+			return;
+		}
+		Operation timings = OPERATIONS.get(result, operation);
+		timings.latency.record(Math.round(latencyMillis));
+		for (Map.Entry<String, Double> duration : durations.entrySet()) {
+			timings.getMetric(duration.getKey()).record(duration.getValue(), latencyMillis);
+		}
+	}
+
+	/**
+	 * @return the metrics of {@code result} by operation, never
+	 *         {@code null}
+	 */
+	public static Map<String, Operation> get(ITestResult result) {
+		return aggregate(Collections.singleton(result));
+	}
+
+	/**
+	 * @return the metrics of all the results added up by operation
+	 */
+	public static Map<String, Operation> aggregate(Collection<ITestResult> results) {
+		return OPERATIONS.aggregate(results);
+	}
+
+}
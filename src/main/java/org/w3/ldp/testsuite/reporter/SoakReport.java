@@ -0,0 +1,351 @@
+package org.w3.ldp.testsuite.reporter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.ITestContext;
+import org.testng.ITestResult;
+import org.testng.TestListenerAdapter;
+import org.w3.ldp.testsuite.filter.LatencyFilter;
+import org.w3.ldp.testsuite.mapper.RdfObjectMapper;
+import org.w3.ldp.testsuite.test.LdpTest;
+import org.w3.ldp.testsuite.vocab.LDP;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.jayway.restassured.RestAssured;
+import com.jayway.restassured.response.Response;
+
+import static org.w3.ldp.testsuite.http.HttpHeaders.ACCEPT;
+import static org.w3.ldp.testsuite.http.HttpHeaders.PREFER;
+import static org.w3.ldp.testsuite.http.LdpPreferences.PREFER_CONTAINMENT;
+import static org.w3.ldp.testsuite.http.MediaTypes.TEXT_TURTLE;
+
+/**
+ * Follows a soak run, where the suite is run again and again for hours
+ * against the same server, and looks for the server degrading over time.
+ * Every run of the suite is one window. At the end of a window the latency
+ * of each test and each HTTP method, the failed tests, the 5xx responses and
+ * the number of resources in the container under test are written as one
+ * JSON line to {@value #FILE_NAME}:
+ *
+ * <pre>
+ * { "window" : 3 , "elapsedSeconds" : 412 , "failedTests" : 0 , "containerSize" : 12 ,
+ *   "operations" : { "GET" : { "count" : 310 , "p50" : 4 , "p95" : 11 , "p99" : 19 , "max" : 40 , "5xx" : 0 , "failures" : 0 } , ... } ,
+ *   "tests" : { "testGetResource" : { "count" : 1 , "p50" : 12 , ... } , ... } }
+ * </pre>
+ *
+ * <p>
+ * The first window warms up the JVM and the server and is left out of the
+ * comparison. The second window is the baseline the last window is compared
+ * to for {@link #getDegradations() degradations}: latency drift, growing 5xx
+ * or test failure counts, and a container that keeps more members than it
+ * had before the run, which usually means the server leaks resources the
+ * tests deleted.
+ * </p>
+ */
+public class SoakReport extends TestListenerAdapter {
+
+	public static final String FILE_NAME = "soak.jsonl";
+
+	/** The p95 of an operation may grow this much before it counts as drift. */
+	private static final double DRIFT_RATIO = 1.5;
+
+	/** Latency drift below this many milliseconds is noise. */
+	private static final long DRIFT_MIN_MILLIS = 25;
+
+	private static SoakReport active;
+
+	/** A closed window. */
+	public static class Window {
+
+		private final int number;
+		private final long elapsedSeconds;
+		private final int failedTests;
+		private final int containerSize;
+		private final Map<String, LatencyFilter.Operation> operations;
+
+		Window(int number, long elapsedSeconds, int failedTests, int containerSize,
+				Map<String, LatencyFilter.Operation> operations) {
+			this.number = number;
+			this.elapsedSeconds = elapsedSeconds;
+			this.failedTests = failedTests;
+			this.containerSize = containerSize;
+			this.operations = operations;
+		}
+
+		public int getNumber() {
+			return number;
+		}
+
+		public long getElapsedSeconds() {
+			return elapsedSeconds;
+		}
+
+		public int getFailedTests() {
+			return failedTests;
+		}
+
+		/**
+		 * @return the members of the container under test at the end of the
+		 *         window, or -1 if it could not be read
+		 */
+		public int getContainerSize() {
+			return containerSize;
+		}
+
+		public Map<String, LatencyFilter.Operation> getOperations() {
+			return operations;
+		}
+
+		public long getRequests() {
+			long requests = 0;
+			for (LatencyFilter.Operation operation : operations.values()) {
+				requests += operation.getLatency().getCount();
+			}
+			return requests;
+		}
+
+		public long getServerErrors() {
+			long errors = 0;
+			for (LatencyFilter.Operation operation : operations.values()) {
+				errors += operation.getServerErrors();
+			}
+			return errors;
+		}
+	}
+
+	private final String container;
+	private final Map<String, String> auth;
+	private final File file;
+	private final long start = System.nanoTime();
+
+	private final List<Window> windows = new ArrayList<>();
+	private int baselineSize = -1;
+
+	private Map<String, LatencyHistogram> tests;
+	private int failedTests;
+
+	/**
+	 * @param container
+	 *            the container under test
+	 * @param auth
+	 *            basic authentication credentials as username:password, or
+	 *            null
+	 * @param outputDir
+	 *            the directory for {@value #FILE_NAME}
+	 */
+	public SoakReport(String container, String auth, String outputDir) {
+		this.container = container;
+		this.auth = LdpTest.parseAuth(auth);
+		File dir = new File(outputDir);
+		dir.mkdirs();
+		this.file = new File(dir, FILE_NAME);
+		file.delete();
+		if (!RestAssured.filters().contains(LatencyFilter.getInstance())) {
+			RestAssured.filters(LatencyFilter.getInstance());
+		}
+		active = this;
+	}
+
+	/**
+	 * @return the report of the soak run in progress, or null if this is not
+	 *         a soak run
+	 */
+	public static SoakReport getActive() {
+		return active;
+	}
+
+	@Override
+	public synchronized void onStart(ITestContext testContext) {
+		if (baselineSize < 0) {
+			baselineSize = getContainerSize();
+		}
+		LatencyFilter.getInstance().nextWindow();
+		tests = new LinkedHashMap<>();
+		failedTests = 0;
+	}
+
+	@Override
+	public synchronized void onTestSuccess(ITestResult tr) {
+		record(tr);
+	}
+
+	@Override
+	public synchronized void onTestFailure(ITestResult tr) {
+		record(tr);
+		failedTests++;
+	}
+
+	@Override
+	public synchronized void onTestSkipped(ITestResult tr) {
+		// skipped tests take no time worth comparing
+	}
+
+	@Override
+	public synchronized void onFinish(ITestContext testContext) {
+		Map<String, LatencyFilter.Operation> operations = LatencyFilter.getInstance().nextWindow();
+		long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+		Window window = new Window(windows.size() + 1, elapsed, failedTests, getContainerSize(), operations);
+		windows.add(window);
+		// the latencies by test are only written, so a long run does not
+		// keep them all in memory
+		write(window, tests);
+
+		System.out.printf("%nSoak window %d after %ds: %d requests, %d 5xx, %d failed tests, container size %d%n",
+				window.getNumber(), elapsed, window.getRequests(), window.getServerErrors(), window.getFailedTests(),
+				window.getContainerSize());
+		for (String degradation : getDegradations()) {
+			System.out.println("    " + degradation);
+		}
+	}
+
+	public synchronized List<Window> getWindows() {
+		return new ArrayList<>(windows);
+	}
+
+	/**
+	 * @return the members of the container under test before the run, or -1
+	 */
+	public synchronized int getBaselineSize() {
+		return baselineSize;
+	}
+
+	/**
+	 * Compares the last window to the baseline window.
+	 *
+	 * @return a description of each sign that the server degrades, empty if
+	 *         there are none or fewer than three windows
+	 */
+	public synchronized List<String> getDegradations() {
+		if (windows.size() < 3) {
+			return Collections.emptyList();
+		}
+		Window baseline = windows.get(1);
+		Window last = windows.get(windows.size() - 1);
+		List<String> degradations = new ArrayList<>();
+
+		for (Map.Entry<String, LatencyFilter.Operation> entry : last.getOperations().entrySet()) {
+			LatencyFilter.Operation before = baseline.getOperations().get(entry.getKey());
+			if (before == null) {
+				continue;
+			}
+			long p95Before = before.getLatency().getPercentile(95);
+			long p95After = entry.getValue().getLatency().getPercentile(95);
+			if (p95After > p95Before * DRIFT_RATIO && p95After - p95Before >= DRIFT_MIN_MILLIS) {
+				degradations.add(String.format("Latency drift: %s p95 went from %d ms in window %d to %d ms in window %d",
+						entry.getKey(), p95Before, baseline.getNumber(), p95After, last.getNumber()));
+			}
+		}
+
+		if (rate(last.getServerErrors(), last.getRequests()) > rate(baseline.getServerErrors(), baseline.getRequests())) {
+			degradations.add(String.format("5xx responses went from %d of %d requests in window %d to %d of %d in window %d",
+					baseline.getServerErrors(), baseline.getRequests(), baseline.getNumber(),
+					last.getServerErrors(), last.getRequests(), last.getNumber()));
+		}
+
+		if (last.getFailedTests() > baseline.getFailedTests()) {
+			degradations.add(String.format("Failed tests went from %d in window %d to %d in window %d",
+					baseline.getFailedTests(), baseline.getNumber(), last.getFailedTests(), last.getNumber()));
+		}
+
+		// only a container that grew in every window is a leak; one that
+		// varies is more likely shared with other clients
+		if (baselineSize >= 0 && last.getContainerSize() > baselineSize && growing()) {
+			degradations.add(String.format("Possible resource leak: the container had %d members before the run and %d after window %d",
+					baselineSize, last.getContainerSize(), last.getNumber()));
+		}
+		return degradations;
+	}
+
+	private boolean growing() {
+		for (int i = 1; i < windows.size(); i++) {
+			if (windows.get(i).getContainerSize() <= windows.get(i - 1).getContainerSize()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static double rate(long count, long total) {
+		return total == 0 ? 0 : (double) count / total;
+	}
+
+	private void record(ITestResult tr) {
+		String name = tr.getName();
+		LatencyHistogram histogram = tests.get(name);
+		if (histogram == null) {
+			histogram = new LatencyHistogram();
+			tests.put(name, histogram);
+		}
+		histogram.record(tr.getEndMillis() - tr.getStartMillis());
+	}
+
+	private int getContainerSize() {
+		try {
+			Response response = LdpTest.buildBaseRequestSpecification(auth)
+					.header(ACCEPT, TEXT_TURTLE)
+					.header(PREFER, LdpTest.include(PREFER_CONTAINMENT))
+					.get(container);
+			if (response.getStatusCode() != 200) {
+				return -1;
+			}
+			Model model = response.as(Model.class, new RdfObjectMapper(container));
+			return model.listObjectsOfProperty(model.getResource(container), model.createProperty(LDP.contains.stringValue())).toList().size();
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	private void write(Window window, Map<String, LatencyHistogram> tests) {
+		StringBuilder line = new StringBuilder();
+		line.append("{ \"window\" : ").append(window.getNumber())
+				.append(" , \"elapsedSeconds\" : ").append(window.getElapsedSeconds())
+				.append(" , \"failedTests\" : ").append(window.getFailedTests())
+				.append(" , \"containerSize\" : ").append(window.getContainerSize())
+				.append(" , \"operations\" : {");
+		String separator = " ";
+		for (Map.Entry<String, LatencyFilter.Operation> entry : window.getOperations().entrySet()) {
+			LatencyFilter.Operation operation = entry.getValue();
+			line.append(separator).append('"').append(entry.getKey()).append("\" : { ");
+			appendLatency(line, operation.getLatency());
+			line.append(" , \"5xx\" : ").append(operation.getServerErrors())
+					.append(" , \"failures\" : ").append(operation.getFailures()).append(" }");
+			separator = " , ";
+		}
+		line.append(" } , \"tests\" : {");
+		separator = " ";
+		for (Map.Entry<String, LatencyHistogram> entry : tests.entrySet()) {
+			line.append(separator).append('"').append(entry.getKey()).append("\" : { ");
+			appendLatency(line, entry.getValue());
+			line.append(" }");
+			separator = " , ";
+		}
+		line.append(" } }\n");
+
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8))) {
+			out.write(line.toString());
+		} catch (IOException e) {
+			System.err.println(String.format("WARNING: Error writing %s: %s", file, e.getMessage()));
+		}
+	}
+
+	private static void appendLatency(StringBuilder line, LatencyHistogram latency) {
+		line.append("\"count\" : ").append(latency.getCount())
+				.append(" , \"p50\" : ").append(latency.getPercentile(50))
+				.append(" , \"p95\" : ").append(latency.getPercentile(95))
+				.append(" , \"p99\" : ").append(latency.getPercentile(99))
+				.append(" , \"max\" : ").append(latency.getMaxMillis());
+	}
+
+}
@@ -0,0 +1,85 @@
+package org.w3.ldp.testsuite.reporter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+/**
+ * Named measurements (latencies, throughput, counts) attached to a test
+ * result. Performance tests record them while running and the reporters list
+ * them with the rest of the test details.
+ */
+public class TestMeasurements {
+
+	/**
+	 * The {@link ITestResult} attribute holding the measurements.
+	 */
+	public static final String ATTRIBUTE = "ldp.measurements";
+
+	private static final ResultAttributeMap<Object> MEASUREMENTS = new ResultAttributeMap<>(ATTRIBUTE);
+
+	private static final ResultAttributeTotals<AtomicInteger> COUNTS = new ResultAttributeTotals<AtomicInteger>("ldp.counts") {
+		@Override
+		protected AtomicInteger create() {
+			return new AtomicInteger();
+		}
+
+		@Override
+		protected void add(AtomicInteger total, AtomicInteger count) {
+			total.addAndGet(count.get());
+		}
+	};
+
+	/**
+	 * Records a measurement for the test running on the current thread. Does
+	 * nothing when called outside of a test method (for instance, from a
+	 * worker thread).
+	 *
+	 * @param name
+	 *            the measurement name, shown in the reports
+	 * @param value
+	 *            the value, reported using its string form
+	 */
+	public static void record(String name, Object value) {
+		ITestResult result = Reporter.getCurrentTestResult();
+		if (result != null) {
+			record(result, name, value);
+		}
+	}
+
+	public static void record(ITestResult result, String name, Object value) {
+		MEASUREMENTS.put(result, name, String.valueOf(value));
+	}
+
+	/**
+	 * Adds one to a measurement that counts events of a test, such as
+	 * requests that were retried. Safe to call from any thread sending
+	 * requests for the test.
+	 *
+	 * @param name
+	 *            the measurement name, shown in the reports
+	 */
+	public static void count(ITestResult result, String name) {
+		AtomicInteger count = COUNTS.get(result, name);
+		if (count.incrementAndGet() == 1) {
+			// listed with the others from now on, always showing the latest count
+			MEASUREMENTS.put(result, name, count);
+		}
+	}
+
+	/**
+	 * @return the measurements recorded for {@code result} in the order
+	 *         they were recorded, never {@code null}
+	 */
+	public static Map<String, String> get(ITestResult result) {
+		Map<String, String> measurements = new LinkedHashMap<>();
+		for (Map.Entry<String, Object> measurement : MEASUREMENTS.copy(result).entrySet()) {
+			measurements.put(measurement.getKey(), String.valueOf(measurement.getValue()));
+		}
+		return measurements;
+	}
+
+}
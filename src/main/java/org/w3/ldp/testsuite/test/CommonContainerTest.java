@@ -9,6 +9,7 @@ import com.hp.hpl.jena.vocabulary.RDF;
 import com.jayway.restassured.response.Response;
 import com.jayway.restassured.specification.RequestSpecification;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
 import org.testng.annotations.Optional;
 import org.testng.annotations.Parameters;
@@ -19,6 +20,7 @@ import org.w3.ldp.testsuite.annotations.SpecTest.METHOD;
 import org.w3.ldp.testsuite.annotations.SpecTest.STATUS;
 import org.w3.ldp.testsuite.exception.SkipException;
 import org.w3.ldp.testsuite.http.HttpMethod;
+import org.w3.ldp.testsuite.http.UnixSocketTransport;
 import org.w3.ldp.testsuite.mapper.RdfObjectMapper;
 import org.w3.ldp.testsuite.matcher.HeaderMatchers;
 import org.w3.ldp.testsuite.vocab.LDP;
@@ -28,12 +30,19 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.core.IsNot.not;
 import static org.testng.Assert.*;
 import static org.w3.ldp.testsuite.http.HttpHeaders.*;
 import static org.w3.ldp.testsuite.http.LdpPreferences.PREFER_CONTAINMENT;
+import static org.w3.ldp.testsuite.http.LdpPreferences.PREFER_MEMBERSHIP;
 import static org.w3.ldp.testsuite.http.LdpPreferences.PREFER_MINIMAL_CONTAINER;
 import static org.w3.ldp.testsuite.http.MediaTypes.APPLICATION_LD_JSON;
 import static org.w3.ldp.testsuite.http.MediaTypes.TEXT_TURTLE;
@@ -47,6 +56,12 @@ public abstract class CommonContainerTest extends RdfSourceTest {
 	public static final String MSG_LOC_NOTFOUND = "Location header missing after POST create.";
 	public static final String MSG_MBRRES_NOTFOUND = "Unable to locate object in triple with predicate ldp:membershipResource.";
 
+	/** Fraction of the full representation a Prefer hint must save to be expected to be faster. */
+	private static final double PREFER_MIN_SAVING = 0.5;
+
+	/** Full representations faster than this are too quick to judge Prefer latency. */
+	private static final long PREFER_MIN_FULL_MILLIS = 20;
+
 	@Parameters("auth")
 	public CommonContainerTest(@Optional String auth) throws IOException {
 		super(auth);
@@ -215,6 +230,186 @@ public abstract class CommonContainerTest extends RdfSourceTest {
 				"Container has containment triples when client requested server omit them");
 	}
 
+	@Test(
+			groups = {PERFORMANCE},
+			description = "Measures the size, response time and parse time of "
+					+ "container representations requested with the LDP Prefer "
+					+ "hints, and flags hints that shrink the representation "
+					+ "without making it any faster to produce.")
+	@Parameters("preferIterations")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpc-prefer",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Measurement variant of testPreferContainmentTriples and "
+					+ "testPreferMembershipTriples. Only judged when the full "
+					+ "representation takes at least "
+					+ PREFER_MIN_FULL_MILLIS + " ms, below that latency is "
+					+ "dominated by the round trip.")
+	public void testPreferSavings(@Optional("10") int iterations) {
+		String containerUri = getResourceUri();
+
+		Map<String, String> hints = new LinkedHashMap<>();
+		hints.put("full", null);
+		hints.put("include containment", include(PREFER_CONTAINMENT));
+		hints.put("include membership", include(PREFER_MEMBERSHIP));
+		hints.put("include minimal container", include(PREFER_MINIMAL_CONTAINER));
+		hints.put("omit containment", omit(PREFER_CONTAINMENT));
+		hints.put("omit membership", omit(PREFER_MEMBERSHIP));
+		hints.put("omit containment and membership", omit(PREFER_CONTAINMENT, PREFER_MEMBERSHIP));
+
+		PreferSample full = null;
+		List<String> noGain = new ArrayList<>();
+		for (Map.Entry<String, String> hint : hints.entrySet()) {
+			PreferSample sample = samplePreferHint(containerUri, hint.getValue(), iterations);
+			String name = hint.getKey();
+			recordMeasurement(name + " bytes", sample.bytes);
+			recordMeasurement(name + " triples", sample.triples);
+			recordMeasurement(name + " response ms", sample.responseMillis);
+			recordMeasurement(name + " parse ms", sample.parseMillis);
+
+			if (full == null) {
+				full = sample;
+			} else if (sample.applied
+					&& sample.triples < full.triples
+					&& sample.bytes <= full.bytes * (1 - PREFER_MIN_SAVING)
+					&& full.responseMillis >= PREFER_MIN_FULL_MILLIS
+					&& sample.responseMillis >= full.responseMillis * (1 - PREFER_MIN_SAVING / 2)) {
+				noGain.add(String.format("%s: %d of %d bytes in %d ms vs %d ms for the full representation",
+						name, sample.bytes, full.bytes, sample.responseMillis, full.responseMillis));
+			}
+		}
+
+		assertTrue(noGain.isEmpty(), "Server applies Prefer hints to <" + containerUri
+				+ "> but gains no latency, it likely still computes the full representation:\n"
+				+ StringUtils.join(noGain, "\n"));
+	}
+
+	@Test(
+			groups = {PERFORMANCE},
+			description = "Builds a tree of nested Basic Containers, crawls it "
+					+ "breadth-first following ldp:contains and deletes it "
+					+ "bottom-up, measuring latency per level.")
+	@Parameters({"hierarchyDepth", "hierarchyFanOut", "hierarchyThreads"})
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpc-post-createdmbr-contains",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Nested variant of testPostContainer. Fails if the crawl "
+					+ "does not reach every container created.")
+	public void testContainerHierarchy(@Optional("5") int depth, @Optional("3") int fanOut,
+			@Optional("8") int threads) throws InterruptedException {
+		skipIfMethodNotAllowed(HttpMethod.POST);
+
+		ContainerHierarchy hierarchy = new ContainerHierarchy(this, getResourceUri());
+		hierarchy.run(depth, fanOut, threads);
+
+		recordMeasurement("containers created", hierarchy.getCreated());
+		recordMeasurement("containers crawled", hierarchy.getCrawled());
+		List<Long> createMillis = hierarchy.getCreateMillis();
+		List<Long> fetchMillis = hierarchy.getFetchMillis();
+		for (int level = 0; level < fetchMillis.size(); level++) {
+			if (level > 0) {
+				recordMeasurement("level " + level + " mean create ms", createMillis.get(level));
+			}
+			recordMeasurement("level " + level + " mean GET ms", fetchMillis.get(level));
+		}
+		recordMeasurement("crawl ms", hierarchy.getCrawlMillis());
+		recordMeasurement("cleanup ms", hierarchy.getCleanupMillis());
+
+		assertEquals(hierarchy.getCrawled(), hierarchy.getCreated(),
+				"Following ldp:contains from the top container did not reach every nested container");
+	}
+
+	@Test(
+			groups = {PERFORMANCE},
+			description = "Sends GET, POST and DELETE requests to the container "
+					+ "at a fixed arrival rate, raising the rate step by step "
+					+ "until the server saturates, with latency measured from "
+					+ "the intended start of each request.")
+	@Parameters({"loadStartRate", "loadStepRate", "loadMaxRate", "loadStepDuration", "loadConnections"})
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpc-post-created201",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Open-loop load variant of testPostResponseStatusAndLocation. "
+					+ "Fails only if the server does not keep up with the "
+					+ "first, lowest rate.")
+	public void testOpenLoopSaturation(@Optional("10") int startRate, @Optional("10") int stepRate,
+			@Optional("100") int maxRate, @Optional("10") int stepSeconds, @Optional("256") int connections)
+			throws InterruptedException, IOException {
+		skipIfMethodNotAllowed(HttpMethod.POST);
+		if (UnixSocketTransport.getActive() != null) {
+			throw new SkipException(Thread.currentThread().getStackTrace()[1].getMethodName(),
+					"Open-loop load needs a TCP connection to the server, not a unix socket.", skipLog);
+		}
+
+		OpenLoopLoad load = new OpenLoopLoad(getResourceUri(), postContent(),
+				auth != null ? auth.get("username") : null, auth != null ? auth.get("password") : null);
+		load.sweep(startRate, stepRate, maxRate, stepSeconds, connections);
+
+		for (OpenLoopLoad.Step step : load.getSteps()) {
+			String name = step.rate + " req/s";
+			recordMeasurement(name + " achieved req/s", String.format("%.1f", step.getThroughput()));
+			recordMeasurement(name + " p50/p99/max ms", step.latency.getPercentile(50) + " / "
+					+ step.latency.getPercentile(99) + " / " + step.latency.getMaxMillis());
+			recordMeasurement(name + " errors", step.errors.get() + (step.saturated ? " (saturated)" : ""));
+		}
+		recordMeasurement("saturation req/s", load.getSaturationRate());
+		recordRequestLimits();
+
+		assertTrue(load.getSaturationRate() > 0, "Server did not keep up with " + startRate
+				+ " requests per second to <" + getResourceUri() + ">");
+	}
+
+	@Test(
+			groups = {PERFORMANCE},
+			description = "Runs the load scenario given with --scenario: its users "
+					+ "perform a weighted mix of operations on a layout of "
+					+ "containers and members, with think times between requests.")
+	@Parameters("scenario")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpc-post-created201",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Fails if more requests fail than the scenario's "
+					+ "ldpt:maxErrorRate (5% by default).")
+	public void testScenario(@Optional String scenarioLocation) throws InterruptedException, IOException {
+		if (scenarioLocation == null) {
+			throw new SkipException(Thread.currentThread().getStackTrace()[1].getMethodName(),
+					"Skipping test because no load scenario was given with --scenario.", skipLog);
+		}
+		skipIfMethodNotAllowed(HttpMethod.POST);
+
+		LoadScenario scenario = LoadScenario.read(scenarioLocation);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		postContent().write(out, "TURTLE", "");
+		ScenarioLoad load = new ScenarioLoad(scenario, getResourceUri(), out.toByteArray(),
+				auth != null ? auth.get("username") : null, auth != null ? auth.get("password") : null);
+		if (!load.run()) {
+			throw new SkipException(Thread.currentThread().getStackTrace()[1].getMethodName(),
+					"Skipping test because the layout of scenario \"" + scenario.getName()
+					+ "\" could not be created in <" + getResourceUri() + ">.", skipLog);
+		}
+
+		recordMeasurement("scenario", scenario.getName() + " (" + scenario.getUsers() + " users, "
+				+ scenario.getDurationSeconds() + " s)");
+		for (Map.Entry<LoadScenario.Operation, ScenarioLoad.Result> entry : load.getResults().entrySet()) {
+			ScenarioLoad.Result result = entry.getValue();
+			recordMeasurement(entry.getKey().label + " requests", result.latency.getCount()
+					+ (result.idle.get() > 0 ? " (" + result.idle.get() + " with nothing to target)" : ""));
+			recordMeasurement(entry.getKey().label + " p50/p95/max ms", result.latency.getPercentile(50) + " / "
+					+ result.latency.getPercentile(95) + " / " + result.latency.getMaxMillis());
+			recordMeasurement(entry.getKey().label + " errors", result.errors.get());
+		}
+		recordMeasurement("scenario req/s", String.format("%.1f", load.getThroughput()));
+		recordRequestLimits();
+
+		assertTrue(load.getErrorRate() <= scenario.getMaxErrorRate(), String.format(
+				"%.1f%% of the requests of scenario \"%s\" failed, more than the %.1f%% allowed",
+				load.getErrorRate() * 100, scenario.getName(), scenario.getMaxErrorRate() * 100));
+	}
+
 	@Test(
 			groups = {MUST},
 			description = "If the resource was created successfully, LDP servers MUST "
@@ -964,4 +1159,67 @@ public abstract class CommonContainerTest extends RdfSourceTest {
 		return location;
 	}
 
+	/**
+	 * GETs the container repeatedly with one Prefer hint and keeps the
+	 * median response and parse times. The first GET is a warm up.
+	 */
+	private PreferSample samplePreferHint(String containerUri, String prefer, int iterations) {
+		long[] responseMillis = new long[iterations];
+		long[] parseMillis = new long[iterations];
+		PreferSample sample = new PreferSample();
+		for (int i = -1; i < iterations; i++) {
+			RequestSpecification spec = buildBaseRequestSpecification().header(ACCEPT, TEXT_TURTLE);
+			if (prefer != null) {
+				spec.header(PREFER, prefer);
+			}
+			Response response = spec.expect().statusCode(isSuccessful()).when().get(containerUri);
+			long start = System.nanoTime();
+			Model model = response.as(Model.class, new RdfObjectMapper(containerUri));
+			long parse = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			if (i < 0) {
+				continue;
+			}
+			responseMillis[i] = response.getTime();
+			parseMillis[i] = parse;
+			sample.bytes = response.asByteArray().length;
+			sample.triples = model.size();
+			sample.applied = prefer == null || hasReturnRepresentation(response.getHeaders().getList(PREFERNCE_APPLIED));
+		}
+		sample.responseMillis = median(responseMillis);
+		sample.parseMillis = median(parseMillis);
+		return sample;
+	}
+
+	private static long median(long[] values) {
+		if (values.length == 0) {
+			return 0;
+		}
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+
+	private static class PreferSample {
+		long bytes;
+		long triples;
+		long responseMillis;
+		long parseMillis;
+		boolean applied;
+	}
+
+	/**
+	 * Records the results of a {@link MembershipChurn} run with the test.
+	 *
+	 * @param churn the finished churn run
+	 */
+	void recordChurnMeasurements(MembershipChurn churn) {
+		recordMeasurement("creates", churn.getCreates());
+		recordMeasurement("deletes", churn.getDeletes());
+		recordMeasurement("errors", churn.getErrors());
+		recordMeasurement("membership samples", churn.getSamples());
+		recordMeasurement("max drift (triples)", churn.getMaxDrift());
+		recordMeasurement("mean drift (triples)", String.format("%.2f", churn.getMeanDrift()));
+		recordMeasurement("convergence (ms)", churn.getConvergenceMillis());
+	}
+
 }
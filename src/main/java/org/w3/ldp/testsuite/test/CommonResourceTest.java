@@ -1,13 +1,9 @@
 package org.w3.ldp.testsuite.test;
 
-import com.google.common.collect.ImmutableMap;
-import com.jayway.restassured.RestAssured;
 import com.jayway.restassured.response.Header;
 import com.jayway.restassured.response.Headers;
 import com.jayway.restassured.response.Response;
-import com.jayway.restassured.specification.RequestSpecification;
 import com.jayway.restassured.specification.ResponseSpecification;
-import org.apache.commons.io.output.WriterOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
 import org.testng.ITestResult;
@@ -23,14 +19,11 @@ import org.w3.ldp.testsuite.http.HttpMethod;
 import org.w3.ldp.testsuite.vocab.LDP;
 
 import java.io.IOException;
-import java.io.PrintStream;
 import java.net.URISyntaxException;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
-import static com.jayway.restassured.config.LogConfig.logConfig;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.testng.Assert.assertEquals;
@@ -47,8 +40,6 @@ public abstract class CommonResourceTest extends LdpTest {
 
 	private Set<String> options = new HashSet<String>();
 
-	protected Map<String,String> auth;
-
 	protected abstract String getResourceUri();
 
 	@BeforeClass(alwaysRun = true)
@@ -87,33 +78,7 @@ public abstract class CommonResourceTest extends LdpTest {
 
 	@Parameters("auth")
 	public CommonResourceTest(@Optional String auth) throws IOException {
-		if (StringUtils.isNotBlank(auth) && auth.contains(":")) {
-			String[] split = auth.split(":");
-			if (split.length == 2 && StringUtils.isNotBlank(split[0]) && StringUtils.isNotBlank(split[1])) {
-				this.auth = ImmutableMap.of("username", split[0], "password", split[1]);
-			}
-		} else {
-			this.auth = null;
-		}
-	}
-
-	@Override
-	protected RequestSpecification buildBaseRequestSpecification() {
-		RequestSpecification spec = RestAssured.given();
-		if (auth != null) {
-			spec.auth().preemptive().basic(auth.get("username"), auth.get("password"));
-		}
-
-		if (httpLog != null) {
-			spec.config(RestAssured
-					.config()
-					.logConfig(logConfig()
-							.enableLoggingOfRequestAndResponseIfValidationFails()
-							.defaultStream(new PrintStream(new WriterOutputStream(httpLog)))
-							.enablePrettyPrinting(true)));
-		}
-
-		return spec;
+		this.auth = parseAuth(auth);
 	}
 
 	@Test(
@@ -0,0 +1,221 @@
+package org.w3.ldp.testsuite.test;
+
+import com.jayway.restassured.response.Header;
+import com.jayway.restassured.response.Response;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpStatus;
+import org.testng.annotations.Optional;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+import org.w3.ldp.testsuite.LdpTestSuite;
+import org.w3.ldp.testsuite.annotations.SpecTest;
+import org.w3.ldp.testsuite.annotations.SpecTest.METHOD;
+import org.w3.ldp.testsuite.annotations.SpecTest.STATUS;
+import org.w3.ldp.testsuite.exception.SkipException;
+import org.w3.ldp.testsuite.filter.ResourceTrackingFilter;
+import org.w3.ldp.testsuite.matcher.HeaderMatchers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.Assert.assertTrue;
+import static org.w3.ldp.testsuite.http.HttpHeaders.*;
+import static org.w3.ldp.testsuite.http.LdpPreferences.PREFER_MINIMAL_CONTAINER;
+import static org.w3.ldp.testsuite.http.MediaTypes.APPLICATION_LD_JSON;
+import static org.w3.ldp.testsuite.http.MediaTypes.TEXT_TURTLE;
+
+/**
+ * Revisits every resource retrieved by the other tests with conditional
+ * requests. The resources are collected by {@link ResourceTrackingFilter},
+ * so this class must run last in the suite.
+ */
+public class ConditionalGetTest extends LdpTest {
+
+	private final Set<String> containers = new LinkedHashSet<>();
+	private final String memberResource;
+
+	@Parameters({"basicContainer", "directContainer", "indirectContainer", "memberResource", "auth"})
+	public ConditionalGetTest(@Optional String basicContainer, @Optional String directContainer,
+			@Optional String indirectContainer, @Optional String memberResource, @Optional String auth) throws IOException {
+		for (String container : new String[] { basicContainer, directContainer, indirectContainer }) {
+			if (StringUtils.isNotBlank(container)) {
+				containers.add(container);
+			}
+		}
+		this.memberResource = memberResource;
+
+		this.auth = parseAuth(auth);
+	}
+
+	@Test(
+			groups = {SHOULD},
+			description = "LDP servers should answer a GET request for an "
+					+ "unchanged Turtle representation whose entity tag is "
+					+ "given in If-None-Match with 304 Not Modified and no body.")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpr-gen-etags",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Covers every resource retrieved earlier in the run. "
+					+ "Records the decoded body bytes saved compared to unconditional GETs.")
+	public void testConditionalGetTurtle() {
+		checkConditionalGet(TEXT_TURTLE);
+	}
+
+	@Test(
+			groups = {SHOULD},
+			description = "LDP servers should answer a GET request for an "
+					+ "unchanged JSON-LD representation whose entity tag is "
+					+ "given in If-None-Match with 304 Not Modified and no body.")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpr-gen-etags",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Covers every resource retrieved earlier in the run. "
+					+ "Records the decoded body bytes saved compared to unconditional GETs.")
+	public void testConditionalGetJsonLd() {
+		checkConditionalGet(APPLICATION_LD_JSON);
+	}
+
+	@Test(
+			groups = {SHOULD},
+			description = "Different representations of an LDP-RS, selected by "
+					+ "Accept or Prefer, should not share a strong entity tag, and "
+					+ "responses should list the negotiated headers in Vary.")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpr-gen-etags",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Otherwise caches and conditional requests can return "
+					+ "the wrong representation.")
+	public void testEntityTagsVaryByRepresentation() {
+		List<String> failures = new ArrayList<>();
+		int checked = 0;
+
+		for (String uri : resources()) {
+			Response turtle = buildBaseRequestSpecification().header(ACCEPT, TEXT_TURTLE).get(uri);
+			Response jsonLd = buildBaseRequestSpecification().header(ACCEPT, APPLICATION_LD_JSON).get(uri);
+			if (!hasRepresentation(turtle, TEXT_TURTLE) || !hasRepresentation(jsonLd, APPLICATION_LD_JSON)) {
+				continue;
+			}
+
+			checked++;
+			String etag = turtle.getHeader(ETAG);
+			if (isStrong(etag) && etag.equals(jsonLd.getHeader(ETAG))) {
+				failures.add("<" + uri + "> has the same strong entity tag " + etag + " for Turtle and JSON-LD");
+			}
+			if (!varies(turtle, ACCEPT) || !varies(jsonLd, ACCEPT)) {
+				failures.add("<" + uri + "> is negotiated by Accept but the response has no Vary: Accept");
+			}
+
+			if (containers.contains(uri)) {
+				Response minimal = buildBaseRequestSpecification()
+						.header(ACCEPT, TEXT_TURTLE)
+						.header(PREFER, include(PREFER_MINIMAL_CONTAINER))
+						.get(uri);
+				List<Header> preferenceApplied = minimal.getHeaders().getList(PREFERNCE_APPLIED);
+				if (hasRepresentation(minimal, TEXT_TURTLE) && hasReturnRepresentation(preferenceApplied)) {
+					String minimalEtag = minimal.getHeader(ETAG);
+					if (isStrong(etag) && etag.equals(minimalEtag)) {
+						failures.add("<" + uri + "> has the same strong entity tag " + etag + " for the full and minimal container");
+					}
+					if (!varies(minimal, PREFER)) {
+						failures.add("<" + uri + "> applied a Prefer header but the response has no Vary: Prefer");
+					}
+				}
+			}
+		}
+
+		if (checked == 0) {
+			throw new SkipException(Thread.currentThread().getStackTrace()[1].getMethodName(),
+					"No resources with both Turtle and JSON-LD representations to compare.", skipLog);
+		}
+		recordMeasurement("resources checked", checked);
+		assertTrue(failures.isEmpty(), StringUtils.join(failures, "\n"));
+	}
+
+	private void checkConditionalGet(String mediaType) {
+		List<String> failures = new ArrayList<>();
+		int checked = 0;
+		// the bodies as decoded by the client, whatever their Content-Encoding on the wire
+		long unconditionalBytes = 0;
+		long conditionalBytes = 0;
+
+		for (String uri : resources()) {
+			Response response = buildBaseRequestSpecification().header(ACCEPT, mediaType).get(uri);
+			if (!hasRepresentation(response, mediaType)) {
+				continue;
+			}
+			String etag = response.getHeader(ETAG);
+
+			Response conditional = buildBaseRequestSpecification()
+					.header(ACCEPT, mediaType)
+					.header(IF_NONE_MATCH, etag)
+					.get(uri);
+			byte[] body = conditional.asByteArray();
+			checked++;
+			unconditionalBytes += response.asByteArray().length;
+			conditionalBytes += body.length;
+
+			if (conditional.getStatusCode() != HttpStatus.SC_NOT_MODIFIED) {
+				failures.add("<" + uri + "> returned " + conditional.getStatusCode() + " instead of 304 for If-None-Match: " + etag);
+			} else if (body.length > 0) {
+				failures.add("<" + uri + "> returned a " + body.length + " byte body with 304 Not Modified");
+			}
+		}
+
+		if (checked == 0) {
+			throw new SkipException(Thread.currentThread().getStackTrace()[2].getMethodName(),
+					"No resources with " + mediaType + " representations and entity tags to check.", skipLog);
+		}
+		recordMeasurement("resources checked", checked);
+		recordMeasurement("unconditional GET decoded bytes", unconditionalBytes);
+		recordMeasurement("conditional GET decoded bytes", conditionalBytes);
+		recordMeasurement("decoded bytes saved", unconditionalBytes - conditionalBytes);
+		assertTrue(failures.isEmpty(), StringUtils.join(failures, "\n"));
+	}
+
+	/**
+	 * @return the resources retrieved by earlier tests plus the ones
+	 *         configured for the suite
+	 */
+	private Set<String> resources() {
+		Set<String> resources = new LinkedHashSet<>(containers);
+		if (StringUtils.isNotBlank(memberResource)) {
+			resources.add(memberResource);
+		}
+		resources.addAll(ResourceTrackingFilter.getInstance().getResources());
+		return resources;
+	}
+
+	private boolean hasRepresentation(Response response, String mediaType) {
+		if (response.getStatusCode() != HttpStatus.SC_OK || response.getHeader(ETAG) == null) {
+			return false;
+		}
+		String contentType = response.getContentType();
+		if (TEXT_TURTLE.equals(mediaType)) {
+			return contentType != null && HeaderMatchers.isTurtleCompatibleContentType().matches(contentType);
+		}
+		return StringUtils.startsWithIgnoreCase(contentType, mediaType);
+	}
+
+	private static boolean isStrong(String etag) {
+		return etag != null && !etag.startsWith("W/");
+	}
+
+	private static boolean varies(Response response, String header) {
+		for (Header vary : response.getHeaders().getList(VARY)) {
+			for (String field : vary.getValue().split(",")) {
+				field = field.trim();
+				if (field.equals("*") || field.equalsIgnoreCase(header)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+}
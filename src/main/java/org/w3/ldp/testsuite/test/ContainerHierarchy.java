@@ -0,0 +1,303 @@
+package org.w3.ldp.testsuite.test;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.vocabulary.DCTerms;
+import com.jayway.restassured.response.Response;
+import org.apache.http.HttpStatus;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.w3.ldp.testsuite.exception.SkipException;
+import org.w3.ldp.testsuite.mapper.RdfObjectMapper;
+import org.w3.ldp.testsuite.vocab.LDP;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.w3.ldp.testsuite.http.HttpHeaders.ACCEPT;
+import static org.w3.ldp.testsuite.http.HttpHeaders.LINK;
+import static org.w3.ldp.testsuite.http.HttpHeaders.LINK_REL_TYPE;
+import static org.w3.ldp.testsuite.http.HttpHeaders.LOCATION;
+import static org.w3.ldp.testsuite.http.HttpHeaders.PREFER;
+import static org.w3.ldp.testsuite.http.LdpPreferences.PREFER_CONTAINMENT;
+import static org.w3.ldp.testsuite.http.MediaTypes.TEXT_TURTLE;
+
+/**
+ * Builds a tree of nested Basic Containers below a container, crawls it
+ * breadth-first by following ldp:contains, and deletes it again bottom-up.
+ * Each level is created, fetched and deleted in parallel on a bounded
+ * thread pool, so the timings per level show how the server's cost grows
+ * with the depth of the path.
+ */
+class ContainerHierarchy {
+
+	private static final String BASIC_CONTAINER_TYPE = "<" + LDP.BasicContainer.stringValue() + ">; rel=\"" + LINK_REL_TYPE + "\"";
+
+	private final CommonContainerTest test;
+	private final String container;
+
+	/** Created containers by level; level 0 is the single top container. */
+	private final List<List<String>> levels = new ArrayList<>();
+	private final List<Long> createMillis = new ArrayList<>();
+	private final List<Long> fetchMillis = new ArrayList<>();
+
+	private int crawled;
+	private long crawlMillis;
+	private long cleanupMillis;
+
+	/**
+	 * @param test
+	 *            the test building the tree, used for its request
+	 *            specification
+	 * @param container
+	 *            the container to build the tree in
+	 */
+	ContainerHierarchy(CommonContainerTest test, String container) {
+		this.test = test;
+		this.container = container;
+	}
+
+	/**
+	 * Builds, crawls and deletes the tree.
+	 *
+	 * @param depth
+	 *            levels of containers below the top container
+	 * @param fanOut
+	 *            child containers per container
+	 * @param threads
+	 *            concurrent requests
+	 */
+	void run(int depth, int fanOut, int threads) throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			String top = create(container, 0);
+			if (top == null) {
+				throw skip("Server did not create a Basic Container in <" + container + "> requested with a Link type header.");
+			}
+			levels.add(list(top));
+			createMillis.add(0L);
+
+			try {
+				build(depth, fanOut, pool);
+				crawl(top, pool);
+			} finally {
+				cleanUp(pool);
+			}
+		} finally {
+			pool.shutdown();
+			pool.awaitTermination(1, TimeUnit.MINUTES);
+		}
+	}
+
+	/**
+	 * @return the number of containers created, including the top one
+	 */
+	int getCreated() {
+		int created = 0;
+		for (List<String> level : levels) {
+			created += level.size();
+		}
+		return created;
+	}
+
+	/**
+	 * @return the number of containers reached by following ldp:contains
+	 *         from the top container
+	 */
+	int getCrawled() {
+		return crawled;
+	}
+
+	/**
+	 * @return mean milliseconds to create a container on each level, 0 for
+	 *         the top level
+	 */
+	List<Long> getCreateMillis() {
+		return createMillis;
+	}
+
+	/**
+	 * @return mean milliseconds to fetch a container on each level
+	 */
+	List<Long> getFetchMillis() {
+		return fetchMillis;
+	}
+
+	long getCrawlMillis() {
+		return crawlMillis;
+	}
+
+	long getCleanupMillis() {
+		return cleanupMillis;
+	}
+
+	private void build(int depth, int fanOut, ExecutorService pool) throws InterruptedException {
+		for (int level = 1; level <= depth; level++) {
+			final int current = level;
+			final AtomicLong nanos = new AtomicLong();
+			List<Callable<String>> tasks = new ArrayList<>();
+			for (final String parent : levels.get(level - 1)) {
+				for (int i = 0; i < fanOut; i++) {
+					tasks.add(new Callable<String>() {
+						@Override
+						public String call() {
+							long start = System.nanoTime();
+							try {
+								return create(parent, current);
+							} finally {
+								nanos.addAndGet(System.nanoTime() - start);
+							}
+						}
+					});
+				}
+			}
+
+			List<String> created = new ArrayList<>();
+			// keep whatever was created so it is cleaned up even if some POSTs failed
+			levels.add(created);
+			int failed = 0;
+			for (String location : getAll(pool.invokeAll(tasks))) {
+				if (location == null) {
+					failed++;
+				} else {
+					created.add(location);
+				}
+			}
+			createMillis.add(meanMillis(nanos.get(), tasks.size()));
+			if (failed > 0) {
+				throw new AssertionError(failed + " of " + tasks.size() + " containers on level " + level + " could not be created.");
+			}
+		}
+	}
+
+	private void crawl(String top, ExecutorService pool) throws InterruptedException {
+		Set<String> visited = new HashSet<>();
+		List<String> frontier = list(top);
+		visited.add(top);
+
+		long start = System.nanoTime();
+		while (!frontier.isEmpty()) {
+			final AtomicLong nanos = new AtomicLong();
+			List<Callable<List<String>>> tasks = new ArrayList<>();
+			for (final String uri : frontier) {
+				tasks.add(new Callable<List<String>>() {
+					@Override
+					public List<String> call() {
+						long start = System.nanoTime();
+						try {
+							return fetchContained(uri);
+						} finally {
+							nanos.addAndGet(System.nanoTime() - start);
+						}
+					}
+				});
+			}
+
+			List<String> next = new ArrayList<>();
+			for (List<String> contained : getAll(pool.invokeAll(tasks))) {
+				for (String child : contained) {
+					if (visited.add(child)) {
+						next.add(child);
+					}
+				}
+			}
+			fetchMillis.add(meanMillis(nanos.get(), tasks.size()));
+			crawled += frontier.size();
+			frontier = next;
+		}
+		crawlMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	private void cleanUp(ExecutorService pool) throws InterruptedException {
+		long start = System.nanoTime();
+		for (int level = levels.size() - 1; level >= 0; level--) {
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (final String uri : levels.get(level)) {
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call() {
+						test.buildBaseRequestSpecification().delete(uri);
+						return null;
+					}
+				});
+			}
+			pool.invokeAll(tasks);
+		}
+		cleanupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	/**
+	 * @return the new container's URI, or null if it was not created
+	 */
+	private String create(String parent, int level) {
+		Response response = test.buildBaseRequestSpecification()
+				.contentType(TEXT_TURTLE)
+				.header(LINK, BASIC_CONTAINER_TYPE)
+				.body("<> <" + DCTerms.title.getURI() + "> \"Container hierarchy level " + level + "\" .")
+				.post(parent);
+		String location = response.getHeader(LOCATION);
+		if (response.getStatusCode() != HttpStatus.SC_CREATED || location == null) {
+			return null;
+		}
+		return LdpTest.resolveIfRelative(parent, location);
+	}
+
+	private List<String> fetchContained(String uri) {
+		Response response = test.buildBaseRequestSpecification()
+				.header(ACCEPT, TEXT_TURTLE)
+				.header(PREFER, LdpTest.include(PREFER_CONTAINMENT))
+				.get(uri);
+		if (response.getStatusCode() != HttpStatus.SC_OK) {
+			throw new AssertionError("Expected 200 OK for GET <" + uri + ">, got " + response.getStatusCode());
+		}
+		Model model = response.as(Model.class, new RdfObjectMapper(uri));
+		List<String> contained = new ArrayList<>();
+		for (RDFNode child : model.listObjectsOfProperty(model.getResource(uri), model.createProperty(LDP.contains.stringValue())).toList()) {
+			if (child.isURIResource()) {
+				contained.add(child.asResource().getURI());
+			}
+		}
+		return contained;
+	}
+
+	private static <T> List<T> getAll(List<Future<T>> futures) throws InterruptedException {
+		List<T> results = new ArrayList<>();
+		for (Future<T> future : futures) {
+			try {
+				results.add(future.get());
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw new AssertionError(e.getCause());
+			}
+		}
+		return results;
+	}
+
+	private static long meanMillis(long nanos, int requests) {
+		return requests == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(nanos / requests);
+	}
+
+	private static List<String> list(String uri) {
+		List<String> list = new ArrayList<>();
+		list.add(uri);
+		return list;
+	}
+
+	private static SkipException skip(String message) {
+		ITestResult result = Reporter.getCurrentTestResult();
+		String testName = result != null ? result.getName() : ContainerHierarchy.class.getSimpleName();
+		return new SkipException(testName, message, LdpTest.skipLog);
+	}
+
+}
@@ -0,0 +1,239 @@
+package org.w3.ldp.testsuite.test;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.jayway.restassured.config.RestAssuredConfig;
+import com.jayway.restassured.response.Response;
+import com.jayway.restassured.specification.FilterableRequestSpecification;
+import com.jayway.restassured.specification.RequestSpecification;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpStatus;
+import org.brotli.dec.BrotliInputStream;
+import org.testng.annotations.Optional;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+import org.w3.ldp.testsuite.LdpTestSuite;
+import org.w3.ldp.testsuite.annotations.SpecTest;
+import org.w3.ldp.testsuite.annotations.SpecTest.METHOD;
+import org.w3.ldp.testsuite.annotations.SpecTest.STATUS;
+import org.w3.ldp.testsuite.exception.SkipException;
+import org.w3.ldp.testsuite.http.LdpHttpClientFactory;
+import org.w3.ldp.testsuite.mapper.RdfObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static com.jayway.restassured.config.DecoderConfig.decoderConfig;
+import static com.jayway.restassured.config.HeaderConfig.headerConfig;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import static org.w3.ldp.testsuite.http.HttpHeaders.*;
+import static org.w3.ldp.testsuite.http.MediaTypes.TEXT_TURTLE;
+
+/**
+ * Compares compressed and uncompressed container representations. Responses
+ * are fetched with content decoding disabled so the encoded bytes on the
+ * wire can be measured and decoded independently of the HTTP client.
+ */
+public class ContentEncodingTest extends LdpTest {
+
+	private static final String IDENTITY = "identity";
+	private static final String GZIP = "gzip";
+	private static final String DEFLATE = "deflate";
+
+	private static final String[] CODINGS = { GZIP, DEFLATE, LdpHttpClientFactory.BROTLI };
+
+	/** GETs per coding when measuring latency. */
+	private static final int ITERATIONS = 5;
+
+	private final String container;
+
+	@Parameters({"basicContainer", "directContainer", "indirectContainer", "auth"})
+	public ContentEncodingTest(@Optional String basicContainer, @Optional String directContainer,
+			@Optional String indirectContainer, @Optional String auth) throws IOException {
+		this.container = anyContainer(basicContainer, directContainer, indirectContainer);
+		this.auth = parseAuth(auth);
+	}
+
+	@Test(
+			groups = {SHOULD},
+			description = "LDP servers should compress RDF representations "
+					+ "for clients that accept gzip, deflate or br content codings.")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpr-gen-http",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Large Turtle containers typically compress about 10x.")
+	public void testCompressionOffered() {
+		Response response = fetchEncoded(StringUtils.join(CODINGS, ", "));
+		String coding = codingOf(response);
+		assertTrue(!IDENTITY.equals(coding),
+				"Container <" + container + "> was not compressed for Accept-Encoding: " + StringUtils.join(CODINGS, ", "));
+		assertTrue(Arrays.asList(CODINGS).contains(coding),
+				"Container <" + container + "> was encoded with " + coding + ", which the client did not accept");
+	}
+
+	@Test(
+			groups = {SHOULD},
+			description = "Each compressed representation of an LDP-RS "
+					+ "should decode to the same RDF graph as the uncompressed one.")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpr-gen-http",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Also checks the client decodes the same graph transparently.")
+	public void testCompressedRepresentationsIsomorphic() throws IOException {
+		Model identity = parse(fetchEncoded(IDENTITY), IDENTITY);
+
+		List<String> failures = new ArrayList<>();
+		List<String> offered = new ArrayList<>();
+		for (String coding : CODINGS) {
+			Response response = fetchEncoded(coding);
+			String applied = codingOf(response);
+			if (!coding.equals(applied)) {
+				continue;
+			}
+			offered.add(coding);
+			if (!identity.isIsomorphicWith(parse(response, coding))) {
+				failures.add(coding + " representation of <" + container + "> differs from the identity representation");
+			}
+		}
+		if (offered.isEmpty()) {
+			throw new SkipException(Thread.currentThread().getStackTrace()[1].getMethodName(),
+					"Container <" + container + "> is not available with any of the content codings " + StringUtils.join(CODINGS, ", ") + ".", skipLog);
+		}
+
+		Model decoded = buildBaseRequestSpecification()
+				.header(ACCEPT, TEXT_TURTLE)
+				.get(container)
+				.as(Model.class, new RdfObjectMapper(container));
+		if (!identity.isIsomorphicWith(decoded)) {
+			failures.add("transparently decoded representation of <" + container + "> differs from the identity representation");
+		}
+
+		recordMeasurement("content codings", StringUtils.join(offered, ", "));
+		assertTrue(failures.isEmpty(), StringUtils.join(failures, "\n"));
+	}
+
+	@Test(
+			groups = {PERFORMANCE},
+			description = "Measures bytes on the wire and end-to-end latency "
+					+ "of compressed and uncompressed container GETs.")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpr-gen-http",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Latency includes decoding and parsing the Turtle.")
+	public void testCompressionSavings() throws IOException {
+		long identityBytes = measure(IDENTITY);
+		if (identityBytes < 0) {
+			fail("Container <" + container + "> is not available uncompressed");
+		}
+
+		int offered = 0;
+		for (String coding : CODINGS) {
+			long bytes = measure(coding);
+			if (bytes >= 0) {
+				offered++;
+				recordMeasurement(coding + " compression ratio", bytes == 0 ? 0 : (double) identityBytes / bytes);
+			}
+		}
+		if (offered == 0) {
+			throw new SkipException(Thread.currentThread().getStackTrace()[1].getMethodName(),
+					"Container <" + container + "> is not available with any of the content codings " + StringUtils.join(CODINGS, ", ") + ".", skipLog);
+		}
+	}
+
+	/**
+	 * Fetches the container with one content coding and records its size and
+	 * mean latency.
+	 *
+	 * @return the bytes on the wire, or -1 if the server did not apply the
+	 *         coding
+	 */
+	private long measure(String coding) throws IOException {
+		long bytes = -1;
+		long nanos = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			Response response = fetchEncoded(coding);
+			if (!coding.equals(codingOf(response))) {
+				return -1;
+			}
+			parse(response, coding);
+			nanos += System.nanoTime() - start;
+			bytes = response.asByteArray().length;
+		}
+		recordMeasurement(coding + " bytes", bytes);
+		recordMeasurement(coding + " mean ms", (double) TimeUnit.NANOSECONDS.toMicros(nanos / ITERATIONS) / 1000);
+		return bytes;
+	}
+
+	/**
+	 * GETs the container as Turtle without decoding the response, so the body
+	 * holds the bytes as sent by the server.
+	 */
+	private Response fetchEncoded(String acceptEncoding) {
+		RequestSpecification spec = buildBaseRequestSpecification();
+		RestAssuredConfig config = ((FilterableRequestSpecification) spec).getConfig();
+		Response response = spec
+				.config(config
+						.decoderConfig(decoderConfig().noContentDecoders())
+						.headerConfig(headerConfig().overwriteHeadersWithName(ACCEPT_ENCODING))
+						.httpClient(config.getHttpClientConfig().httpClientFactory(new LdpHttpClientFactory(false))))
+				.header(ACCEPT, TEXT_TURTLE)
+				.header(ACCEPT_ENCODING, acceptEncoding)
+				.get(container);
+		assertEquals(response.getStatusCode(), HttpStatus.SC_OK,
+				"Unexpected status for GET <" + container + "> with Accept-Encoding: " + acceptEncoding);
+		return response;
+	}
+
+	private Model parse(Response response, String coding) throws IOException {
+		Model model = ModelFactory.createDefaultModel();
+		try (InputStream in = decode(response.asByteArray(), coding)) {
+			model.read(in, container, "TURTLE");
+		}
+		return model;
+	}
+
+	private static String codingOf(Response response) {
+		String coding = response.getHeader(CONTENT_ENCODING);
+		return StringUtils.isBlank(coding) ? IDENTITY : coding.trim().toLowerCase();
+	}
+
+	private static InputStream decode(byte[] body, String coding) throws IOException {
+		InputStream in = new ByteArrayInputStream(body);
+		switch (coding) {
+			case GZIP:
+				return new GZIPInputStream(in);
+			case DEFLATE:
+				// "deflate" should be zlib wrapped, but some servers send raw deflate
+				return new InflaterInputStream(in, new Inflater(!isZlib(body)));
+			case LdpHttpClientFactory.BROTLI:
+				return new BrotliInputStream(in);
+			case IDENTITY:
+				return in;
+			default:
+				throw new IOException("Unsupported content coding: " + coding);
+		}
+	}
+
+	private static boolean isZlib(byte[] body) {
+		if (body.length < 2) {
+			return false;
+		}
+		int header = (body[0] & 0xff) << 8 | (body[1] & 0xff);
+		return (body[0] & 0x0f) == 8 && header % 31 == 0;
+	}
+
+}
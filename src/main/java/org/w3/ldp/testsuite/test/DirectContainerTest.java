@@ -1,5 +1,6 @@
 package org.w3.ldp.testsuite.test;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.Resource;
 import com.jayway.restassured.response.Header;
@@ -21,6 +22,7 @@ import org.w3.ldp.testsuite.vocab.LDP;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.hamcrest.Matchers.notNullValue;
@@ -187,14 +189,10 @@ public class DirectContainerTest extends CommonContainerTest {
 
 		String location = postResponse.getHeader(LOCATION);
 		try {
-			Response getResponse = buildBaseRequestSpecification()
-						.header(ACCEPT, TEXT_TURTLE)
-						.header(PREFER, include(PREFER_MEMBERSHIP)) // request all membership triples
-					.expect()
-						.statusCode(isSuccessful())
-					.when()
-						.get(directContainer);
-			Model containerModel = getResponse.as(Model.class, new RdfObjectMapper(directContainer));
+			// Fetch the container and the member together, the membership triple can be on either
+			List<Model> models = getAsModels(Arrays.asList(directContainer, location));
+			Model containerModel = models.get(0);
+			Model memberResourceModel = models.get(1);
 			Resource container = containerModel.getResource(directContainer);
 			Resource membershipResource = container.getPropertyResourceValue(containerModel.createProperty(LDP.membershipResource.stringValue()));
 			Resource hasMemberRelation = container.getPropertyResourceValue(containerModel.createProperty(LDP.hasMemberRelation.stringValue()));
@@ -203,6 +201,12 @@ public class DirectContainerTest extends CommonContainerTest {
 			if (hasMemberRelation != null) {
 				// Make sure the resource is a member of the container.
 				assertTrue(membershipResource.hasProperty(containerModel.createProperty(hasMemberRelation.getURI()), containerModel.createResource(location)));
+			} else {
+				// The membership triple may be the inverse, on the member.
+				Resource isMemberOfRelation = container.getPropertyResourceValue(containerModel.createProperty(LDP.isMemberOfRelation.stringValue()));
+				assertNotNull(isMemberOfRelation, "Container <" + directContainer + "> has neither ldp:hasMemberRelation nor ldp:isMemberOfRelation.");
+				assertTrue(memberResourceModel.contains(memberResourceModel.getResource(location), memberResourceModel.createProperty(isMemberOfRelation.getURI()), membershipResource),
+						"The LDPC server must have a corresponding membership triple when an LDPR is added (isMemberOfRelation).");
 			}
 		} finally {
 			// Delete the resource to clean up.
@@ -239,7 +243,9 @@ public class DirectContainerTest extends CommonContainerTest {
 		boolean deleted = false;
 
 		try {
-			// Test the membership triple
+			// Test the membership triple, fetching the member at the same time in case the
+			// membership triples are on the member (isMemberOfRelation)
+			ListenableFuture<Model> memberResponse = getAsModelAsync(location);
 			Response getResponse = buildBaseRequestSpecification()
 					.header(ACCEPT, TEXT_TURTLE)
 					.header(PREFER, include(PREFER_MEMBERSHIP)) // request all membership triple regardless of membership patterns
@@ -248,6 +254,7 @@ public class DirectContainerTest extends CommonContainerTest {
 				.when()
 					.get(directContainer);
 			Model containerModel = getResponse.as(Model.class, new RdfObjectMapper(directContainer));
+			Model memberResourceModel = await(memberResponse);
 
 			Resource container = containerModel.getResource(directContainer);
 			Resource membershipResource = container.getPropertyResourceValue(containerModel.createProperty(LDP.membershipResource.stringValue()));
@@ -271,7 +278,6 @@ public class DirectContainerTest extends CommonContainerTest {
 				}
 
 				// Check the resource has the triple as well.
-				Model memberResourceModel = getAsModel(location);
 				assertTrue(memberResourceModel.contains(memberResourceModel.getResource(location), memberResourceModel.createProperty(isMemberOfRelation.getURI()), membershipResource),
 						"The LDPC server must have a corresponding membership triple when an LDPR is added (isMemberOfRelation).");
 			}
@@ -324,6 +330,29 @@ public class DirectContainerTest extends CommonContainerTest {
 		throw new org.testng.SkipException("Covered indirectly by the MUST tests defined in CommonContainerTest class");
 	}
 
+	@Test(
+			groups = {PERFORMANCE},
+			description = "Membership triples of an LDP Direct Container stay "
+					+ "consistent while members are concurrently created and "
+					+ "deleted, and converge once the churn stops.")
+	@Parameters({"churnDuration", "churnThreads", "churnInterval"})
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpdc-post-createdmbr-member",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Concurrent variant of testPostResourceUpdatesTriples and "
+					+ "testDeleteResourceUpdatesTriples. Drift during the churn "
+					+ "is reported, only failing to converge fails the test.")
+	public void testMembershipConsistencyUnderChurn(@Optional("30") int duration, @Optional("4") int threads,
+			@Optional("500") int interval) throws InterruptedException {
+		skipIfMethodNotAllowed(HttpMethod.POST);
+
+		MembershipChurn churn = new MembershipChurn(this, directContainer, null);
+		boolean converged = churn.run(duration, threads, interval);
+		recordChurnMeasurements(churn);
+		assertTrue(converged, "Membership triples of <" + directContainer + "> did not converge after concurrent creates and deletes.");
+	}
+
 	private boolean hasMembershipTriples(Model containerModel) {
 		Resource container = containerModel.getResource(directContainer);
 		Resource membershipResource = container.getPropertyResourceValue(containerModel.createProperty(LDP.membershipResource.stringValue()));
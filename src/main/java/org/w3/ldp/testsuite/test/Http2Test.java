@@ -0,0 +1,219 @@
+package org.w3.ldp.testsuite.test;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.hp.hpl.jena.rdf.model.Model;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.testng.annotations.Optional;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+import org.w3.ldp.testsuite.LdpTestSuite;
+import org.w3.ldp.testsuite.annotations.SpecTest;
+import org.w3.ldp.testsuite.annotations.SpecTest.METHOD;
+import org.w3.ldp.testsuite.annotations.SpecTest.STATUS;
+import org.w3.ldp.testsuite.exception.SkipException;
+import org.w3.ldp.testsuite.http.LdpAsyncClient;
+import org.w3.ldp.testsuite.mapper.RdfObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.w3.ldp.testsuite.http.HttpHeaders.*;
+import static org.w3.ldp.testsuite.http.LdpPreferences.PREFER_MINIMAL_CONTAINER;
+import static org.w3.ldp.testsuite.http.MediaTypes.TEXT_TURTLE;
+
+/**
+ * Compares the LDP responses of a server over HTTP/1.1 and HTTP/2, added to
+ * the suite with {@code --checkHttp2}. The same requests are sent over both
+ * protocols and the LDP headers of the responses must match, since HTTP/2
+ * changes how messages are framed, not what they mean. Also measures how
+ * much faster concurrent requests are when multiplexed on one connection.
+ */
+public class Http2Test extends LdpTest {
+
+	/** Requests in flight at once when measuring multiplexing. */
+	private static final int CONCURRENT_REQUESTS = 32;
+
+	private final String container;
+
+	@Parameters({"basicContainer", "directContainer", "indirectContainer", "auth"})
+	public Http2Test(@Optional String basicContainer, @Optional String directContainer,
+			@Optional String indirectContainer, @Optional String auth) throws IOException {
+		this.container = anyContainer(basicContainer, directContainer, indirectContainer);
+		this.auth = parseAuth(auth);
+	}
+
+	@Test(
+			groups = {SHOULD},
+			description = "LDP servers should send the same Link headers, "
+					+ "such as the interaction model, over HTTP/2 as over HTTP/1.1.")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpr-gen-linktypehdr",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Link headers are compared as sets, ignoring order.")
+	public void testSameLinkHeadersOverHttp2() {
+		HttpResponse http1 = get(false, null);
+		HttpResponse http2 = get(true, null);
+		assertEquals(links(http2), links(http1), "Link headers of <" + container + "> differ over HTTP/2");
+	}
+
+	@Test(
+			groups = {SHOULD},
+			description = "LDP servers should honor Prefer over HTTP/2 as over "
+					+ "HTTP/1.1, with the same Preference-Applied header and representation.")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#prefer-parameters",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Asks for a minimal container representation.")
+	public void testSamePreferenceAppliedOverHttp2() throws IOException {
+		String prefer = include(PREFER_MINIMAL_CONTAINER);
+		HttpResponse http1 = get(false, prefer);
+		HttpResponse http2 = get(true, prefer);
+		assertEquals(headerValue(http2, PREFERNCE_APPLIED), headerValue(http1, PREFERNCE_APPLIED),
+				"Preference-Applied for <" + container + "> differs over HTTP/2");
+		assertTrue(parse(http1).isIsomorphicWith(parse(http2)),
+				"Representation of <" + container + "> with Prefer: " + prefer + " differs over HTTP/2");
+	}
+
+	@Test(
+			groups = {SHOULD},
+			description = "LDP servers should send the same entity tag over "
+					+ "HTTP/2 as over HTTP/1.1, and honor it in If-None-Match "
+					+ "whichever protocol it came from.")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpr-gen-etags",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Clients behind HTTP/2 proxies revalidate with tags "
+					+ "cached from either protocol.")
+	public void testSameEntityTagsOverHttp2() {
+		String etag = headerValue(get(false, null), ETAG);
+		if (etag == null) {
+			throw new SkipException(Thread.currentThread().getStackTrace()[1].getMethodName(),
+					"Container <" + container + "> has no entity tag to compare.", skipLog);
+		}
+		assertEquals(headerValue(get(true, null), ETAG), etag, "Entity tag of <" + container + "> differs over HTTP/2");
+
+		HttpGet conditional = new HttpGet(container);
+		conditional.setHeader(ACCEPT, TEXT_TURTLE);
+		conditional.setHeader(IF_NONE_MATCH, etag);
+		assertEquals(send(conditional, true).getStatusLine().getStatusCode(), HttpStatus.SC_NOT_MODIFIED,
+				"Unexpected status for GET <" + container + "> over HTTP/2 with If-None-Match: " + etag);
+	}
+
+	@Test(
+			groups = {PERFORMANCE},
+			description = "Measures concurrent GETs of a container over "
+					+ "HTTP/1.1 connections and multiplexed over one HTTP/2 connection.")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpr-gen-http",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Both protocols start with a warm connection, so the "
+					+ "difference is that of the connections opened meanwhile and multiplexing.")
+	public void testMultiplexing() {
+		long http1 = measure(false);
+		long http2 = measure(true);
+		recordMeasurement("concurrent requests", CONCURRENT_REQUESTS);
+		recordMeasurement("HTTP/1.1 ms", (double) TimeUnit.NANOSECONDS.toMicros(http1) / 1000);
+		recordMeasurement("HTTP/2 ms", (double) TimeUnit.NANOSECONDS.toMicros(http2) / 1000);
+		recordMeasurement("HTTP/2 speedup", http2 == 0 ? 0 : (double) http1 / http2);
+	}
+
+	/**
+	 * @return how long the concurrent GETs took over one protocol
+	 */
+	private long measure(boolean overHttp2) {
+		get(overHttp2, null);
+		List<ListenableFuture<HttpResponse>> responses = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+			HttpGet get = new HttpGet(container);
+			get.setHeader(ACCEPT, TEXT_TURTLE);
+			addAuthorization(get);
+			responses.add(LdpAsyncClient.execute(get, overHttp2));
+		}
+		for (HttpResponse response : await(Futures.allAsList(responses))) {
+			assertEquals(response.getStatusLine().getStatusCode(), HttpStatus.SC_OK,
+					"Unexpected status for GET <" + container + "> over " + response.getStatusLine().getProtocolVersion());
+		}
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * GETs the container as Turtle.
+	 *
+	 * @param prefer the Prefer header, or null
+	 */
+	private HttpResponse get(boolean overHttp2, String prefer) {
+		HttpGet get = new HttpGet(container);
+		get.setHeader(ACCEPT, TEXT_TURTLE);
+		if (prefer != null) {
+			get.setHeader(PREFER, prefer);
+		}
+		HttpResponse response = send(get, overHttp2);
+		assertEquals(response.getStatusLine().getStatusCode(), HttpStatus.SC_OK,
+				"Unexpected status for GET <" + container + "> over " + response.getStatusLine().getProtocolVersion());
+		return response;
+	}
+
+	/**
+	 * Sends a request over one protocol, skipping the test if the server
+	 * does not speak HTTP/2.
+	 */
+	private HttpResponse send(HttpGet request, boolean overHttp2) {
+		addAuthorization(request);
+		HttpResponse response;
+		try {
+			response = await(LdpAsyncClient.execute(request, overHttp2));
+		} catch (IllegalStateException e) {
+			if (overHttp2 && e.getCause() instanceof IOException) {
+				ITestResult result = Reporter.getCurrentTestResult();
+				throw new SkipException(result != null ? result.getName() : "setup",
+						"Server of <" + container + "> does not speak HTTP/2: " + e.getCause(), skipLog);
+			}
+			throw e;
+		}
+		if (overHttp2) {
+			assertEquals(response.getStatusLine().getProtocolVersion().getMajor(), 2,
+					"GET <" + container + "> was answered over " + response.getStatusLine().getProtocolVersion());
+		}
+		return response;
+	}
+
+	private Model parse(HttpResponse response) throws IOException {
+		return new RdfObjectMapper(container).read(EntityUtils.toByteArray(response.getEntity()), TEXT_TURTLE, HttpGet.METHOD_NAME);
+	}
+
+	private static String headerValue(HttpResponse response, String name) {
+		Header header = response.getFirstHeader(name);
+		return header != null ? header.getValue() : null;
+	}
+
+	/**
+	 * @return each link of the Link headers, whether sent in one header or
+	 *         several
+	 */
+	private static SortedSet<String> links(HttpResponse response) {
+		SortedSet<String> links = new TreeSet<>();
+		for (Header header : response.getHeaders(LINK)) {
+			links.addAll(splitLinks(header.getValue()));
+		}
+		return links;
+	}
+
+}
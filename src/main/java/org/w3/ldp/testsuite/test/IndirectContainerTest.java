@@ -25,6 +25,8 @@ import org.w3.ldp.testsuite.mapper.RdfObjectMapper;
 import org.w3.ldp.testsuite.vocab.LDP;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.hamcrest.Matchers.notNullValue;
 import static org.testng.Assert.assertTrue;
@@ -193,12 +195,10 @@ public class IndirectContainerTest extends CommonContainerTest {
 
 		String location = postResponse.getHeader(LOCATION);
 		
-		Response getResponse = buildBaseRequestSpecification()
-				.header(ACCEPT, TEXT_TURTLE)
-				.header(PREFER, include(LdpPreferences.PREFER_CONTAINMENT))
-				.when()
-					.get(indirectContainer);
-		Model containerModel = getResponse.as(Model.class, new RdfObjectMapper(indirectContainer));
+		// Fetch the container and the member together, the member-derived URI is in the member
+		List<Model> models = getAsModels(Arrays.asList(indirectContainer, location));
+		Model containerModel = models.get(0);
+		Model memberModel = models.get(1);
 		Resource container = containerModel.getResource(indirectContainer);
 		Property contains = ResourceFactory.createProperty(LDP.contains.stringValue());
 		
@@ -209,7 +209,43 @@ public class IndirectContainerTest extends CommonContainerTest {
 						+ "> didn't create a triple with the containerURI as a subject, ldp:contains as the predicate "
 						+ "and the resource's newly created URI as the object."
 		);
-				
+		
+		Resource membershipResource = container.getPropertyResourceValue(containerModel.createProperty(LDP.membershipResource.stringValue()));
+		Resource hasMemberRelation = container.getPropertyResourceValue(containerModel.createProperty(LDP.hasMemberRelation.stringValue()));
+		if (membershipResource != null && hasMemberRelation != null && insertedContentRelationProperty != null) {
+			Resource member = getPrimaryTopic(memberModel, location).getPropertyResourceValue(insertedContentRelationProperty);
+			if (member != null) {
+				assertTrue(
+						membershipResource.hasProperty(containerModel.createProperty(hasMemberRelation.getURI()), containerModel.getResource(member.getURI())),
+						"The IndirectContainer <"
+								+ indirectContainer
+								+ "> has no membership triple for the member-derived URI <" + member.getURI() + ">."
+				);
+			}
+		}
+	}
+
+	@Test(
+			groups = {PERFORMANCE},
+			description = "Membership triples of an LDP Indirect Container, "
+					+ "derived through its ldp:insertedContentRelation, stay "
+					+ "consistent while members are concurrently created and "
+					+ "deleted, and converge once the churn stops.")
+	@Parameters({"churnDuration", "churnThreads", "churnInterval"})
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpic-indirectmbr",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Drift during the churn is reported, only failing to "
+					+ "converge fails the test.")
+	public void testMembershipConsistencyUnderChurn(@Optional("30") int duration, @Optional("4") int threads,
+			@Optional("500") int interval) throws InterruptedException {
+		skipIfMethodNotAllowed(HttpMethod.POST);
+
+		MembershipChurn churn = new MembershipChurn(this, indirectContainer, insertedContentRelationProperty);
+		boolean converged = churn.run(duration, threads, interval);
+		recordChurnMeasurements(churn);
+		assertTrue(converged, "Membership triples of <" + indirectContainer + "> did not converge after concurrent creates and deletes.");
 	}
 
 	private void setInsertedContentRelation() {
@@ -7,30 +7,61 @@ import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.util.ResourceUtils;
 import com.hp.hpl.jena.vocabulary.DCTerms;
 import com.hp.hpl.jena.vocabulary.RDF;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.jayway.restassured.RestAssured;
+import com.jayway.restassured.config.RestAssuredConfig;
 import com.jayway.restassured.response.Header;
 import com.jayway.restassured.response.Response;
+import com.jayway.restassured.specification.FilterableRequestSpecification;
 import com.jayway.restassured.specification.RequestSpecification;
 
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.output.WriterOutputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpRequest;
 import org.apache.marmotta.commons.vocabulary.LDP;
 import org.jboss.resteasy.plugins.delegates.LinkDelegate;
+import org.testng.ITestResult;
+import org.testng.Reporter;
 import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeSuite;
 import org.testng.annotations.Optional;
 import org.testng.annotations.Parameters;
 import org.w3.ldp.testsuite.LdpTestSuite;
+import org.w3.ldp.testsuite.filter.RequestLimiter;
+import org.w3.ldp.testsuite.filter.ResourceTrackingFilter;
+import org.w3.ldp.testsuite.http.LdpAsyncClient;
+import org.w3.ldp.testsuite.http.LdpHttpClientFactory;
+import org.w3.ldp.testsuite.http.SingleFlight;
 import org.w3.ldp.testsuite.mapper.RdfObjectMapper;
+import org.w3.ldp.testsuite.reporter.TestMeasurements;
 
 import javax.ws.rs.core.Link;
 
 import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.jayway.restassured.config.DecoderConfig.ContentDecoder.DEFLATE;
+import static com.jayway.restassured.config.DecoderConfig.ContentDecoder.GZIP;
+import static com.jayway.restassured.config.DecoderConfig.decoderConfig;
+import static com.jayway.restassured.config.LogConfig.logConfig;
 import static org.testng.Assert.assertTrue;
 import static org.w3.ldp.testsuite.http.HttpHeaders.*;
 import static org.w3.ldp.testsuite.http.LdpPreferences.PREFERENCE_INCLUDE;
@@ -47,6 +78,12 @@ public abstract class LdpTest {
 
 	public final static String DEFAULT_MODEL_TYPE = "http://example.com/ns#Bug";
 
+	/**
+	 * Requests in flight at most for {@link #async(Callable)} and
+	 * {@link #inParallel(List)}, for all tests together
+	 */
+	public final static int MAX_CONCURRENT_REQUESTS = 8;
+
 	/*
 	 * The following properties are marked static because commonSetup() is only called
 	 * one time, even if several test classes inherit from LdpTest.
@@ -67,6 +104,11 @@ public abstract class LdpTest {
 	 */
 	protected static PrintWriter skipLog;
 
+	/**
+	 * Sends the requests of {@link #async(Callable)}, created on first use
+	 */
+	private static ListeningExecutorService requestExecutor;
+
 	/**
 	 * Builds a model from a turtle representation in a file
 	 * @param path
@@ -120,6 +162,10 @@ public abstract class LdpTest {
 
 		postModel = readModel(postTtl);
 
+		if (!RestAssured.filters().contains(ResourceTrackingFilter.getInstance())) {
+			RestAssured.filters(ResourceTrackingFilter.getInstance());
+		}
+
 		if (outputDir == null || outputDir.length() == 0)
 			outputDir = LdpTestSuite.OUTPUT_DIR;
 		
@@ -164,6 +210,13 @@ public abstract class LdpTest {
 			skipLog.flush();
 			skipLog.close();
 		}
+		LdpAsyncClient.shutdown();
+		synchronized (LdpTest.class) {
+			if (requestExecutor != null) {
+				requestExecutor.shutdown();
+				requestExecutor = null;
+			}
+		}
 	}
 
 	/**
@@ -199,11 +252,149 @@ public abstract class LdpTest {
 	public static final String MANUAL = "MANUAL";
 
 	/**
-	 * Build a base RestAssured {@link com.jayway.restassured.specification.RequestSpecification}.
+	 * Performance and scalability measurements that go beyond the
+	 * requirements of the specification. These tests can put considerable
+	 * load on the server, so they only run when the group is explicitly
+	 * included.
+	 */
+	public static final String PERFORMANCE = "PERFORMANCE";
+
+	/**
+	 * Basic authentication credentials for the requests of the test, with
+	 * the keys {@code username} and {@code password}, or null.
+	 *
+	 * @see #parseAuth(String)
+	 */
+	protected Map<String,String> auth;
+
+	/**
+	 * Parses the {@code auth} test parameter.
 	 *
+	 * @param auth
+	 *            basic authentication credentials as username:password, or
+	 *            null
+	 * @return the credentials, or null if there are none
+	 */
+	public static Map<String,String> parseAuth(String auth) {
+		if (StringUtils.isNotBlank(auth) && auth.contains(":")) {
+			String[] split = auth.split(":");
+			if (split.length == 2 && StringUtils.isNotBlank(split[0]) && StringUtils.isNotBlank(split[1])) {
+				return ImmutableMap.of("username", split[0], "password", split[1]);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Picks the container for a test that needs only one. They are all on the
+	 * same server, so any will do.
+	 *
+	 * @return the first container given, or null if there is none
+	 */
+	protected static String anyContainer(String basicContainer, String directContainer, String indirectContainer) {
+		if (StringUtils.isNotBlank(basicContainer)) {
+			return basicContainer;
+		} else if (StringUtils.isNotBlank(directContainer)) {
+			return directContainer;
+		}
+		return StringUtils.isNotBlank(indirectContainer) ? indirectContainer : null;
+	}
+
+	/**
+	 * Build a base RestAssured {@link com.jayway.restassured.specification.RequestSpecification}
+	 * with the credentials of the test.
+	 *
+	 * @return RestAssured Request Specification
+	 * @see #buildBaseRequestSpecification(Map)
+	 */
+	protected RequestSpecification buildBaseRequestSpecification() {
+		return buildBaseRequestSpecification(auth);
+	}
+
+	/**
+	 * Build a base RestAssured {@link com.jayway.restassured.specification.RequestSpecification}
+	 * for requests made outside of a test, such as by the reporters, with the
+	 * same configuration as the tests.
+	 *
+	 * @param auth
+	 *            the credentials, as from {@link #parseAuth(String)}, or null
 	 * @return RestAssured Request Specification
 	 */
-	protected abstract RequestSpecification buildBaseRequestSpecification();
+	public static RequestSpecification buildBaseRequestSpecification(Map<String,String> auth) {
+		RequestSpecification spec = RestAssured.given()
+				.config(requestConfig())
+				.header(ACCEPT_ENCODING, LdpHttpClientFactory.BROTLI);
+		if (auth != null) {
+			spec.auth().preemptive().basic(auth.get("username"), auth.get("password"));
+		}
+
+		if (httpLog != null) {
+			spec.config(requestConfig()
+					.logConfig(logConfig()
+							.enableLoggingOfRequestAndResponseIfValidationFails()
+							.defaultStream(new PrintStream(new WriterOutputStream(httpLog)))
+							.enablePrettyPrinting(true)));
+		}
+
+		return spec;
+	}
+
+	/**
+	 * Records a named measurement for the running test. Measurements are
+	 * listed with the test details in the reports.
+	 *
+	 * @param name the measurement name
+	 * @param value the measured value
+	 * @see TestMeasurements
+	 */
+	protected static void recordMeasurement(String name, Object value) {
+		TestMeasurements.record(name, value);
+	}
+
+	/**
+	 * Records the limits of the {@link RequestLimiter} for a test that sends
+	 * many requests, so its results can be read knowing how far the server
+	 * was pushed.
+	 */
+	protected static void recordRequestLimits() {
+		RequestLimiter limiter = RequestLimiter.getActive();
+		if (limiter != null) {
+			recordMeasurement("limiter max req/s", limiter.getMaxRate() > 0 ? String.valueOf(limiter.getMaxRate()) : "-");
+			recordMeasurement("limiter concurrency limit", limiter.getMaxConcurrency() > 0
+					? limiter.getLimit() + " of at most " + limiter.getMaxConcurrency() : "-");
+		}
+	}
+
+	/**
+	 * The RestAssured configuration for all requests. Responses compressed
+	 * with gzip, deflate or Brotli are decoded transparently.
+	 *
+	 * @return the configuration, to be extended with test specific settings
+	 * @see LdpHttpClientFactory
+	 */
+	protected static RestAssuredConfig requestConfig() {
+		RestAssuredConfig config = RestAssured.config();
+		return config
+				.decoderConfig(decoderConfig().contentDecoders(GZIP, DEFLATE))
+				.httpClient(config.getHttpClientConfig().httpClientFactory(new LdpHttpClientFactory()));
+	}
+
+	/**
+	 * Sends a GET or HEAD request on its own, rather than sharing the
+	 * exchange of an identical request in flight, for a test that needs the
+	 * server to answer this very request.
+	 *
+	 * @param spec the request, such as from {@link #buildBaseRequestSpecification()}
+	 * @return the request
+	 * @see LdpHttpClientFactory#COALESCE
+	 */
+	protected static RequestSpecification independent(RequestSpecification spec) {
+		RestAssuredConfig config = ((FilterableRequestSpecification) spec).getConfig();
+		if (config == null) {
+			config = requestConfig();
+		}
+		return spec.config(config.httpClient(config.getHttpClientConfig().setParam(LdpHttpClientFactory.COALESCE, false)));
+	}
 
 	public Model getAsModel(String uri) {
 		return getResourceAsModel(uri, TEXT_TURTLE);
@@ -218,6 +409,137 @@ public abstract class LdpTest {
 				.get(uri).as(Model.class, new RdfObjectMapper(uri));
 	}
 
+	/**
+	 * Adds authorization to a request made without RestAssured, matching
+	 * {@link #buildBaseRequestSpecification()}.
+	 *
+	 * @param request the request
+	 */
+	protected void addAuthorization(HttpRequest request) {
+		if (auth != null) {
+			String credentials = auth.get("username") + ":" + auth.get("password");
+			request.setHeader(AUTHORIZATION, "Basic " + Base64.encodeBase64String(credentials.getBytes(StandardCharsets.UTF_8)));
+		}
+	}
+
+	public ListenableFuture<Model> getAsModelAsync(String uri) {
+		return getResourceAsModelAsync(uri, TEXT_TURTLE);
+	}
+
+	/**
+	 * Like {@link #getResourceAsModel(String, String)}, but returns at once.
+	 *
+	 * @see #async(Callable)
+	 */
+	public ListenableFuture<Model> getResourceAsModelAsync(final String uri, final String mediaType) {
+		return async(new Callable<Model>() {
+			@Override
+			public Model call() {
+				return getResourceAsModel(uri, mediaType);
+			}
+		});
+	}
+
+	/**
+	 * Fetches resources as models concurrently, at most
+	 * {@link #MAX_CONCURRENT_REQUESTS} at a time, so that checking a
+	 * container and its members takes about as long as the slowest request.
+	 *
+	 * @param uris the resources
+	 * @return the models, in the order of the URIs
+	 * @throws AssertionError if any request was not successful
+	 * @see #getAsModel(String)
+	 */
+	public List<Model> getAsModels(List<String> uris) {
+		List<ListenableFuture<Model>> models = new ArrayList<>();
+		for (String uri : uris) {
+			models.add(getAsModelAsync(uri));
+		}
+		return await(Futures.allAsList(models));
+	}
+
+	/**
+	 * Sends a request without waiting for it, so a test can have independent
+	 * requests in flight together, such as fetching a container and a member.
+	 * The request is made with RestAssured, such as with
+	 * {@link #buildBaseRequestSpecification()}, on one of
+	 * {@link #MAX_CONCURRENT_REQUESTS} threads shared by all tests. It goes
+	 * through the request limiter, retries, watchdog and timings like any
+	 * other, and is attributed to the calling test.
+	 *
+	 * <p>
+	 * Wait for the result with {@link #await(Future)}. A request must not
+	 * wait for another request sent this way, which could be queued behind
+	 * it.
+	 * </p>
+	 *
+	 * @param request the request
+	 * @return the result of the request
+	 */
+	protected static <T> ListenableFuture<T> async(final Callable<T> request) {
+		final ITestResult caller = Reporter.getCurrentTestResult();
+		return getRequestExecutor().submit(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				Reporter.setCurrentTestResult(caller);
+				try {
+					return request.call();
+				} finally {
+					Reporter.setCurrentTestResult(null);
+				}
+			}
+		});
+	}
+
+	private static synchronized ListeningExecutorService getRequestExecutor() {
+		if (requestExecutor == null) {
+			requestExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS,
+					new ThreadFactoryBuilder().setNameFormat("ldp-request-%d").setDaemon(true).build()));
+		}
+		return requestExecutor;
+	}
+
+	/**
+	 * Sends independent requests concurrently with {@link #async(Callable)},
+	 * so that they take about as long as the slowest one rather than all of
+	 * them added up.
+	 *
+	 * @param requests the requests
+	 * @return the results, in the order of the requests
+	 * @throws AssertionError if any request failed an expectation
+	 */
+	protected static <T> List<T> inParallel(List<? extends Callable<T>> requests) {
+		List<ListenableFuture<T>> futures = new ArrayList<>();
+		for (Callable<T> request : requests) {
+			futures.add(async(request));
+		}
+		List<T> results = new ArrayList<>();
+		for (ListenableFuture<T> future : futures) {
+			results.add(await(future));
+		}
+		return results;
+	}
+
+	/**
+	 * Waits for the result of an asynchronous request. Errors, assertion
+	 * errors included, are thrown as they were raised, so the test fails as
+	 * if the request had been made blocking.
+	 *
+	 * @param future the result
+	 * @return the value
+	 */
+	protected static <T> T await(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a response", e);
+		} catch (ExecutionException e) {
+			Throwables.propagateIfPossible(e.getCause());
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
 	protected Model getDefaultModel() {
 		Model model = ModelFactory.createDefaultModel();
 		Resource resource = model.createResource("",
@@ -360,8 +682,20 @@ public abstract class LdpTest {
 	 */
 	// LinkDelegate doesn't handle this for us
 	protected List<String> splitLinks(Header linkHeader) {
+		return splitLinks(linkHeader.getValue());
+	}
+
+	/**
+	 * Splits an HTTP Link header value that might have multiple links
+	 * separated by a comma.
+	 *
+	 * @param value
+	 *			the link header value
+	 * @return the list of link-values as defined in RFC 5988
+	 * @see #splitLinks(Header)
+	 */
+	public static List<String> splitLinks(String value) {
 		final ArrayList<String> links = new ArrayList<>();
-		final String value = linkHeader.getValue();
 
 		// Track the beginning index for the current link-value.
 		int beginIndex = 0;
@@ -0,0 +1,285 @@
+package org.w3.ldp.testsuite.test;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.ResIterator;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+import org.apache.commons.io.IOUtils;
+import org.w3.ldp.testsuite.vocab.Scenario;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.w3.ldp.testsuite.http.MediaTypes.APPLICATION_OCTET_STREAM;
+import static org.w3.ldp.testsuite.http.MediaTypes.TEXT_TURTLE;
+
+/**
+ * A load scenario read from a Turtle file: how many users, for how long,
+ * the think time between their requests, the containers and members to
+ * create beforehand and the weighted mix of operations the users perform.
+ * See {@link Scenario} for the terms.
+ *
+ * <p>
+ * The scenario and the templates it refers to are looked up on the file
+ * system first, then on the class path. Template paths are relative to the
+ * scenario, so a scenario and its templates can be kept together with the
+ * configuration of the server they exercise.
+ * </p>
+ */
+class LoadScenario {
+
+	/** One kind of request in the mix. */
+	static class Operation {
+
+		final String label;
+		final int weight;
+		final String method;
+		final Resource target;
+		/** The request body, or null for none or a generated binary. */
+		final byte[] body;
+		final String contentType;
+		/** The size of a generated binary body, or 0. */
+		final long binarySize;
+
+		Operation(String label, int weight, String method, Resource target, byte[] body, String contentType, long binarySize) {
+			this.label = label;
+			this.weight = weight;
+			this.method = method;
+			this.target = target;
+			this.body = body;
+			this.contentType = contentType;
+			this.binarySize = binarySize;
+		}
+
+		/**
+		 * @return true if the operation creates an LDP-NR
+		 */
+		boolean isBinaryUpload() {
+			return binarySize > 0;
+		}
+	}
+
+	private final String name;
+	private int users = 4;
+	private int durationSeconds = 60;
+	private long thinkTimeMillis;
+	private double maxErrorRate = 0.05;
+	private int containers;
+	private int members;
+	private byte[] memberTemplate;
+	private final List<Operation> operations = new ArrayList<>();
+	private int totalWeight;
+
+	private LoadScenario(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Reads a scenario.
+	 *
+	 * @param location
+	 *            a file, or a resource on the class path
+	 * @return the scenario
+	 * @throws IllegalArgumentException
+	 *             if the scenario is missing or incomplete
+	 */
+	static LoadScenario read(String location) throws IOException {
+		Model model = ModelFactory.createDefaultModel();
+		try (InputStream in = open(location, null)) {
+			model.read(in, "", "TURTLE");
+		}
+
+		ResIterator subjects = model.listSubjectsWithProperty(RDF.type, Scenario.Scenario);
+		if (!subjects.hasNext()) {
+			throw new IllegalArgumentException("ERROR: no ldpt:Scenario in " + location);
+		}
+		Resource subject = subjects.nextResource();
+
+		LoadScenario scenario = new LoadScenario(label(subject, new File(location).getName()));
+		scenario.users = intValue(subject, Scenario.users, scenario.users);
+		scenario.durationSeconds = intValue(subject, Scenario.duration, scenario.durationSeconds);
+		scenario.thinkTimeMillis = intValue(subject, Scenario.thinkTime, 0);
+		if (subject.hasProperty(Scenario.maxErrorRate)) {
+			scenario.maxErrorRate = subject.getProperty(Scenario.maxErrorRate).getDouble();
+		}
+
+		if (subject.hasProperty(Scenario.layout)) {
+			Resource layout = subject.getPropertyResourceValue(Scenario.layout);
+			scenario.containers = intValue(layout, Scenario.containers, 0);
+			scenario.members = intValue(layout, Scenario.members, 0);
+			if (layout.hasProperty(Scenario.memberTemplate)) {
+				scenario.memberTemplate = load(layout.getProperty(Scenario.memberTemplate).getString(), location);
+			}
+		}
+
+		for (StmtIterator it = subject.listProperties(Scenario.operation); it.hasNext(); ) {
+			scenario.add(readOperation(it.nextStatement().getResource(), location));
+		}
+		if (scenario.operations.isEmpty() || scenario.totalWeight <= 0) {
+			throw new IllegalArgumentException("ERROR: no ldpt:operation with a positive ldpt:weight in " + location);
+		}
+		if (scenario.users < 1 || scenario.durationSeconds < 1) {
+			throw new IllegalArgumentException("ERROR: ldpt:users and ldpt:duration must be positive in " + location);
+		}
+		return scenario;
+	}
+
+	private static Operation readOperation(Resource resource, String location) throws IOException {
+		String method = resource.hasProperty(Scenario.method)
+				? resource.getProperty(Scenario.method).getString().toUpperCase(Locale.ENGLISH)
+				: "GET";
+		Resource target = resource.hasProperty(Scenario.target)
+				? resource.getPropertyResourceValue(Scenario.target)
+				: Scenario.Container;
+		if (!target.equals(Scenario.Container) && !target.equals(Scenario.Member) && !target.equals(Scenario.Binary)) {
+			throw new IllegalArgumentException("ERROR: unknown ldpt:target <" + target + "> in " + location);
+		}
+		if (method.equals("POST") && !target.equals(Scenario.Container)) {
+			throw new IllegalArgumentException("ERROR: POST must target ldpt:Container in " + location);
+		}
+		if (method.equals("DELETE") && target.equals(Scenario.Container)) {
+			throw new IllegalArgumentException("ERROR: DELETE must target ldpt:Member or ldpt:Binary in " + location);
+		}
+
+		long binarySize = resource.hasProperty(Scenario.binarySize)
+				? resource.getProperty(Scenario.binarySize).getLong()
+				: 0;
+		byte[] body = resource.hasProperty(Scenario.template)
+				? load(resource.getProperty(Scenario.template).getString(), location)
+				: null;
+		String contentType = resource.hasProperty(Scenario.contentType)
+				? resource.getProperty(Scenario.contentType).getString()
+				: binarySize > 0 ? APPLICATION_OCTET_STREAM : TEXT_TURTLE;
+
+		return new Operation(label(resource, method + " " + target.getLocalName()), intValue(resource, Scenario.weight, 1),
+				method, target, body, contentType, binarySize);
+	}
+
+	private void add(Operation operation) {
+		operations.add(operation);
+		totalWeight += Math.max(0, operation.weight);
+	}
+
+	String getName() {
+		return name;
+	}
+
+	int getUsers() {
+		return users;
+	}
+
+	int getDurationSeconds() {
+		return durationSeconds;
+	}
+
+	/**
+	 * @return the mean pause of a user between two requests
+	 */
+	long getThinkTimeMillis() {
+		return thinkTimeMillis;
+	}
+
+	double getMaxErrorRate() {
+		return maxErrorRate;
+	}
+
+	/**
+	 * @return the number of containers to create for the scenario, or 0 to
+	 *         use the container under test
+	 */
+	int getContainers() {
+		return containers;
+	}
+
+	/**
+	 * @return the number of members to create in each container beforehand
+	 */
+	int getMembers() {
+		return members;
+	}
+
+	/**
+	 * @return the content of members created beforehand, or null for the
+	 *         suite's POST content
+	 */
+	byte[] getMemberTemplate() {
+		return memberTemplate;
+	}
+
+	List<Operation> getOperations() {
+		return Collections.unmodifiableList(operations);
+	}
+
+	/**
+	 * @return an operation picked at random in proportion to its weight
+	 */
+	Operation choose(Random random) {
+		int pick = random.nextInt(totalWeight);
+		for (Operation operation : operations) {
+			pick -= Math.max(0, operation.weight);
+			if (pick < 0) {
+				return operation;
+			}
+		}
+		throw new IllegalStateException();
+	}
+
+	private static String label(Resource resource, String defaultLabel) {
+		return resource.hasProperty(RDFS.label) ? resource.getProperty(RDFS.label).getString() : defaultLabel;
+	}
+
+	private static int intValue(Resource resource, Property property, int defaultValue) {
+		Statement statement = resource.getProperty(property);
+		if (statement == null) {
+			return defaultValue;
+		}
+		RDFNode object = statement.getObject();
+		if (!object.isLiteral()) {
+			throw new IllegalArgumentException("ERROR: " + property.getLocalName() + " must be a number");
+		}
+		return object.asLiteral().getInt();
+	}
+
+	private static byte[] load(String path, String relativeTo) throws IOException {
+		try (InputStream in = open(path, relativeTo)) {
+			return IOUtils.toByteArray(in);
+		}
+	}
+
+	/**
+	 * Opens a file or class path resource, relative to the directory of
+	 * another one if given.
+	 */
+	private static InputStream open(String path, String relativeTo) throws IOException {
+		String resolved = path;
+		if (relativeTo != null && !new File(path).isAbsolute()) {
+			String parent = new File(relativeTo).getParent();
+			if (parent != null) {
+				resolved = new File(parent, path).getPath();
+			}
+		}
+		File file = new File(resolved);
+		if (file.isFile()) {
+			return new FileInputStream(file);
+		}
+		InputStream in = LoadScenario.class.getClassLoader().getResourceAsStream(resolved.replace(File.separatorChar, '/'));
+		if (in == null) {
+			throw new IllegalArgumentException("ERROR: cannot find " + resolved);
+		}
+		return in;
+	}
+
+}
@@ -0,0 +1,373 @@
+package org.w3.ldp.testsuite.test;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.NodeIterator;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.jayway.restassured.response.Response;
+import org.apache.http.HttpStatus;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.w3.ldp.testsuite.exception.SkipException;
+import org.w3.ldp.testsuite.mapper.RdfObjectMapper;
+import org.w3.ldp.testsuite.util.LongHashSet;
+import org.w3.ldp.testsuite.vocab.LDP;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.w3.ldp.testsuite.http.HttpHeaders.ACCEPT;
+import static org.w3.ldp.testsuite.http.HttpHeaders.LOCATION;
+import static org.w3.ldp.testsuite.http.HttpHeaders.PREFER;
+import static org.w3.ldp.testsuite.http.LdpPreferences.PREFER_MEMBERSHIP;
+import static org.w3.ldp.testsuite.http.MediaTypes.TEXT_TURTLE;
+
+/**
+ * Creates and deletes members of a Direct or Indirect Container from several
+ * threads while periodically comparing the container's membership triples
+ * against the set of members known to exist or to be gone.
+ *
+ * <p>
+ * A member only counts as expected if it was created before a membership
+ * fetch started and was not yet being deleted when the fetch finished.
+ * Likewise, a membership triple only counts as stale if its member was
+ * deleted before the fetch started. Members whose state changed while the
+ * fetch was in flight are ignored, so any drift reported is really the
+ * server lagging behind (or losing) updates. Expected and observed triples
+ * are tracked as 64-bit hashes to keep memory flat for long runs.
+ * </p>
+ */
+class MembershipChurn {
+
+	private static final long CONVERGENCE_TIMEOUT_MS = 30000;
+
+	private final CommonContainerTest test;
+	private final String container;
+	private final Property insertedContentRelation;
+
+	private final Object lock = new Object();
+	private final LongHashSet present = new LongHashSet();
+	private final LongHashSet deleted = new LongHashSet();
+	private final LongHashSet created = new LongHashSet();
+	private final List<String> locations = new ArrayList<>();
+	private final Map<String, Long> triples = new HashMap<>();
+
+	private final AtomicBoolean running = new AtomicBoolean();
+	private final AtomicInteger creates = new AtomicInteger();
+	private final AtomicInteger deletes = new AtomicInteger();
+	private final AtomicInteger errors = new AtomicInteger();
+
+	private String membershipResource;
+	private String hasMemberRelation;
+
+	private int samples;
+	private int maxDrift;
+	private long totalDrift;
+	private long convergenceMillis = -1;
+
+	/**
+	 * @param test
+	 *            the test creating the members, used for its request
+	 *            specification and POST content
+	 * @param container
+	 *            the Direct or Indirect Container URI
+	 * @param insertedContentRelation
+	 *            the container's ldp:insertedContentRelation, or null for
+	 *            ldp:MemberSubject
+	 */
+	MembershipChurn(CommonContainerTest test, String container, Property insertedContentRelation) {
+		this.test = test;
+		this.container = container;
+		if (insertedContentRelation != null && LDP.MemberSubject.stringValue().equals(insertedContentRelation.getURI())) {
+			this.insertedContentRelation = null;
+		} else {
+			this.insertedContentRelation = insertedContentRelation;
+		}
+	}
+
+	/**
+	 * Runs the churn and waits for the membership triples to converge
+	 * afterwards. Members still left at the end are deleted.
+	 *
+	 * @param durationSeconds
+	 *            how long to keep creating and deleting members
+	 * @param threads
+	 *            number of worker threads, split between creators and
+	 *            deleters
+	 * @param intervalMillis
+	 *            pause between membership fetches
+	 * @return true if the membership triples converged after the churn
+	 */
+	boolean run(int durationSeconds, int threads, int intervalMillis) throws InterruptedException {
+		readMembershipPattern();
+
+		int creators = Math.max(1, threads / 2);
+		int deleters = Math.max(1, threads - creators);
+		ExecutorService workers = Executors.newFixedThreadPool(creators + deleters);
+		running.set(true);
+		try {
+			for (int i = 0; i < creators; i++) {
+				workers.execute(new Runnable() {
+					@Override
+					public void run() {
+						while (running.get()) {
+							create();
+						}
+					}
+				});
+			}
+			for (int i = 0; i < deleters; i++) {
+				final Random random = new Random(i);
+				workers.execute(new Runnable() {
+					@Override
+					public void run() {
+						while (running.get()) {
+							if (!delete(random)) {
+								pause(50);
+							}
+						}
+					}
+				});
+			}
+
+			long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(durationSeconds);
+			while (System.currentTimeMillis() < end) {
+				int drift = sample();
+				samples++;
+				totalDrift += drift;
+				maxDrift = Math.max(maxDrift, drift);
+				Thread.sleep(intervalMillis);
+			}
+		} finally {
+			running.set(false);
+			workers.shutdown();
+			workers.awaitTermination(1, TimeUnit.MINUTES);
+		}
+
+		try {
+			long start = System.currentTimeMillis();
+			long deadline = start + CONVERGENCE_TIMEOUT_MS;
+			do {
+				if (sample() == 0) {
+					convergenceMillis = System.currentTimeMillis() - start;
+					return true;
+				}
+				Thread.sleep(intervalMillis);
+			} while (System.currentTimeMillis() < deadline);
+			return false;
+		} finally {
+			// concurrently, there can be hundreds left
+			List<Callable<Response>> deletes = new ArrayList<>();
+			for (final String location : locations) {
+				deletes.add(new Callable<Response>() {
+					@Override
+					public Response call() {
+						return test.buildBaseRequestSpecification().delete(location);
+					}
+				});
+			}
+			LdpTest.inParallel(deletes);
+		}
+	}
+
+	int getCreates() {
+		return creates.get();
+	}
+
+	int getDeletes() {
+		return deletes.get();
+	}
+
+	int getErrors() {
+		return errors.get();
+	}
+
+	int getSamples() {
+		return samples;
+	}
+
+	int getMaxDrift() {
+		return maxDrift;
+	}
+
+	double getMeanDrift() {
+		return samples == 0 ? 0 : (double) totalDrift / samples;
+	}
+
+	/**
+	 * @return milliseconds until the membership triples matched after the
+	 *         churn stopped, or -1 if they never did
+	 */
+	long getConvergenceMillis() {
+		return convergenceMillis;
+	}
+
+	private void readMembershipPattern() {
+		Model containerModel = fetchMembership();
+		Resource resource = containerModel.getResource(container);
+		Resource membership = resource.getPropertyResourceValue(containerModel.createProperty(LDP.membershipResource.stringValue()));
+		Resource relation = resource.getPropertyResourceValue(containerModel.createProperty(LDP.hasMemberRelation.stringValue()));
+		if (membership == null || relation == null) {
+			throw skip("Container <" + container + "> does not use the ldp:hasMemberRelation membership pattern.");
+		}
+		membershipResource = membership.getURI();
+		hasMemberRelation = relation.getURI();
+
+		if (insertedContentRelation != null) {
+			NodeIterator objects = test.postContent().listObjectsOfProperty(insertedContentRelation);
+			if (!objects.hasNext() || !objects.next().isURIResource()) {
+				throw skip("POST content has no <" + insertedContentRelation.getURI() + "> triple to derive members from.");
+			}
+		}
+	}
+
+	private void create() {
+		try {
+			Model model = test.postContent();
+			Response response = test.buildBaseRequestSpecification()
+					.contentType(TEXT_TURTLE)
+					.body(model, new RdfObjectMapper())
+					.post(container);
+			String location = response.getHeader(LOCATION);
+			if (response.getStatusCode() != HttpStatus.SC_CREATED || location == null) {
+				errors.incrementAndGet();
+				return;
+			}
+			location = LdpTest.resolveIfRelative(container, location);
+			long triple = LongHashSet.hash(tripleKey(memberFor(location, model)));
+			synchronized (lock) {
+				present.add(triple);
+				created.add(triple);
+				locations.add(location);
+				triples.put(location, triple);
+			}
+			creates.incrementAndGet();
+		} catch (Exception e) {
+			errors.incrementAndGet();
+		}
+	}
+
+	private boolean delete(Random random) {
+		String location;
+		long triple;
+		synchronized (lock) {
+			if (locations.isEmpty()) {
+				return false;
+			}
+			// Swap-remove a random member so deletes stay O(1).
+			int i = random.nextInt(locations.size());
+			location = locations.get(i);
+			locations.set(i, locations.get(locations.size() - 1));
+			locations.remove(locations.size() - 1);
+			triple = triples.remove(location);
+			present.remove(triple);
+		}
+
+		try {
+			int status = test.buildBaseRequestSpecification().delete(location).getStatusCode();
+			if (status >= 200 && status < 300) {
+				synchronized (lock) {
+					deleted.add(triple);
+				}
+				deletes.incrementAndGet();
+				return true;
+			}
+		} catch (Exception e) {
+			// counted below
+		}
+		errors.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Fetches the membership triples once and compares them to the members
+	 * whose state was stable for the whole request.
+	 *
+	 * @return the number of missing plus stale membership triples
+	 */
+	private int sample() {
+		LongHashSet expected;
+		LongHashSet gone;
+		synchronized (lock) {
+			expected = present.copy();
+			gone = deleted.copy();
+		}
+
+		Model model = fetchMembership();
+		LongHashSet observed = new LongHashSet();
+		Resource membership = model.getResource(membershipResource);
+		StmtIterator statements = membership.listProperties(model.createProperty(hasMemberRelation));
+		while (statements.hasNext()) {
+			Statement statement = statements.next();
+			RDFNode member = statement.getObject();
+			if (member.isURIResource()) {
+				observed.add(LongHashSet.hash(tripleKey(member.asResource().getURI())));
+			}
+		}
+
+		synchronized (lock) {
+			expected.retainAll(present);
+			observed.retainAll(created);
+		}
+
+		int missing = expected.countNotIn(observed);
+		int stale = gone.countIn(observed);
+		return missing + stale;
+	}
+
+	private Model fetchMembership() {
+		// on its own, since the members compared to are those stable since the fetch started
+		Response response = LdpTest.independent(test.buildBaseRequestSpecification())
+				.header(ACCEPT, TEXT_TURTLE)
+				.header(PREFER, LdpTest.include(PREFER_MEMBERSHIP))
+				.get(container);
+		if (response.getStatusCode() != HttpStatus.SC_OK) {
+			throw new AssertionError("Expected 200 OK fetching membership of <" + container + ">, got " + response.getStatusCode());
+		}
+		return response.as(Model.class, new RdfObjectMapper(container));
+	}
+
+	/**
+	 * The member-derived URI of a new resource: the resource itself for
+	 * ldp:MemberSubject, otherwise the object of its inserted content
+	 * relation.
+	 */
+	private String memberFor(String location, Model posted) {
+		if (insertedContentRelation == null) {
+			return location;
+		}
+		NodeIterator objects = posted.listObjectsOfProperty(insertedContentRelation);
+		return LdpTest.resolveIfRelative(location, objects.next().asResource().getURI());
+	}
+
+	private String tripleKey(String member) {
+		return "<" + membershipResource + "> <" + hasMemberRelation + "> <" + member + ">";
+	}
+
+	private static SkipException skip(String message) {
+		ITestResult result = Reporter.getCurrentTestResult();
+		String testName = result != null ? result.getName() : MembershipChurn.class.getSimpleName();
+		return new SkipException(testName, message, LdpTest.skipLog);
+	}
+
+	private static void pause(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
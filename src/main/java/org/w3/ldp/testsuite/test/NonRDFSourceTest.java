@@ -1,10 +1,24 @@
 package org.w3.ldp.testsuite.test;
 
+import com.google.common.base.Throwables;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.jayway.restassured.response.Response;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
 import org.apache.marmotta.commons.util.HashUtils;
 import org.apache.marmotta.commons.vocabulary.LDP;
 import org.testng.Assert;
@@ -14,14 +28,36 @@ import org.w3.ldp.testsuite.annotations.SpecTest;
 import org.w3.ldp.testsuite.annotations.SpecTest.METHOD;
 import org.w3.ldp.testsuite.annotations.SpecTest.STATUS;
 import org.w3.ldp.testsuite.exception.SkipException;
+import org.w3.ldp.testsuite.filter.RequestLimiter;
+import org.w3.ldp.testsuite.http.LdpHttpClientFactory;
+import org.w3.ldp.testsuite.http.RequestWatchdog;
+import org.w3.ldp.testsuite.http.UnixSocketTransport;
 import org.w3.ldp.testsuite.mapper.RdfObjectMapper;
 import org.w3.ldp.testsuite.matcher.HeaderMatchers;
+import org.w3.ldp.testsuite.util.GeneratedInputStream;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 import static org.w3.ldp.testsuite.http.HttpHeaders.*;
+import static org.w3.ldp.testsuite.http.MediaTypes.APPLICATION_OCTET_STREAM;
 import static org.w3.ldp.testsuite.http.MediaTypes.TEXT_TURTLE;
 import static org.w3.ldp.testsuite.matcher.HttpStatusNotFoundOrGoneMatcher.isNotFoundOrGone;
 import static org.w3.ldp.testsuite.matcher.HttpStatusSuccessMatcher.isSuccessful;
@@ -32,6 +68,9 @@ import static org.w3.ldp.testsuite.matcher.HttpStatusSuccessMatcher.isSuccessful
 public class NonRDFSourceTest extends CommonResourceTest {
 	private final static String SETUP_ERROR = "ERROR: Could not create test resource for NonRDFSourceTest. Skipping tests.";
 
+	private final static int BUFFER_SIZE = 64 * 1024;
+	private final static double MB = 1024 * 1024;
+
 	private String container;
 	/** Resource for CommonResourceTest */
 	private String nonRdfSource;
@@ -144,7 +183,7 @@ public class NonRDFSourceTest extends CommonResourceTest {
 				mimeType = "image/png";
 
 		// Make sure we can post binary resources
-		Response response = postNonRDFSource(slug, file, mimeType);
+		final Response response = postNonRDFSource(slug, file, mimeType);
 		try {
 			// Check the container contains the new resource
 			Model model = buildBaseRequestSpecification()
@@ -458,4 +497,418 @@ public class NonRDFSourceTest extends CommonResourceTest {
 		}
 	}
 
+	@Test(
+			groups = {PERFORMANCE},
+			description = "LDP servers that accept LDP-NRs can store and return "
+					+ "large binaries intact. Measures upload and download "
+					+ "throughput of a generated payload streamed through the server.")
+	@Parameters("binarySize")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpc-post-createbins",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "The payload is never held in memory, so sizes of "
+					+ "several gigabytes can be tested.")
+	public void testLargeBinaryThroughput(@Optional("64m") String binarySize) throws IOException {
+		final long size = GeneratedInputStream.parseSize(binarySize);
+		final long seed = System.nanoTime();
+
+		try (CloseableHttpClient client = createStreamingClient()) {
+			// Upload the payload, hashing it as it is sent.
+			MessageDigest sent = newDigest();
+			long start = System.nanoTime();
+			String location = postGeneratedBinary(client, seed, size, sent);
+			recordThroughput("POST", size, System.nanoTime() - start);
+			recordRequestLimits();
+
+			try {
+				// Download it again, hashing as it is received.
+				MessageDigest received = newDigest();
+				HttpGet get = new HttpGet(location);
+				addAuthorization(get);
+				long length = 0;
+				start = System.nanoTime();
+				try (CloseableHttpResponse response = client.execute(get)) {
+					assertEquals(response.getStatusLine().getStatusCode(), HttpStatus.SC_OK,
+							"Unexpected status GETting the binary");
+					HttpEntity entity = response.getEntity();
+					Assert.assertNotNull(entity, "GET response for the binary has no body");
+					try (InputStream in = new DigestInputStream(entity.getContent(), received)) {
+						byte[] buffer = new byte[BUFFER_SIZE];
+						for (int n; (n = in.read(buffer)) != -1; ) {
+							length += n;
+						}
+					}
+				}
+				recordThroughput("GET", length, System.nanoTime() - start);
+
+				assertEquals(length, size, "Length of the binary returned does not match what was POSTed");
+				assertEquals(Hex.encodeHexString(received.digest()), Hex.encodeHexString(sent.digest()),
+						"SHA-256 of the binary returned does not match what was POSTed");
+
+				// HEAD transfers no body, so only the latency is meaningful.
+				HttpHead head = new HttpHead(location);
+				addAuthorization(head);
+				start = System.nanoTime();
+				try (CloseableHttpResponse response = client.execute(head)) {
+					recordMeasurement("HEAD latency (ms)", (System.nanoTime() - start) / 1000000);
+					assertEquals(response.getStatusLine().getStatusCode(), HttpStatus.SC_OK,
+							"Unexpected status for HEAD of the binary");
+					Header contentLength = response.getFirstHeader(CONTENT_LENGTH);
+					if (contentLength != null) {
+						assertEquals(Long.parseLong(contentLength.getValue()), size,
+								"Content-Length of HEAD response does not match the binary size");
+					}
+				}
+			} finally {
+				buildBaseRequestSpecification().delete(location);
+			}
+		}
+	}
+
+	@Test(
+			groups = {MAY},
+			description = "LDP servers must be HTTP/1.1 conformant. Servers "
+					+ "that support byte ranges on LDP-NRs return 206 Partial "
+					+ "Content with the requested bytes and a matching "
+					+ "Content-Range header.")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpr-gen-http",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Range requests are optional in HTTP/1.1 (RFC 7233). "
+					+ "Skipped if the server ignores the Range header.")
+	public void testRangeRequest() throws IOException {
+		final byte[] expected = testResourceContent();
+
+		Response response = buildBaseRequestSpecification().header(RANGE, "bytes=0-99").get(getResourceUri());
+		skipIfRangesNotSupported(response);
+		assertPartialContent(response, expected, 0, 99);
+
+		// A suffix range selects the last bytes of the representation.
+		response = buildBaseRequestSpecification().header(RANGE, "bytes=-50").get(getResourceUri());
+		assertPartialContent(response, expected, expected.length - 50, expected.length - 1);
+	}
+
+	@Test(
+			groups = {MAY},
+			description = "LDP servers must be HTTP/1.1 conformant. Servers "
+					+ "that support byte ranges on LDP-NRs answer a request "
+					+ "for several ranges with a multipart/byteranges response "
+					+ "containing each range.")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpr-gen-http",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Servers may also coalesce the ranges or ignore them, "
+					+ "both of which are accepted.")
+	public void testMultipleRangeRequest() throws IOException {
+		final byte[] expected = testResourceContent();
+		final int[][] ranges = { { 0, 9 }, { 1000, 1099 } };
+
+		Response response = buildBaseRequestSpecification().header(RANGE, "bytes=0-9,1000-1099").get(getResourceUri());
+		skipIfRangesNotSupported(response);
+		assertEquals(response.getStatusCode(), HttpStatus.SC_PARTIAL_CONTENT, "Unexpected status for a multiple range request");
+
+		String contentType = response.getContentType();
+		if (!StringUtils.startsWithIgnoreCase(contentType, "multipart/byteranges")) {
+			// The server coalesced the ranges into one, which must cover both.
+			long[] range = parseContentRange(response.getHeader(CONTENT_RANGE));
+			assertTrue(range[0] <= ranges[0][0] && range[1] >= ranges[1][1],
+					"Single Content-Range " + response.getHeader(CONTENT_RANGE) + " does not cover the requested ranges");
+			assertPartialContent(response, expected, range[0], range[1]);
+			return;
+		}
+
+		String boundary = null;
+		for (String param : contentType.split(";")) {
+			param = param.trim();
+			if (StringUtils.startsWithIgnoreCase(param, "boundary=")) {
+				boundary = StringUtils.strip(param.substring("boundary=".length()), "\"");
+			}
+		}
+		Assert.assertNotNull(boundary, "multipart/byteranges response has no boundary parameter");
+
+		// Decode as ISO-8859-1 so each char maps back to exactly one byte.
+		String body = new String(response.asByteArray(), StandardCharsets.ISO_8859_1);
+		int found = 0;
+		for (String part : body.split("\r?\n?--" + Pattern.quote(boundary))) {
+			int headersEnd = part.indexOf("\r\n\r\n");
+			if (headersEnd < 0 || part.startsWith("--")) {
+				continue; // preamble or closing delimiter
+			}
+			String contentRange = null;
+			for (String header : part.substring(0, headersEnd).split("\r\n")) {
+				if (StringUtils.startsWithIgnoreCase(header, CONTENT_RANGE + ":")) {
+					contentRange = header.substring(CONTENT_RANGE.length() + 1).trim();
+				}
+			}
+			Assert.assertNotNull(contentRange, "Part of multipart/byteranges response has no Content-Range header");
+			long[] range = parseContentRange(contentRange);
+			byte[] data = part.substring(headersEnd + 4).getBytes(StandardCharsets.ISO_8859_1);
+			assertEquals(data, Arrays.copyOfRange(expected, (int) range[0], (int) range[1] + 1),
+					"Content of part " + contentRange + " does not match the resource");
+			found++;
+		}
+		assertEquals(found, ranges.length, "Unexpected number of parts in multipart/byteranges response");
+	}
+
+	@Test(
+			groups = {MAY},
+			description = "LDP servers must be HTTP/1.1 conformant. Servers "
+					+ "that support byte ranges on LDP-NRs honor If-Range: the "
+					+ "range is returned when the entity tag matches and the "
+					+ "full representation otherwise.")
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpr-gen-http",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION,
+			comment = "Skipped if the server does not support ranges or only "
+					+ "returns weak entity tags, which If-Range cannot use.")
+	public void testIfRangeRequest() throws IOException {
+		final byte[] expected = testResourceContent();
+
+		Response response = buildBaseRequestSpecification().header(RANGE, "bytes=0-99").get(getResourceUri());
+		skipIfRangesNotSupported(response);
+		String etag = response.getHeader(ETAG);
+		if (etag == null || etag.startsWith("W/")) {
+			throw new SkipException(Thread.currentThread().getStackTrace()[1].getMethodName(),
+					"LDP-NR has no strong entity tag to use with If-Range.", skipLog);
+		}
+
+		response = buildBaseRequestSpecification()
+				.header(RANGE, "bytes=0-99")
+				.header(IF_RANGE, etag)
+				.get(getResourceUri());
+		assertPartialContent(response, expected, 0, 99);
+
+		// A stale entity tag means the client's copy is outdated, so the full representation is sent.
+		response = buildBaseRequestSpecification()
+				.header(RANGE, "bytes=0-99")
+				.header(IF_RANGE, "\"ldp-testsuite-stale\"")
+				.get(getResourceUri());
+		assertEquals(response.getStatusCode(), HttpStatus.SC_OK, "Server returned a range although If-Range did not match");
+		assertEquals(response.asByteArray(), expected, "Full representation does not match the resource");
+	}
+
+	@Test(
+			groups = {PERFORMANCE},
+			description = "Downloads a large LDP-NR as several byte ranges in "
+					+ "parallel and compares the time with a single stream.")
+	@Parameters({"binarySize", "rangeSegments"})
+	@SpecTest(
+			specRefUri = LdpTestSuite.SPEC_URI + "#ldpr-gen-http",
+			testMethod = METHOD.AUTOMATED,
+			approval = STATUS.WG_EXTENSION)
+	public void testSegmentedDownload(@Optional("64m") String binarySize, @Optional("4") int segments)
+			throws IOException, InterruptedException {
+		final long size = GeneratedInputStream.parseSize(binarySize);
+		final long seed = System.nanoTime();
+
+		try (final CloseableHttpClient client = createStreamingClient(segments)) {
+			final String location = postGeneratedBinary(client, seed, size, newDigest());
+			ExecutorService executor = Executors.newFixedThreadPool(segments);
+			try {
+				HttpGet get = new HttpGet(location);
+				addAuthorization(get);
+				long start = System.nanoTime();
+				try (CloseableHttpResponse response = client.execute(get)) {
+					assertEquals(response.getStatusLine().getStatusCode(), HttpStatus.SC_OK,
+							"Unexpected status GETting the binary");
+					assertEquals(verifyGenerated(response.getEntity().getContent(), seed, size, 0), size,
+							"Length of the binary returned does not match what was POSTed");
+				}
+				long single = System.nanoTime() - start;
+
+				List<Future<Long>> parts = new ArrayList<>();
+				final long segmentSize = (size + segments - 1) / segments;
+				start = System.nanoTime();
+				for (long offset = 0; offset < size; offset += segmentSize) {
+					final long first = offset;
+					final long last = Math.min(size, offset + segmentSize) - 1;
+					parts.add(executor.submit(new Callable<Long>() {
+						@Override
+						public Long call() throws IOException {
+							HttpGet get = new HttpGet(location);
+							addAuthorization(get);
+							get.setHeader(RANGE, "bytes=" + first + "-" + last);
+							try (CloseableHttpResponse response = client.execute(get)) {
+								if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+									return -1L;
+								}
+								assertEquals(response.getStatusLine().getStatusCode(), HttpStatus.SC_PARTIAL_CONTENT,
+										"Unexpected status for range " + first + "-" + last);
+								return verifyGenerated(response.getEntity().getContent(), seed, size, first);
+							}
+						}
+					}));
+				}
+
+				long received = 0;
+				for (Future<Long> part : parts) {
+					long length = getUnchecked(part);
+					if (length < 0) {
+						throw new SkipException(Thread.currentThread().getStackTrace()[1].getMethodName(),
+								"Server does not support byte range requests for LDP-NRs.", skipLog);
+					}
+					received += length;
+				}
+				long segmented = System.nanoTime() - start;
+				assertEquals(received, size, "Segments do not add up to the size of the binary");
+
+				recordMeasurement("segments", parts.size());
+				recordThroughput("single stream GET", size, single);
+				recordThroughput("segmented GET", size, segmented);
+				recordMeasurement("speed-up", String.format("%.2fx", (double) single / segmented));
+				recordRequestLimits();
+			} finally {
+				executor.shutdownNow();
+				buildBaseRequestSpecification().delete(location);
+			}
+		}
+	}
+
+	private byte[] testResourceContent() throws IOException {
+		return IOUtils.toByteArray(getClass().getResourceAsStream("/test.png"));
+	}
+
+	private void skipIfRangesNotSupported(Response response) {
+		if (response.getStatusCode() == HttpStatus.SC_OK) {
+			assertFalse("bytes".equalsIgnoreCase(response.getHeader(ACCEPT_RANGES)),
+					"Server advertises Accept-Ranges: bytes but ignored the Range request header");
+			throw new SkipException(Thread.currentThread().getStackTrace()[2].getMethodName(),
+					"Server does not support byte range requests for LDP-NRs.", skipLog);
+		}
+	}
+
+	private void assertPartialContent(Response response, byte[] expected, long first, long last) {
+		assertEquals(response.getStatusCode(), HttpStatus.SC_PARTIAL_CONTENT, "Unexpected status for a range request");
+		String contentRange = response.getHeader(CONTENT_RANGE);
+		Assert.assertNotNull(contentRange, "206 Partial Content response has no Content-Range header");
+		assertEquals(contentRange, "bytes " + first + "-" + last + "/" + expected.length, "Unexpected Content-Range");
+		assertEquals(response.asByteArray(), Arrays.copyOfRange(expected, (int) first, (int) last + 1),
+				"Bytes returned do not match the requested range");
+	}
+
+	/**
+	 * Parses a Content-Range header value such as {@code bytes 0-99/5063}.
+	 *
+	 * @return the first and last byte positions
+	 */
+	private static long[] parseContentRange(String contentRange) {
+		Assert.assertNotNull(contentRange, "Missing Content-Range header");
+		Matcher m = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)").matcher(contentRange.trim());
+		assertTrue(m.matches(), "Invalid Content-Range: " + contentRange);
+		return new long[] { Long.parseLong(m.group(1)), Long.parseLong(m.group(2)) };
+	}
+
+	/**
+	 * Compares a stream against the generated binary starting at
+	 * {@code offset}, without buffering either.
+	 *
+	 * @return the number of bytes read
+	 */
+	private static long verifyGenerated(InputStream in, long seed, long size, long offset) throws IOException {
+		try (InputStream actual = in; InputStream generated = new GeneratedInputStream(seed, size)) {
+			generated.skip(offset);
+			byte[] buffer = new byte[BUFFER_SIZE];
+			byte[] expected = new byte[BUFFER_SIZE];
+			long length = 0;
+			for (int n; (n = actual.read(buffer)) != -1; ) {
+				int m = IOUtils.read(generated, expected, 0, n);
+				for (int i = 0; i < n; i++) {
+					if (i >= m || buffer[i] != expected[i]) {
+						throw new AssertionError("Binary returned differs from what was POSTed at byte " + (offset + length + i));
+					}
+				}
+				length += n;
+			}
+			return length;
+		}
+	}
+
+	private static <T> T getUnchecked(Future<T> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwables.propagateIfPossible(e.getCause());
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Streams a generated binary to the container.
+	 *
+	 * @param client the client from {@link #createStreamingClient()}
+	 * @param seed the seed of the {@link GeneratedInputStream}
+	 * @param size the size of the binary in bytes
+	 * @param digest updated with the bytes sent
+	 * @return the location of the new LDP-NR
+	 */
+	protected String postGeneratedBinary(CloseableHttpClient client, long seed, long size, MessageDigest digest) throws IOException {
+		HttpPost post = new HttpPost(container);
+		addAuthorization(post);
+		post.setHeader(SLUG, "large-binary");
+		post.setEntity(new InputStreamEntity(
+				new DigestInputStream(new GeneratedInputStream(seed, size), digest),
+				size, ContentType.create(APPLICATION_OCTET_STREAM)));
+		try (CloseableHttpResponse response = client.execute(post)) {
+			assertEquals(response.getStatusLine().getStatusCode(), HttpStatus.SC_CREATED,
+					"Unexpected status POSTing a " + size + " byte binary");
+			Header location = response.getFirstHeader(LOCATION);
+			Assert.assertNotNull(location, CommonContainerTest.MSG_LOC_NOTFOUND);
+			return resolveIfRelative(container, location.getValue());
+		}
+	}
+
+	/**
+	 * Creates an HTTP client for transfers that must be streamed rather than
+	 * buffered in memory, as RestAssured does. Self-signed certificates are
+	 * accepted like they are for the rest of the suite.
+	 *
+	 * @return the client, to be closed by the caller
+	 */
+	protected CloseableHttpClient createStreamingClient() {
+		return createStreamingClient(2);
+	}
+
+	/**
+	 * @param connections
+	 *            the number of concurrent connections to allow
+	 * @return the client, to be closed by the caller
+	 * @see #createStreamingClient()
+	 */
+	protected CloseableHttpClient createStreamingClient(int connections) {
+		HttpClientBuilder builder = HttpClients.custom()
+				.setMaxConnPerRoute(connections)
+				.setMaxConnTotal(connections);
+		if (RequestWatchdog.getActive() != null) {
+			builder.setDefaultRequestConfig(RequestWatchdog.getActive().getRequestConfig());
+		}
+		if (StringUtils.startsWith(container, "https:")) {
+			builder.setSSLContext(LdpHttpClientFactory.relaxedSSLContext());
+			builder.setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE);
+		}
+		if (UnixSocketTransport.getActive() != null) {
+			UnixSocketTransport.getActive().configure(builder, connections);
+		}
+		builder.setRequestExecutor(new RequestLimiter.LimitedRequestExecutor());
+		return builder.build();
+	}
+
+	private void recordThroughput(String method, long bytes, long nanos) {
+		double seconds = nanos / 1e9;
+		recordMeasurement(method + " bytes", bytes);
+		recordMeasurement(method + " time (ms)", nanos / 1000000);
+		recordMeasurement(method + " throughput (MiB/s)", String.format("%.1f", bytes / MB / seconds));
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 }
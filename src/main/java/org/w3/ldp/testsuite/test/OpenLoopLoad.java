@@ -0,0 +1,310 @@
+package org.w3.ldp.testsuite.test;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.w3.ldp.testsuite.filter.RequestLimiter;
+import org.w3.ldp.testsuite.http.LdpHttpClientFactory;
+import org.w3.ldp.testsuite.http.RequestWatchdog;
+import org.w3.ldp.testsuite.reporter.LatencyHistogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.w3.ldp.testsuite.http.HttpHeaders.ACCEPT;
+import static org.w3.ldp.testsuite.http.HttpHeaders.AUTHORIZATION;
+import static org.w3.ldp.testsuite.http.HttpHeaders.LOCATION;
+import static org.w3.ldp.testsuite.http.MediaTypes.TEXT_TURTLE;
+
+/**
+ * Sends LDP requests to a container at a fixed arrival rate, whatever the
+ * server's response times, and raises the rate step by step until the
+ * server no longer keeps up.
+ *
+ * <p>
+ * A closed-loop client waits for each response before sending the next
+ * request, so a slow server slows the client down and the requests that
+ * would have been sent during a stall are never measured (coordinated
+ * omission). Here every request has an intended start time on a fixed
+ * schedule, requests go through a non-blocking client so slow responses
+ * never delay the schedule, and latency is measured from the intended start
+ * time, including any time the request spent queued on the client.
+ * </p>
+ *
+ * <p>
+ * Half of the requests GET the container, a quarter POST a new member with
+ * the suite's POST content and a quarter DELETE a member created earlier,
+ * so the container stays about the same size. A step is saturated when the
+ * completed requests fall below 90% of the target rate, more than 5% of the
+ * requests fail, or the p99 latency is ten times that of the first step.
+ * </p>
+ */
+class OpenLoopLoad {
+
+	private static final double MIN_THROUGHPUT = 0.9;
+	private static final double MAX_ERROR_RATE = 0.05;
+	private static final int MAX_P99_GROWTH = 10;
+
+	/** Time to wait for the requests of a step still in flight. */
+	private static final long DRAIN_TIMEOUT_MS = 30000;
+
+	/** The results of one rate. */
+	static class Step {
+
+		final int rate;
+		final LatencyHistogram latency = new LatencyHistogram();
+		final AtomicLong completed = new AtomicLong();
+		final AtomicLong errors = new AtomicLong();
+		long sent;
+		long millis;
+		boolean saturated;
+
+		Step(int rate) {
+			this.rate = rate;
+		}
+
+		/**
+		 * @return responses per second over the step, including the time
+		 *         to drain the requests in flight
+		 */
+		double getThroughput() {
+			return millis == 0 ? 0 : completed.get() * 1000.0 / millis;
+		}
+
+		double getErrorRate() {
+			return sent == 0 ? 0 : (double) errors.get() / sent;
+		}
+	}
+
+	private final String container;
+	private final byte[] body;
+	private final String authorization;
+
+	private final ConcurrentLinkedQueue<String> members = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final List<Step> steps = new ArrayList<>();
+
+	/**
+	 * @param container
+	 *            the container to load
+	 * @param content
+	 *            the content of new members
+	 * @param username
+	 *            the user for basic authentication, or null
+	 * @param password
+	 *            the password for basic authentication
+	 */
+	OpenLoopLoad(String container, Model content, String username, String password) {
+		this.container = container;
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		content.write(out, "TURTLE", "");
+		this.body = out.toByteArray();
+		this.authorization = username == null ? null
+				: "Basic " + Base64.encodeBase64String((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Raises the rate from {@code startRate} by {@code stepRate} until the
+	 * server saturates or {@code maxRate} has been run.
+	 *
+	 * @param startRate
+	 *            requests per second of the first step
+	 * @param stepRate
+	 *            requests per second added for each step
+	 * @param maxRate
+	 *            requests per second of the last step
+	 * @param stepSeconds
+	 *            the duration of each step
+	 * @param connections
+	 *            the maximum number of concurrent connections
+	 */
+	void sweep(int startRate, int stepRate, int maxRate, int stepSeconds, int connections)
+			throws InterruptedException, IOException {
+		HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+				.setMaxConnPerRoute(connections)
+				.setMaxConnTotal(connections);
+		if (RequestWatchdog.getActive() != null) {
+			builder.setDefaultRequestConfig(RequestWatchdog.getActive().getRequestConfig());
+		}
+		if (StringUtils.startsWith(container, "https:")) { // allow self-signed certificates for development servers
+			builder.setSSLContext(LdpHttpClientFactory.relaxedSSLContext());
+			builder.setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE);
+		}
+		try (CloseableHttpAsyncClient client = builder.build()) {
+			client.start();
+			try {
+				for (int rate = startRate; rate <= maxRate; rate += stepRate) {
+					Step step = run(client, rate, stepSeconds);
+					steps.add(step);
+					step.saturated = step.getThroughput() < rate * MIN_THROUGHPUT
+							|| step.getErrorRate() > MAX_ERROR_RATE
+							|| (steps.size() > 1 && step.latency.getPercentile(99) > MAX_P99_GROWTH * Math.max(1, steps.get(0).latency.getPercentile(99)));
+					if (step.saturated || stepRate <= 0) {
+						break;
+					}
+				}
+			} finally {
+				cleanUp(client);
+			}
+		}
+	}
+
+	List<Step> getSteps() {
+		return steps;
+	}
+
+	/**
+	 * @return the highest rate the server kept up with, or 0 if it did not
+	 *         keep up with the first one
+	 */
+	int getSaturationRate() {
+		int sustained = 0;
+		for (Step step : steps) {
+			if (step.saturated) {
+				break;
+			}
+			sustained = step.rate;
+		}
+		return sustained;
+	}
+
+	private Step run(CloseableHttpAsyncClient client, int rate, int seconds) throws InterruptedException {
+		Step step = new Step(rate);
+		long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+		long requests = (long) rate * seconds;
+		long start = System.nanoTime();
+		for (long i = 0; i < requests; i++) {
+			long intended = start + i * interval;
+			long wait = intended - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			// if the scheduler fell behind, the request is sent late but still
+			// timed from when it should have been sent
+			send(client, nextRequest(i), intended, step);
+			step.sent++;
+		}
+		drain();
+		step.millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		return step;
+	}
+
+	private HttpRequestBase nextRequest(long i) {
+		HttpRequestBase request;
+		if (i % 2 == 0) {
+			request = new HttpGet(container);
+			request.setHeader(ACCEPT, TEXT_TURTLE);
+		} else if (i % 4 == 1 || members.isEmpty()) {
+			HttpPost post = new HttpPost(container);
+			post.setEntity(new ByteArrayEntity(body, ContentType.create(TEXT_TURTLE)));
+			request = post;
+		} else {
+			String member = members.poll();
+			request = member != null ? new HttpDelete(member) : new HttpGet(container);
+		}
+		if (authorization != null) {
+			request.setHeader(AUTHORIZATION, authorization);
+		}
+		return request;
+	}
+
+	private void send(CloseableHttpAsyncClient client, final HttpRequestBase request, final long intended, final Step step) {
+		inFlight.incrementAndGet();
+		// held back here if the limiter says so, which delays the schedule but
+		// not the intended start times the latency is measured from
+		final RequestLimiter limiter = RequestLimiter.getActive();
+		final long permit = limiter != null ? limiter.acquire() : 0;
+		client.execute(request, new FutureCallback<HttpResponse>() {
+			@Override
+			public void completed(HttpResponse response) {
+				if (limiter != null) {
+					limiter.release(permit, request, response);
+				}
+				long now = System.nanoTime();
+				step.latency.record(TimeUnit.NANOSECONDS.toMillis(now - intended));
+				step.completed.incrementAndGet();
+				int status = response.getStatusLine().getStatusCode();
+				if (status >= 400) {
+					step.errors.incrementAndGet();
+				} else if (status == HttpStatus.SC_CREATED) {
+					Header location = response.getFirstHeader(LOCATION);
+					if (location != null) {
+						members.add(LdpTest.resolveIfRelative(container, location.getValue()));
+					}
+				}
+				done();
+			}
+
+			@Override
+			public void failed(Exception e) {
+				if (limiter != null) {
+					limiter.release(permit, request, null);
+				}
+				step.errors.incrementAndGet();
+				done();
+			}
+
+			@Override
+			public void cancelled() {
+				if (limiter != null) {
+					limiter.release(permit, request, null);
+				}
+				step.errors.incrementAndGet();
+				done();
+			}
+		});
+	}
+
+	private synchronized void done() {
+		inFlight.decrementAndGet();
+		notifyAll();
+	}
+
+	private synchronized void drain() throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MS);
+		while (inFlight.get() > 0) {
+			long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (left <= 0) {
+				return;
+			}
+			wait(left);
+		}
+	}
+
+	private void cleanUp(CloseableHttpAsyncClient client) throws InterruptedException {
+		// requests abandoned by drain() may still create members
+		drain();
+		Step cleanup = new Step(0);
+		for (String member; (member = members.poll()) != null; ) {
+			HttpDelete delete = new HttpDelete(member);
+			if (authorization != null) {
+				delete.setHeader(AUTHORIZATION, authorization);
+			}
+			send(client, delete, System.nanoTime(), cleanup);
+		}
+		drain();
+	}
+
+}
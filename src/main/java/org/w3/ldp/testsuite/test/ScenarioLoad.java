@@ -0,0 +1,419 @@
+package org.w3.ldp.testsuite.test;
+
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.vocabulary.DCTerms;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.w3.ldp.testsuite.filter.RequestLimiter;
+import org.w3.ldp.testsuite.http.LdpHttpClientFactory;
+import org.w3.ldp.testsuite.http.RequestWatchdog;
+import org.w3.ldp.testsuite.http.UnixSocketTransport;
+import org.w3.ldp.testsuite.reporter.LatencyHistogram;
+import org.w3.ldp.testsuite.util.GeneratedInputStream;
+import org.w3.ldp.testsuite.vocab.LDP;
+import org.w3.ldp.testsuite.vocab.Scenario;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.w3.ldp.testsuite.http.HttpHeaders.ACCEPT;
+import static org.w3.ldp.testsuite.http.HttpHeaders.AUTHORIZATION;
+import static org.w3.ldp.testsuite.http.HttpHeaders.ETAG;
+import static org.w3.ldp.testsuite.http.HttpHeaders.IF_MATCH;
+import static org.w3.ldp.testsuite.http.HttpHeaders.LINK;
+import static org.w3.ldp.testsuite.http.HttpHeaders.LINK_REL_TYPE;
+import static org.w3.ldp.testsuite.http.HttpHeaders.LOCATION;
+import static org.w3.ldp.testsuite.http.MediaTypes.TEXT_TURTLE;
+
+/**
+ * Runs a {@link LoadScenario} against a container: creates the containers
+ * and members of its layout, lets its users pick operations from the mix
+ * until the scenario's duration is over, pausing for an exponentially
+ * distributed think time after each request, then deletes everything it
+ * created.
+ *
+ * <p>
+ * Members and binaries created during the run join the ones operations can
+ * target, and deleted ones leave them, so mixes that create and delete keep
+ * working on live resources. An update (PUT) first GETs the resource for its
+ * ETag and is timed as a whole.
+ * </p>
+ */
+class ScenarioLoad {
+
+	private static final String BASIC_CONTAINER_TYPE = "<" + LDP.BasicContainer.stringValue() + ">; rel=\"" + LINK_REL_TYPE + "\"";
+
+	/** The results of one operation of the mix. */
+	static class Result {
+
+		final LatencyHistogram latency = new LatencyHistogram();
+		final AtomicLong errors = new AtomicLong();
+		/** Picks that found nothing to target, such as a DELETE with no members left. */
+		final AtomicLong idle = new AtomicLong();
+
+		double getErrorRate() {
+			long count = latency.getCount();
+			return count == 0 ? 0 : (double) errors.get() / count;
+		}
+	}
+
+	private final LoadScenario scenario;
+	private final String container;
+	private final byte[] memberContent;
+	private final String authorization;
+
+	private final List<String> containers = new ArrayList<>();
+	private final List<String> createdContainers = new ArrayList<>();
+	private final List<String> members = new ArrayList<>();
+	private final List<String> binaries = new ArrayList<>();
+	private final Map<LoadScenario.Operation, Result> results = new LinkedHashMap<>();
+	private long millis;
+
+	/**
+	 * @param scenario
+	 *            the scenario to run
+	 * @param container
+	 *            the container the scenario's layout is created in
+	 * @param memberContent
+	 *            the content of members when the scenario has no template
+	 * @param username
+	 *            the user for basic authentication, or null
+	 * @param password
+	 *            the password for basic authentication
+	 */
+	ScenarioLoad(LoadScenario scenario, String container, byte[] memberContent, String username, String password) {
+		this.scenario = scenario;
+		this.container = container;
+		this.memberContent = memberContent;
+		this.authorization = username == null ? null
+				: "Basic " + Base64.encodeBase64String((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+		for (LoadScenario.Operation operation : scenario.getOperations()) {
+			results.put(operation, new Result());
+		}
+	}
+
+	/**
+	 * Runs the scenario.
+	 *
+	 * @return false if the layout could not be created, in which case no
+	 *         operation was run
+	 */
+	boolean run() throws IOException, InterruptedException {
+		HttpClientBuilder builder = HttpClients.custom()
+				.setMaxConnPerRoute(scenario.getUsers())
+				.setMaxConnTotal(scenario.getUsers());
+		if (RequestWatchdog.getActive() != null) {
+			builder.setDefaultRequestConfig(RequestWatchdog.getActive().getRequestConfig());
+		}
+		if (StringUtils.startsWith(container, "https:")) { // allow self-signed certificates for development servers
+			builder.setSSLContext(LdpHttpClientFactory.relaxedSSLContext());
+			builder.setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE);
+		}
+		if (UnixSocketTransport.getActive() != null) {
+			UnixSocketTransport.getActive().configure(builder, scenario.getUsers());
+		}
+		builder.setRequestExecutor(new RequestLimiter.LimitedRequestExecutor());
+		try (CloseableHttpClient client = builder.build()) {
+			try {
+				if (!createLayout(client)) {
+					return false;
+				}
+				runUsers(client);
+				return true;
+			} finally {
+				cleanUp(client);
+			}
+		}
+	}
+
+	/**
+	 * @return the results of each operation, in the order of the scenario
+	 */
+	Map<LoadScenario.Operation, Result> getResults() {
+		return results;
+	}
+
+	/**
+	 * @return the duration of the run, without the layout and clean up
+	 */
+	long getMillis() {
+		return millis;
+	}
+
+	/**
+	 * @return requests per second over the run
+	 */
+	double getThroughput() {
+		return millis == 0 ? 0 : getRequests() * 1000.0 / millis;
+	}
+
+	long getRequests() {
+		long requests = 0;
+		for (Result result : results.values()) {
+			requests += result.latency.getCount();
+		}
+		return requests;
+	}
+
+	double getErrorRate() {
+		long requests = getRequests();
+		long errors = 0;
+		for (Result result : results.values()) {
+			errors += result.errors.get();
+		}
+		return requests == 0 ? 0 : (double) errors / requests;
+	}
+
+	private boolean createLayout(CloseableHttpClient client) throws IOException {
+		if (scenario.getContainers() == 0) {
+			containers.add(container);
+		}
+		for (int i = 0; i < scenario.getContainers(); i++) {
+			HttpPost post = new HttpPost(container);
+			post.setHeader(LINK, BASIC_CONTAINER_TYPE);
+			post.setEntity(new ByteArrayEntity(("<> <" + DCTerms.title.getURI() + "> \"Scenario container " + i + "\" .")
+					.getBytes(StandardCharsets.UTF_8), ContentType.create(TEXT_TURTLE)));
+			String created = create(client, post, container);
+			if (created == null) {
+				return false;
+			}
+			createdContainers.add(created);
+			containers.add(created);
+		}
+
+		byte[] content = scenario.getMemberTemplate() != null ? scenario.getMemberTemplate() : memberContent;
+		for (String parent : containers) {
+			for (int i = 0; i < scenario.getMembers(); i++) {
+				HttpPost post = new HttpPost(parent);
+				post.setEntity(new ByteArrayEntity(content, ContentType.create(TEXT_TURTLE)));
+				String created = create(client, post, parent);
+				if (created == null) {
+					return false;
+				}
+				members.add(created);
+			}
+		}
+		return true;
+	}
+
+	private String create(CloseableHttpClient client, HttpPost post, String parent) throws IOException {
+		authorize(post);
+		try (CloseableHttpResponse response = client.execute(post)) {
+			EntityUtils.consume(response.getEntity());
+			Header location = response.getFirstHeader(LOCATION);
+			if (response.getStatusLine().getStatusCode() != HttpStatus.SC_CREATED || location == null) {
+				return null;
+			}
+			return LdpTest.resolveIfRelative(parent, location.getValue());
+		}
+	}
+
+	private void runUsers(final CloseableHttpClient client) throws InterruptedException {
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(scenario.getDurationSeconds());
+		List<Thread> users = new ArrayList<>();
+		for (int i = 0; i < scenario.getUsers(); i++) {
+			final Random random = new Random(i);
+			Thread user = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (System.nanoTime() < deadline) {
+						perform(client, scenario.choose(random), random);
+						long think = thinkTime(random);
+						long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+						if (think > 0 && left > 0) {
+							try {
+								Thread.sleep(Math.min(think, left));
+							} catch (InterruptedException e) {
+								return;
+							}
+						}
+					}
+				}
+			}, "scenario-user-" + i);
+			user.setDaemon(true);
+			users.add(user);
+		}
+
+		long start = System.nanoTime();
+		for (Thread user : users) {
+			user.start();
+		}
+		for (Thread user : users) {
+			user.join();
+		}
+		millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	private long thinkTime(Random random) {
+		long mean = scenario.getThinkTimeMillis();
+		return mean <= 0 ? 0 : (long) (-mean * Math.log(1 - random.nextDouble()));
+	}
+
+	private void perform(CloseableHttpClient client, LoadScenario.Operation operation, Random random) {
+		Result result = results.get(operation);
+		boolean delete = operation.method.equals("DELETE");
+		String uri = pick(operation.target, random, delete);
+		if (uri == null) {
+			result.idle.incrementAndGet();
+			return;
+		}
+
+		long start = System.nanoTime();
+		boolean failed;
+		try {
+			switch (operation.method) {
+				case "POST":
+					failed = !post(client, operation, uri);
+					break;
+				case "PUT":
+					failed = !put(client, operation, uri);
+					break;
+				default:
+					failed = send(client, RequestBuilder.create(operation.method).setUri(uri).build(), operation) >= 400;
+			}
+		} catch (IOException e) {
+			failed = true;
+		}
+		result.latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		if (failed) {
+			result.errors.incrementAndGet();
+			if (delete) {
+				// still needs deleting when the run is over
+				putBack(operation.target, uri);
+			}
+		}
+	}
+
+	private boolean post(CloseableHttpClient client, LoadScenario.Operation operation, String parent) throws IOException {
+		HttpPost post = new HttpPost(parent);
+		if (operation.isBinaryUpload()) {
+			post.setEntity(new InputStreamEntity(new GeneratedInputStream(System.nanoTime(), operation.binarySize),
+					operation.binarySize, ContentType.create(operation.contentType)));
+		} else {
+			byte[] body = operation.body != null ? operation.body : memberContent;
+			post.setEntity(new ByteArrayEntity(body, ContentType.create(operation.contentType)));
+		}
+		String created = create(client, post, parent);
+		if (created == null) {
+			return false;
+		}
+		synchronized (this) {
+			(operation.isBinaryUpload() ? binaries : members).add(created);
+		}
+		return true;
+	}
+
+	private boolean put(CloseableHttpClient client, LoadScenario.Operation operation, String uri) throws IOException {
+		HttpGet get = new HttpGet(uri);
+		get.setHeader(ACCEPT, operation.contentType);
+		authorize(get);
+		String etag;
+		byte[] body;
+		try (CloseableHttpResponse response = client.execute(get)) {
+			body = EntityUtils.toByteArray(response.getEntity());
+			if (response.getStatusLine().getStatusCode() >= 400) {
+				return false;
+			}
+			Header header = response.getFirstHeader(ETAG);
+			etag = header != null ? header.getValue() : null;
+		}
+
+		HttpPut put = new HttpPut(uri);
+		if (etag != null) {
+			put.setHeader(IF_MATCH, etag);
+		}
+		put.setEntity(new ByteArrayEntity(operation.body != null ? operation.body : body, ContentType.create(operation.contentType)));
+		return send(client, put, operation) < 400;
+	}
+
+	private int send(CloseableHttpClient client, HttpUriRequest request, LoadScenario.Operation operation) throws IOException {
+		if (!request.containsHeader(ACCEPT) && !operation.target.equals(Scenario.Binary)) {
+			request.setHeader(ACCEPT, TEXT_TURTLE);
+		}
+		authorize(request);
+		try (CloseableHttpResponse response = client.execute(request)) {
+			EntityUtils.consume(response.getEntity());
+			return response.getStatusLine().getStatusCode();
+		}
+	}
+
+	/**
+	 * @return a resource of the target kind at random, removed from those
+	 *         that can be targeted if {@code take}, or null if there is none
+	 */
+	private synchronized String pick(Resource target, Random random, boolean take) {
+		List<String> pool = pool(target);
+		if (pool.isEmpty()) {
+			return null;
+		}
+		int i = random.nextInt(pool.size());
+		if (!take) {
+			return pool.get(i);
+		}
+		// swap with the last one so removal is constant time
+		String uri = pool.get(i);
+		pool.set(i, pool.get(pool.size() - 1));
+		pool.remove(pool.size() - 1);
+		return uri;
+	}
+
+	private synchronized void putBack(Resource target, String uri) {
+		pool(target).add(uri);
+	}
+
+	private synchronized List<String> pool(Resource target) {
+		if (target.equals(Scenario.Member)) {
+			return members;
+		}
+		return target.equals(Scenario.Binary) ? binaries : containers;
+	}
+
+	private void cleanUp(CloseableHttpClient client) {
+		List<String> resources = new ArrayList<>();
+		synchronized (this) {
+			resources.addAll(members);
+			resources.addAll(binaries);
+			resources.addAll(createdContainers);
+		}
+		for (String uri : resources) {
+			HttpDelete delete = new HttpDelete(uri);
+			authorize(delete);
+			try (CloseableHttpResponse response = client.execute(delete)) {
+				EntityUtils.consume(response.getEntity());
+			} catch (IOException e) {
+				// best effort, like the other tests' clean up
+			}
+		}
+	}
+
+	private void authorize(HttpUriRequest request) {
+		if (authorization != null) {
+			request.setHeader(AUTHORIZATION, authorization);
+		}
+	}
+
+}
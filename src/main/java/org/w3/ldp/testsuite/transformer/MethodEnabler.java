@@ -12,6 +12,7 @@ public class MethodEnabler implements IAnnotationTransformer {
 
 	private static Map<String, Boolean> transforms = new HashMap<>();	
 	private static boolean defEnabled = true;
+	private static int invocationCount = 1;
 
 	public synchronized static void includeMethod(String name) {
 		transforms.put(name, true);		
@@ -25,6 +26,13 @@ public class MethodEnabler implements IAnnotationTransformer {
 		defEnabled = enabled;
 	}
 
+	/**
+	 * Runs every test this many times in a row.
+	 */
+	public static void setInvocationCount(int count) {
+		invocationCount = count;
+	}
+
 	@SuppressWarnings("rawtypes")
 	@Override
 	public void transform(ITestAnnotation annotation, Class testClass,
@@ -43,5 +51,9 @@ public class MethodEnabler implements IAnnotationTransformer {
 			// do what its annotation says
 			annotation.setEnabled(annotation.getEnabled() && defEnabled);
 		}
+
+		if (invocationCount > 1) {
+			annotation.setInvocationCount(invocationCount);
+		}
 	}
 }
@@ -0,0 +1,134 @@
+package org.w3.ldp.testsuite.util;
+
+import java.io.InputStream;
+
+/**
+ * A deterministic stream of pseudo-random bytes. The same seed and length
+ * always produce the same content, so arbitrarily large payloads can be
+ * uploaded and verified without keeping them in memory.
+ */
+public class GeneratedInputStream extends InputStream {
+
+	private final long length;
+	private long position;
+	private long state;
+	private long word;
+
+	/**
+	 * @param seed
+	 *            the seed of the generator
+	 * @param length
+	 *            the number of bytes to produce
+	 */
+	public GeneratedInputStream(long seed, long length) {
+		if (length < 0) {
+			throw new IllegalArgumentException("negative length: " + length);
+		}
+		this.length = length;
+		// xorshift must not start from zero
+		this.state = seed == 0 ? 0x9e3779b97f4a7c15L : seed;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	@Override
+	public int read() {
+		if (position >= length) {
+			return -1;
+		}
+		return nextByte();
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (len == 0) {
+			return 0;
+		}
+		if (position >= length) {
+			return -1;
+		}
+		int n = (int) Math.min(len, length - position);
+		for (int i = 0; i < n; i++) {
+			b[off + i] = (byte) nextByte();
+		}
+		return n;
+	}
+
+	@Override
+	public long skip(long n) {
+		long skipped = Math.max(0, Math.min(n, length - position));
+		long remaining = skipped;
+		while (remaining > 0 && (position & 7) != 0) {
+			nextByte();
+			remaining--;
+		}
+		// Whole words only need the generator state advanced.
+		for (; remaining >= 8; remaining -= 8) {
+			nextState();
+			position += 8;
+		}
+		for (; remaining > 0; remaining--) {
+			nextByte();
+		}
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return (int) Math.min(Integer.MAX_VALUE, length - position);
+	}
+
+	private int nextByte() {
+		int shift = (int) (position & 7);
+		if (shift == 0) {
+			nextState();
+			word = state * 0x2545f4914f6cdd1dL;
+		}
+		position++;
+		return (int) (word >>> (shift * 8)) & 0xff;
+	}
+
+	/** One xorshift64* step; each step yields the next 8 bytes. */
+	private void nextState() {
+		state ^= state >>> 12;
+		state ^= state << 25;
+		state ^= state >>> 27;
+	}
+
+	/**
+	 * Parses a byte size such as {@code 512}, {@code 64k}, {@code 16m} or
+	 * {@code 2g} (binary multiples).
+	 *
+	 * @param size
+	 *            the size to parse
+	 * @return the size in bytes
+	 * @throws IllegalArgumentException
+	 *             if the size is not valid
+	 */
+	public static long parseSize(String size) {
+		String s = size.trim().toLowerCase();
+		long multiplier = 1;
+		if (s.endsWith("k")) {
+			multiplier = 1L << 10;
+		} else if (s.endsWith("m")) {
+			multiplier = 1L << 20;
+		} else if (s.endsWith("g")) {
+			multiplier = 1L << 30;
+		}
+		if (multiplier != 1) {
+			s = s.substring(0, s.length() - 1);
+		}
+		try {
+			long value = Long.parseLong(s.trim());
+			if (value < 0) {
+				throw new IllegalArgumentException("invalid size: " + size);
+			}
+			return value * multiplier;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("invalid size: " + size, e);
+		}
+	}
+
+}
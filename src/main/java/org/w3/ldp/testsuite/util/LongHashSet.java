@@ -0,0 +1,201 @@
+package org.w3.ldp.testsuite.util;
+
+import java.util.Arrays;
+
+/**
+ * A compact set of 64-bit hashes using open addressing with linear probing.
+ * Stores each element in a single {@code long} slot, so tracking hundreds of
+ * thousands of triples costs a few megabytes instead of the string and node
+ * overhead of a {@code Set<String>}.
+ *
+ * <p>
+ * Not thread-safe. Callers sharing a set between threads must synchronize.
+ * </p>
+ */
+public class LongHashSet {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/** Marks an empty slot. Real values of 0 are remapped on insertion. */
+	private static final long EMPTY = 0L;
+
+	private long[] slots;
+	private int size;
+
+	public LongHashSet() {
+		this(64);
+	}
+
+	public LongHashSet(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+		slots = new long[capacity];
+	}
+
+	private LongHashSet(LongHashSet other) {
+		slots = Arrays.copyOf(other.slots, other.slots.length);
+		size = other.size;
+	}
+
+	/**
+	 * Computes a 64-bit FNV-1a hash of a string.
+	 *
+	 * @param s the string to hash
+	 * @return the hash
+	 */
+	public static long hash(String s) {
+		long h = FNV_OFFSET_BASIS;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			h ^= c & 0xff;
+			h *= FNV_PRIME;
+			h ^= c >>> 8;
+			h *= FNV_PRIME;
+		}
+		return h;
+	}
+
+	public boolean add(long value) {
+		value = remap(value);
+		int i = indexOf(value);
+		if (slots[i] == value) {
+			return false;
+		}
+		slots[i] = value;
+		if (++size * 4 > slots.length * 3) {
+			rehash(slots.length * 2);
+		}
+		return true;
+	}
+
+	public boolean contains(long value) {
+		value = remap(value);
+		return slots[indexOf(value)] == value;
+	}
+
+	public boolean remove(long value) {
+		value = remap(value);
+		int i = indexOf(value);
+		if (slots[i] != value) {
+			return false;
+		}
+
+		// Shift back any following entries in the probe sequence so lookups
+		// don't stop early at the hole we leave behind.
+		int mask = slots.length - 1;
+		int hole = i;
+		int j = (i + 1) & mask;
+		while (slots[j] != EMPTY) {
+			int home = mix(slots[j]) & mask;
+			if (((j - home) & mask) >= ((j - hole) & mask)) {
+				slots[hole] = slots[j];
+				hole = j;
+			}
+			j = (j + 1) & mask;
+		}
+		slots[hole] = EMPTY;
+		size--;
+		return true;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return a copy of this set, useful for taking consistent snapshots
+	 */
+	public LongHashSet copy() {
+		return new LongHashSet(this);
+	}
+
+	/**
+	 * Counts the elements of this set not contained in {@code other}.
+	 *
+	 * @param other the set to compare against
+	 * @return the size of the difference {@code this \ other}
+	 */
+	public int countNotIn(LongHashSet other) {
+		int count = 0;
+		for (long value : slots) {
+			if (value != EMPTY && !other.containsRemapped(value)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the elements contained in both sets.
+	 *
+	 * @param other the set to intersect with
+	 * @return the size of the intersection
+	 */
+	public int countIn(LongHashSet other) {
+		return size - countNotIn(other);
+	}
+
+	/**
+	 * Removes all elements not contained in {@code other}.
+	 *
+	 * @param other the set to intersect with
+	 */
+	public void retainAll(LongHashSet other) {
+		for (long value : toArray()) {
+			if (!other.contains(value)) {
+				remove(value);
+			}
+		}
+	}
+
+	/**
+	 * @return the elements of this set in no particular order
+	 */
+	public long[] toArray() {
+		long[] values = new long[size];
+		int i = 0;
+		for (long value : slots) {
+			if (value != EMPTY) {
+				values[i++] = value;
+			}
+		}
+		return values;
+	}
+
+	private boolean containsRemapped(long value) {
+		return slots[indexOf(value)] == value;
+	}
+
+	private int indexOf(long value) {
+		int mask = slots.length - 1;
+		int i = mix(value) & mask;
+		while (slots[i] != EMPTY && slots[i] != value) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	private void rehash(int capacity) {
+		long[] old = slots;
+		slots = new long[capacity];
+		for (long value : old) {
+			if (value != EMPTY) {
+				slots[indexOf(value)] = value;
+			}
+		}
+	}
+
+	private static long remap(long value) {
+		return value == EMPTY ? 1L : value;
+	}
+
+	private static int mix(long value) {
+		long h = value * 0x9e3779b97f4a7c15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+}
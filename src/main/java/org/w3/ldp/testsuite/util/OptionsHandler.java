@@ -3,12 +3,14 @@ package org.w3.ldp.testsuite.util;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.HashMap;
 import java.util.Map;
 
 public class OptionsHandler {
 
 	private final Map<String, String> options;
 	private final CommandLine cmd;
+	private final Map<String, String> overrides = new HashMap<>();
 
 	public OptionsHandler(final Map<String, String> options) {
 		this.options = options;
@@ -20,7 +22,23 @@ public class OptionsHandler {
 		this.options = null;
 	}
 
+	/**
+	 * @param overrides
+	 *            option values that replace those of this handler
+	 * @return a handler with the same options as this one except for the
+	 *         overridden ones
+	 */
+	public OptionsHandler withOverrides(Map<String, String> overrides) {
+		OptionsHandler handler = options == null ? new OptionsHandler(cmd) : new OptionsHandler(options);
+		handler.overrides.putAll(this.overrides);
+		handler.overrides.putAll(overrides);
+		return handler;
+	}
+
 	public boolean hasOption(String name) {
+		if (overrides.containsKey(name)) {
+			return true;
+		}
 		if (options == null) {
 			return cmd.hasOption(name);
 		}
@@ -29,6 +47,9 @@ public class OptionsHandler {
 	}
 
 	public boolean hasOptionWithValue(String name) {
+		if (overrides.containsKey(name)) {
+			return StringUtils.isNotBlank(overrides.get(name));
+		}
 		if (options == null) {
 			return cmd.hasOption(name) && StringUtils.isNotBlank(cmd.getOptionValue(name));
 		}
@@ -37,6 +58,9 @@ public class OptionsHandler {
 	}
 
 	public String getOptionValue(String name) {
+		if (overrides.containsKey(name)) {
+			return overrides.get(name);
+		}
 		if (options == null) {
 			return cmd.getOptionValue(name);
 		}
@@ -45,6 +69,9 @@ public class OptionsHandler {
 	}
 
 	public String[] getOptionValues(String name) {
+		if (overrides.containsKey(name)) {
+			return new String[] { overrides.get(name) };
+		}
 		if (options == null) {
 			return cmd.getOptionValues(name);
 		}
@@ -0,0 +1,58 @@
+package org.w3.ldp.testsuite.vocab;
+
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.ResourceFactory;
+
+/**
+ * Terms of the load scenarios run by the scenario test, in the test suite
+ * namespace.
+ *
+ * <pre>
+ * &lt;&gt; a ldpt:Scenario ;
+ *     ldpt:users 8 ; ldpt:duration 60 ; ldpt:thinkTime 500 ;
+ *     ldpt:layout [ ldpt:containers 4 ; ldpt:members 25 ; ldpt:memberTemplate "member.ttl" ] ;
+ *     ldpt:operation [ rdfs:label "browse" ; ldpt:weight 8 ; ldpt:method "GET" ; ldpt:target ldpt:Container ] ,
+ *         [ rdfs:label "add" ; ldpt:weight 1 ; ldpt:method "POST" ; ldpt:target ldpt:Container ; ldpt:template "member.ttl" ] .
+ * </pre>
+ */
+public class Scenario {
+
+	private static final String ldpt = LDP.LDPT_NAMESPACE;
+
+	public final static Resource Scenario = resource(ldpt + "Scenario");
+
+	/* Targets of an operation */
+	public final static Resource Container = resource(ldpt + "Container");
+	public final static Resource Member = resource(ldpt + "Member");
+	public final static Resource Binary = resource(ldpt + "Binary");
+
+	/* The scenario */
+	public final static Property users = property(ldpt + "users");
+	public final static Property duration = property(ldpt + "duration");
+	public final static Property thinkTime = property(ldpt + "thinkTime");
+	public final static Property maxErrorRate = property(ldpt + "maxErrorRate");
+	public final static Property layout = property(ldpt + "layout");
+	public final static Property operation = property(ldpt + "operation");
+
+	/* The container layout */
+	public final static Property containers = property(ldpt + "containers");
+	public final static Property members = property(ldpt + "members");
+	public final static Property memberTemplate = property(ldpt + "memberTemplate");
+
+	/* An operation */
+	public final static Property weight = property(ldpt + "weight");
+	public final static Property method = property(ldpt + "method");
+	public final static Property target = property(ldpt + "target");
+	public final static Property template = property(ldpt + "template");
+	public final static Property binarySize = property(ldpt + "binarySize");
+	public final static Property contentType = property(ldpt + "contentType");
+
+	protected static final Property property(String name) {
+		return ResourceFactory.createProperty(name);
+	}
+
+	protected static final Resource resource(String name) {
+		return ResourceFactory.createResource(name);
+	}
+}